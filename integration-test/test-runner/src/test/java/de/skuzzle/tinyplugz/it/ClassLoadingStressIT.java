@@ -0,0 +1,62 @@
+package de.skuzzle.tinyplugz.it;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.skuzzle.tinyplugz.benchmarks.ClassLoadingStress;
+import de.skuzzle.tinyplugz.benchmarks.SyntheticPlugins;
+
+/**
+ * Loads classes from plugins which reference each other circularly using many
+ * concurrent threads. The duration and the number of threads can be
+ * configured using the system properties {@code tinyplugz.stress.seconds} and
+ * {@code tinyplugz.stress.threads}.
+ */
+public class ClassLoadingStressIT {
+
+    private static final long SECONDS = Long.getLong("tinyplugz.stress.seconds", 20);
+    private static final int THREADS = Integer.getInteger("tinyplugz.stress.threads",
+            64);
+
+    private SyntheticPlugins plugins;
+
+    @Before
+    public void setUp() throws Exception {
+        this.plugins = SyntheticPlugins.builder()
+                .plugins(16)
+                .classesPerPlugin(100)
+                .crossReferences(50)
+                .generate();
+    }
+
+    @After
+    public void tearDown() {
+        this.plugins.delete();
+    }
+
+    @Test
+    public void testConcurrentClassLoading() throws Exception {
+        final ClassLoadingStress stress = new ClassLoadingStress(this.plugins, THREADS,
+                60, TimeUnit.SECONDS);
+        final ClassLoadingStress.Result result = stress.run(SECONDS, TimeUnit.SECONDS);
+
+        assertTrue(describe(result), result.isSuccessful());
+    }
+
+    private static String describe(ClassLoadingStress.Result result) {
+        final StringWriter b = new StringWriter();
+        final PrintWriter out = new PrintWriter(b);
+        out.println(result);
+        result.getDeadlocks().forEach(out::println);
+        result.getFailures().forEach(failure -> failure.printStackTrace(out));
+        out.flush();
+        return b.toString();
+    }
+}
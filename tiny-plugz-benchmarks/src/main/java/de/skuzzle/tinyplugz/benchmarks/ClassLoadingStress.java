@@ -0,0 +1,292 @@
+package de.skuzzle.tinyplugz.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import de.skuzzle.tinyplugz.internal.DelegateClassLoader;
+
+/**
+ * Stress test for concurrent class loading. Each round deploys the
+ * {@link SyntheticPlugins} using a fresh {@link DelegateClassLoader} and lets
+ * a number of threads load all classes of all plugins at the same time. Each
+ * thread uses the look up class of a different plugin and starts at a
+ * different class, so the threads request overlapping sets of classes in
+ * different orders. Plugins should be generated with cross references, so
+ * that loading a class requires nested look ups in the other plugins.
+ * <p>
+ * A {@link ThreadMonitor} checks for deadlocks while the rounds are running.
+ * A round is aborted if its threads do not finish within the configured
+ * timeout.
+ * </p>
+ *
+ * @author Simon Taddiken
+ */
+public final class ClassLoadingStress {
+
+    private static final long MONITOR_INTERVAL_MILLIS = 500;
+
+    private final SyntheticPlugins plugins;
+    private final int threads;
+    private final long roundTimeoutMillis;
+
+    /**
+     * Creates a new stress test.
+     *
+     * @param plugins The plugins to load the classes from.
+     * @param threads The number of concurrently loading threads.
+     * @param roundTimeout Maximum time for a single round.
+     * @param unit Unit of the timeout.
+     */
+    public ClassLoadingStress(SyntheticPlugins plugins, int threads, long roundTimeout,
+            TimeUnit unit) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.plugins = plugins;
+        this.threads = threads;
+        this.roundTimeoutMillis = unit.toMillis(roundTimeout);
+    }
+
+    /**
+     * Runs rounds until the given duration has elapsed, a round fails or a
+     * deadlock is detected. At least one round is run.
+     *
+     * @param duration The duration.
+     * @param unit Unit of the duration.
+     * @return The result of all rounds.
+     * @throws InterruptedException If the calling thread is interrupted.
+     */
+    public Result run(long duration, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(duration);
+        final Result result = new Result();
+        try (ThreadMonitor monitor = ThreadMonitor.start(MONITOR_INTERVAL_MILLIS)) {
+            do {
+                runRound(result, monitor);
+            } while (System.nanoTime() < deadline && result.isSuccessful());
+            result.deadlocks.addAll(monitor.getDeadlocks());
+        }
+        return result;
+    }
+
+    private void runRound(Result result, ThreadMonitor monitor)
+            throws InterruptedException {
+        final String[] names = this.plugins.classNames();
+        final AtomicReferenceArray<Class<?>> loaded = new AtomicReferenceArray<>(
+                names.length);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(this.threads);
+        final List<Worker> workers = new ArrayList<>(this.threads);
+
+        final DelegateClassLoader classLoader = DelegateClassLoader.forPlugins(
+                this.plugins.urls(), getClass().getClassLoader());
+        try {
+            for (int t = 0; t < this.threads; ++t) {
+                final Function<String, Class<?>> lookup;
+                try {
+                    lookup = SyntheticPlugins.newLookup(classLoader,
+                            t % this.plugins.getPlugins());
+                } catch (final ReflectiveOperationException e) {
+                    result.failures.add(e);
+                    return;
+                }
+                final int offset = (int) ((long) t * names.length / this.threads);
+                final Worker worker = new Worker(lookup, names, offset, loaded, start,
+                        finished);
+                worker.setName("tiny-plugz-stress-" + t);
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            }
+
+            final long begin = System.nanoTime();
+            start.countDown();
+            final boolean completed = finished.await(this.roundTimeoutMillis,
+                    TimeUnit.MILLISECONDS);
+            final long elapsed = System.nanoTime() - begin;
+            if (!completed) {
+                monitor.checkDeadlocks();
+                result.failures.add(new IllegalStateException(String.format(
+                        "Round %d did not finish within %d ms", result.rounds + 1,
+                        this.roundTimeoutMillis)));
+                return;
+            }
+
+            ++result.rounds;
+            result.elapsedNanos += elapsed;
+            for (final Worker worker : workers) {
+                result.classesLoaded += worker.classesLoaded;
+                result.blockedMillis += worker.blockedMillis;
+                result.blockedCount += worker.blockedCount;
+                if (worker.failure != null) {
+                    result.failures.add(worker.failure);
+                }
+            }
+        } finally {
+            try {
+                classLoader.close();
+            } catch (final IOException e) {
+                result.failures.add(e);
+            }
+        }
+    }
+
+    private static final class Worker extends Thread {
+
+        private final Function<String, Class<?>> lookup;
+        private final String[] names;
+        private final int offset;
+        private final AtomicReferenceArray<Class<?>> loaded;
+        private final CountDownLatch start;
+        private final CountDownLatch finished;
+
+        private int classesLoaded;
+        private long blockedMillis;
+        private long blockedCount;
+        private Throwable failure;
+
+        private Worker(Function<String, Class<?>> lookup, String[] names, int offset,
+                AtomicReferenceArray<Class<?>> loaded, CountDownLatch start,
+                CountDownLatch finished) {
+            this.lookup = lookup;
+            this.names = names;
+            this.offset = offset;
+            this.loaded = loaded;
+            this.start = start;
+            this.finished = finished;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.start.await();
+                final long blockedTime = ThreadMonitor.currentBlockedTime();
+                final long blockedCount = ThreadMonitor.currentBlockedCount();
+                for (int i = 0; i < this.names.length; ++i) {
+                    final int index = (this.offset + i) % this.names.length;
+                    final Class<?> cls = this.lookup.apply(this.names[index]);
+                    if (cls == null) {
+                        throw new IllegalStateException("Class not found: "
+                            + this.names[index]);
+                    }
+                    // all threads must observe the same class instance
+                    if (!this.loaded.compareAndSet(index, null, cls)
+                        && this.loaded.get(index) != cls) {
+                        throw new IllegalStateException("Class defined twice: "
+                            + this.names[index]);
+                    }
+                    ++this.classesLoaded;
+                }
+                this.blockedMillis = blockedTime < 0
+                        ? 0
+                        : ThreadMonitor.currentBlockedTime() - blockedTime;
+                this.blockedCount = ThreadMonitor.currentBlockedCount() - blockedCount;
+            } catch (final Throwable e) {
+                this.failure = e;
+            } finally {
+                this.finished.countDown();
+            }
+        }
+    }
+
+    /**
+     * Accumulated result of all rounds.
+     *
+     * @author Simon Taddiken
+     */
+    public static final class Result {
+
+        private final List<Throwable> failures = new ArrayList<>();
+        private final List<String> deadlocks = new ArrayList<>();
+        private int rounds;
+        private long classesLoaded;
+        private long elapsedNanos;
+        private long blockedMillis;
+        private long blockedCount;
+
+        private Result() {
+            // created by ClassLoadingStress
+        }
+
+        /**
+         * Whether all rounds completed without failures and deadlocks.
+         *
+         * @return Whether the stress test was successful.
+         */
+        public boolean isSuccessful() {
+            return this.failures.isEmpty() && this.deadlocks.isEmpty();
+        }
+
+        /**
+         * Exceptions that occurred while loading classes as well as rounds
+         * which timed out.
+         *
+         * @return The failures.
+         */
+        public List<Throwable> getFailures() {
+            return this.failures;
+        }
+
+        /**
+         * Descriptions of the deadlocks detected by the {@link ThreadMonitor}.
+         *
+         * @return The deadlocks.
+         */
+        public List<String> getDeadlocks() {
+            return this.deadlocks;
+        }
+
+        /**
+         * Number of completed rounds.
+         *
+         * @return The number of rounds.
+         */
+        public int getRounds() {
+            return this.rounds;
+        }
+
+        /**
+         * Number of classes loaded per millisecond, summed up over all
+         * threads.
+         *
+         * @return The throughput.
+         */
+        public double getThroughput() {
+            return this.elapsedNanos == 0
+                    ? 0.0
+                    : this.classesLoaded * 1_000_000.0 / this.elapsedNanos;
+        }
+
+        /**
+         * Total time in milliseconds all threads have been blocked while
+         * entering monitors.
+         *
+         * @return The blocked time.
+         */
+        public long getBlockedMillis() {
+            return this.blockedMillis;
+        }
+
+        /**
+         * Total number of times all threads have been blocked while entering
+         * monitors.
+         *
+         * @return The blocked count.
+         */
+        public long getBlockedCount() {
+            return this.blockedCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("rounds=%d, throughput=%.1f classes/ms, "
+                + "blocked=%d ms (%d times), failures=%d, deadlocks=%d",
+                    this.rounds, getThroughput(), this.blockedMillis,
+                    this.blockedCount, this.failures.size(), this.deadlocks.size());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package de.skuzzle.tinyplugz.benchmarks;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Runs the benchmarks of {@link LookupBenchmark} using as many threads as
+ * there are processors. All threads share the same deployment.
+ *
+ * @author Simon Taddiken
+ */
+@Threads(Threads.MAX)
+public class ConcurrentLookupBenchmark extends LookupBenchmark {
+
+}
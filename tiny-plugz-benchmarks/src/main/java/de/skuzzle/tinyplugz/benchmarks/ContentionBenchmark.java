@@ -0,0 +1,148 @@
+package de.skuzzle.tinyplugz.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.skuzzle.tinyplugz.internal.DelegateClassLoader;
+
+/**
+ * Measures concurrent loading of classes which have not been loaded before.
+ * Every iteration deploys the {@link SyntheticPlugins} using a fresh
+ * {@link DelegateClassLoader}. Then, all threads load all classes of all
+ * plugins at the same time, each using the look up class of a different
+ * plugin and starting at a different class. As the plugins reference each
+ * other circularly, the threads compete for the class loading locks of
+ * multiple plugins.
+ * <p>
+ * Besides the time reported by JMH, the time the threads have been blocked
+ * while entering monitors is printed at the end of each trial, together
+ * with any deadlocks detected by the {@link ThreadMonitor}.
+ * </p>
+ *
+ * @author Simon Taddiken
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Threads(Threads.MAX)
+@Fork(1)
+public class ContentionBenchmark {
+
+    @Param({ "8", "32" })
+    public int plugins;
+
+    @Param({ "200" })
+    public int classesPerPlugin;
+
+    @Param({ "100" })
+    public int crossReferences;
+
+    private SyntheticPlugins syntheticPlugins;
+    private ThreadMonitor monitor;
+    private String[] names;
+    private DelegateClassLoader classLoader;
+
+    private final AtomicInteger threads = new AtomicInteger();
+    private final LongAdder blockedMillis = new LongAdder();
+    private final LongAdder blockedCount = new LongAdder();
+
+    /**
+     * State of a single loading thread.
+     */
+    @State(Scope.Thread)
+    public static class Loader {
+        private int index = -1;
+        private int offset;
+        private Function<String, Class<?>> lookup;
+        private long blockedMillis;
+        private long blockedCount;
+
+        @Setup(Level.Iteration)
+        public void setUp(ContentionBenchmark benchmark)
+                throws ReflectiveOperationException {
+            if (this.index < 0) {
+                this.index = benchmark.threads.getAndIncrement();
+            }
+            final int plugin = this.index % benchmark.plugins;
+            this.offset = (plugin * benchmark.classesPerPlugin + this.index)
+                % benchmark.names.length;
+            this.lookup = SyntheticPlugins.newLookup(benchmark.classLoader, plugin);
+            this.blockedMillis = ThreadMonitor.currentBlockedTime();
+            this.blockedCount = ThreadMonitor.currentBlockedCount();
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown(ContentionBenchmark benchmark) {
+            if (this.blockedMillis >= 0) {
+                benchmark.blockedMillis.add(
+                        ThreadMonitor.currentBlockedTime() - this.blockedMillis);
+            }
+            benchmark.blockedCount.add(
+                    ThreadMonitor.currentBlockedCount() - this.blockedCount);
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        this.syntheticPlugins = SyntheticPlugins.builder()
+                .plugins(this.plugins)
+                .classesPerPlugin(this.classesPerPlugin)
+                .crossReferences(this.crossReferences)
+                .generate();
+        this.names = this.syntheticPlugins.classNames();
+        this.monitor = ThreadMonitor.start(500);
+    }
+
+    @Setup(Level.Iteration)
+    public void deploy() {
+        this.classLoader = DelegateClassLoader.forPlugins(this.syntheticPlugins.urls(),
+                getClass().getClassLoader());
+    }
+
+    @TearDown(Level.Iteration)
+    public void undeploy() throws IOException {
+        this.classLoader.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.monitor.close();
+        System.out.println();
+        System.out.println(String.format("Blocked while entering monitors: %d ms "
+            + "(%d times)", this.blockedMillis.sum(), this.blockedCount.sum()));
+        for (final String deadlock : this.monitor.getDeadlocks()) {
+            System.out.println("Deadlock detected:");
+            System.out.println(deadlock);
+        }
+        this.syntheticPlugins.delete();
+    }
+
+    @Benchmark
+    public void loadAll(Loader loader, Blackhole blackhole) {
+        for (int i = 0; i < this.names.length; ++i) {
+            final String name = this.names[(loader.offset + i) % this.names.length];
+            blackhole.consume(loader.lookup.apply(name));
+        }
+    }
+}
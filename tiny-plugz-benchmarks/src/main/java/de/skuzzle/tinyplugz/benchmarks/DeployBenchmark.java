@@ -0,0 +1,131 @@
+package de.skuzzle.tinyplugz.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import de.skuzzle.tinyplugz.Options;
+import de.skuzzle.tinyplugz.TinyPlugz;
+import de.skuzzle.tinyplugz.TinyPlugzConfigurator;
+import de.skuzzle.tinyplugz.TinyPlugzConfigurator.DefineDeployHook;
+import de.skuzzle.tinyplugz.TinyPlugzConfigurator.DefineProperties;
+import de.skuzzle.tinyplugz.TinyPlugzConfigurator.DeployTinyPlugz;
+import de.skuzzle.tinyplugz.guice.TinyPlugzGuice;
+
+/**
+ * Measures deploying TinyPlugz with {@link SyntheticPlugins} from calling
+ * {@link TinyPlugzConfigurator#setup()} until
+ * {@link DeployTinyPlugz#deploy() deploy()} returns. Every iteration performs
+ * a single deployment which is undeployed afterwards.
+ * <p>
+ * JMH only reports the total time of a deployment. The time spent within
+ * the single phases is measured by {@link DeployPhases} during the
+ * measurement iterations and printed at the end of each trial, so that it
+ * covers the same deployments as the score reported by JMH.
+ * </p>
+ *
+ * @author Simon Taddiken
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class DeployBenchmark {
+
+    /** Either {@code default} or {@code guice}. */
+    @Param({ "default", "guice" })
+    public String implementation;
+
+    @Param({ "10", "100" })
+    public int plugins;
+
+    @Param({ "100" })
+    public int classesPerPlugin;
+
+    /** Additional resources per plugin to vary the size of the jars. */
+    @Param({ "0", "1000" })
+    public int resourcesPerPlugin;
+
+    /** Class-Path entries per plugin. */
+    @Param({ "0", "5" })
+    public int dependencies;
+
+    /** Total number of DeployListeners provided by the plugins. */
+    @Param({ "0", "10" })
+    public int deployListeners;
+
+    private SyntheticPlugins syntheticPlugins;
+    private DeployPhases phases;
+
+    @Setup
+    public void setUp() throws Exception {
+        if (!"default".equals(this.implementation)
+            && !"guice".equals(this.implementation)) {
+            throw new IllegalArgumentException("Unknown implementation: "
+                + this.implementation);
+        }
+        this.syntheticPlugins = SyntheticPlugins.builder()
+                .plugins(this.plugins)
+                .classesPerPlugin(this.classesPerPlugin)
+                .resourcesPerPlugin(this.resourcesPerPlugin)
+                .dependencies(this.dependencies)
+                .deployListeners(this.deployListeners)
+                .generate();
+        this.phases = new DeployPhases();
+    }
+
+    @Setup(Level.Iteration)
+    public void beginIteration(IterationParams iteration) {
+        this.phases.measure(iteration.getType() == IterationType.MEASUREMENT);
+    }
+
+    @TearDown(Level.Iteration)
+    public void undeploy() {
+        if (TinyPlugz.isDeployed()) {
+            TinyPlugz.getInstance().undeploy();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println();
+        System.out.println(this.phases);
+        this.syntheticPlugins.delete();
+    }
+
+    @Benchmark
+    public TinyPlugz deploy() {
+        this.phases.start();
+        final DefineProperties props = TinyPlugzConfigurator.setup();
+        ((DefineDeployHook) props).setDeployHook(this.phases);
+        if ("guice".equals(this.implementation)) {
+            props.withProperty(Options.FORCE_IMPLEMENTATION, TinyPlugzGuice.class)
+                    .withProperty(TinyPlugzGuice.INJECTOR_FACTORY, this.phases);
+        } else {
+            props.withProperty(Options.FORCE_DEFAULT);
+        }
+
+        final DeployTinyPlugz deploy = props.withPlugins(source ->
+                this.syntheticPlugins.urls().forEach(source::addPlugin));
+        this.phases.sourceBuilt();
+        final TinyPlugz tinyPlugz = deploy.deploy();
+        this.phases.finished();
+        return tinyPlugz;
+    }
+}
@@ -0,0 +1,127 @@
+package de.skuzzle.tinyplugz.benchmarks;
+
+import java.util.Map;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.Stage;
+
+import de.skuzzle.tinyplugz.DeployHook;
+import de.skuzzle.tinyplugz.TinyPlugz;
+import de.skuzzle.tinyplugz.guice.InjectorFactory;
+
+/**
+ * Measures the duration of the single phases of deploying TinyPlugz. The
+ * phases are separated by the callbacks of the {@link DeployHook} and, when
+ * using TinyPlugzGuice, by creating the Injector through this
+ * {@link InjectorFactory}. The durations are summed up over all deployments
+ * which are performed while {@link #measure(boolean) measuring}, so that
+ * warmup deployments do not distort the averages. The phases are:
+ * <ol>
+ * <li>Building the plugin source, from {@link #start()} until
+ * {@link #sourceBuilt()}.</li>
+ * <li>Creating the TinyPlugz instance and its ClassLoaders, until the
+ * Injector is created or, if there is none, until the instance has been
+ * created.</li>
+ * <li>Creating the Injector.</li>
+ * <li>Notifying the DeployListeners, until {@link #finished()}.</li>
+ * </ol>
+ *
+ * @author Simon Taddiken
+ */
+final class DeployPhases implements DeployHook, InjectorFactory {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private long start;
+    private long sourceBuilt;
+    private long instanceStart;
+    private long injectorStart;
+    private long injectorEnd;
+    private long deploymentStart;
+    private long listenersStart;
+
+    private boolean measuring;
+    private int deployments;
+    private long source;
+    private long classLoaders;
+    private long injector;
+    private long listeners;
+
+    /**
+     * Sets whether the following deployments are included in the averages.
+     *
+     * @param measuring Whether to include the following deployments.
+     */
+    void measure(boolean measuring) {
+        this.measuring = measuring;
+    }
+
+    /** Marks the begin of a deployment. */
+    void start() {
+        this.injectorStart = 0;
+        this.injectorEnd = 0;
+        this.start = System.nanoTime();
+    }
+
+    /** Marks that the plugin source has been built. */
+    void sourceBuilt() {
+        this.sourceBuilt = System.nanoTime();
+    }
+
+    @Override
+    public void beforeCreateInstance(Map<Object, Object> properties) {
+        this.instanceStart = System.nanoTime();
+    }
+
+    @Override
+    public Injector createInjector(Iterable<Module> modules, Map<Object, Object> props) {
+        this.injectorStart = System.nanoTime();
+        try {
+            return Guice.createInjector(Stage.PRODUCTION, modules);
+        } finally {
+            this.injectorEnd = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void beforeDeployment(TinyPlugz instance, Map<Object, Object> properties) {
+        this.deploymentStart = System.nanoTime();
+    }
+
+    @Override
+    public void beforeNotifyListener(TinyPlugz instance,
+            Map<Object, Object> properties) {
+        this.listenersStart = System.nanoTime();
+    }
+
+    /** Marks the end of a deployment. */
+    void finished() {
+        final long now = System.nanoTime();
+        if (!this.measuring) {
+            return;
+        }
+        this.source += this.sourceBuilt - this.start;
+        this.classLoaders += (this.injectorStart == 0
+                ? this.deploymentStart
+                : this.injectorStart) - this.instanceStart;
+        this.injector += this.injectorEnd - this.injectorStart;
+        this.listeners += now - this.listenersStart;
+        ++this.deployments;
+    }
+
+    private double average(long nanos) {
+        return this.deployments == 0
+                ? 0.0
+                : nanos / NANOS_PER_MILLI / this.deployments;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Average of %d measured deployments [ms]: source=%.3f, "
+            + "classLoaders=%.3f, injector=%.3f, listeners=%.3f",
+                this.deployments, average(this.source), average(this.classLoaders),
+                average(this.injector), average(this.listeners));
+    }
+}
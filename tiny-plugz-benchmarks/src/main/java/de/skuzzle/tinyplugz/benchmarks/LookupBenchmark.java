@@ -0,0 +1,177 @@
+package de.skuzzle.tinyplugz.benchmarks;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.skuzzle.tinyplugz.internal.DelegateClassLoader;
+
+/**
+ * Measures class and resource look ups within a deployment of
+ * {@link SyntheticPlugins}. Look ups from the application side are performed
+ * on the {@link DelegateClassLoader}, look ups from the plugin side are
+ * performed by the look up class of the first plugin. All classes are loaded
+ * once during setup, so the benchmarks measure the look up of already
+ * defined classes.
+ * <p>
+ * This class runs the benchmarks using a single thread. See
+ * {@link ConcurrentLookupBenchmark} for running them concurrently.
+ * </p>
+ *
+ * @author Simon Taddiken
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    @Param({ "10", "100" })
+    public int plugins;
+
+    @Param({ "100" })
+    public int classesPerPlugin;
+
+    @Param({ "10" })
+    public int crossReferences;
+
+    private SyntheticPlugins syntheticPlugins;
+    private DelegateClassLoader classLoader;
+    private Function<String, Class<?>> pluginLookup;
+
+    /** Classes of all plugins. */
+    private String[] classes;
+    /** Classes of all plugins except the first one. */
+    private String[] foreignClasses;
+    /** Classes of the first plugin. */
+    private String[] ownClasses;
+    /** Resources of all plugins. */
+    private String[] resources;
+    private String[] missingClasses;
+    private String[] missingResources;
+
+    /**
+     * Selects the names to look up. Each thread cycles through the names on
+     * its own.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String nextOf(String[] names) {
+            final int i = this.next++ & Integer.MAX_VALUE;
+            return names[i % names.length];
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        if (this.plugins < 2) {
+            throw new IllegalArgumentException("at least two plugins are required");
+        }
+        this.syntheticPlugins = SyntheticPlugins.generate(this.plugins,
+                this.classesPerPlugin, this.crossReferences);
+        this.classLoader = DelegateClassLoader.forPlugins(
+                this.syntheticPlugins.urls(), getClass().getClassLoader());
+
+        this.classes = new String[this.plugins * this.classesPerPlugin];
+        this.foreignClasses = new String[(this.plugins - 1) * this.classesPerPlugin];
+        this.ownClasses = new String[this.classesPerPlugin];
+        this.resources = new String[this.plugins];
+        this.missingClasses = new String[this.plugins];
+        this.missingResources = new String[this.plugins];
+        for (int i = 0; i < this.plugins; ++i) {
+            for (int j = 0; j < this.classesPerPlugin; ++j) {
+                final String name = SyntheticPlugins.className(i, j);
+                this.classes[i * this.classesPerPlugin + j] = name;
+                if (i == 0) {
+                    this.ownClasses[j] = name;
+                } else {
+                    this.foreignClasses[(i - 1) * this.classesPerPlugin + j] = name;
+                }
+            }
+            this.resources[i] = SyntheticPlugins.resourceName(i);
+            this.missingClasses[i] = SyntheticPlugins.packageOf(i) + ".Missing";
+            this.missingResources[i] = SyntheticPlugins.packageOf(i) + "/missing.txt";
+        }
+
+        this.pluginLookup = SyntheticPlugins.newLookup(this.classLoader, 0);
+
+        // define all classes up front
+        for (final String name : this.classes) {
+            this.classLoader.loadClass(name);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.classLoader.close();
+        this.syntheticPlugins.delete();
+    }
+
+    @Benchmark
+    public Class<?> applicationClassHit(Cursor cursor) throws ClassNotFoundException {
+        return this.classLoader.loadClass(cursor.nextOf(this.classes));
+    }
+
+    @Benchmark
+    public Object applicationClassMiss(Cursor cursor) {
+        try {
+            return this.classLoader.loadClass(cursor.nextOf(this.missingClasses));
+        } catch (final ClassNotFoundException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Class<?> pluginOwnClassHit(Cursor cursor) {
+        return this.pluginLookup.apply(cursor.nextOf(this.ownClasses));
+    }
+
+    @Benchmark
+    public Class<?> pluginCrossClassHit(Cursor cursor) {
+        return this.pluginLookup.apply(cursor.nextOf(this.foreignClasses));
+    }
+
+    @Benchmark
+    public Class<?> pluginClassMiss(Cursor cursor) {
+        return this.pluginLookup.apply(cursor.nextOf(this.missingClasses));
+    }
+
+    @Benchmark
+    public URL applicationResourceHit(Cursor cursor) {
+        return this.classLoader.getResource(cursor.nextOf(this.resources));
+    }
+
+    @Benchmark
+    public URL applicationResourceMiss(Cursor cursor) {
+        return this.classLoader.getResource(cursor.nextOf(this.missingResources));
+    }
+
+    @Benchmark
+    public void applicationResources(Blackhole blackhole) throws IOException {
+        final Enumeration<URL> urls = this.classLoader.getResources(
+                SyntheticPlugins.COMMON_RESOURCE);
+        while (urls.hasMoreElements()) {
+            blackhole.consume(urls.nextElement());
+        }
+    }
+}
@@ -0,0 +1,553 @@
+package de.skuzzle.tinyplugz.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import de.skuzzle.tinyplugz.DeployListener;
+import de.skuzzle.tinyplugz.TinyPlugz;
+
+/**
+ * Generates plugin jars for the benchmarks. Every plugin {@code i} consists of
+ * the package {@code plugin<i>} which contains the classes {@code C0} to
+ * {@code C<n-1>}, the same number of base classes {@code B0} to
+ * {@code B<n-1>} and a {@link #lookupName(int) look up class}. Additionally,
+ * each plugin contains the resource {@code plugin<i>/data.txt} and the
+ * resource {@value #COMMON_RESOURCE} which is present in every plugin.
+ * <p>
+ * The first {@code crossReferences} classes {@code C<j>} of each plugin
+ * extend the class {@code B<j>} of the next plugin, while the classes of the
+ * last plugin refer to the first plugin. Thus, loading such a class requires
+ * a cross plugin look up and the plugins reference each other circularly.
+ * </p>
+ *
+ * @author Simon Taddiken
+ */
+public final class SyntheticPlugins {
+
+    /** Name of the resource which is contained in every plugin. */
+    public static final String COMMON_RESOURCE = "common.txt";
+
+    private final Path directory;
+    private final int plugins;
+    private final int classesPerPlugin;
+    private final int crossReferences;
+    private final List<URL> urls;
+
+    private SyntheticPlugins(Path directory, int plugins, int classesPerPlugin,
+            int crossReferences, List<URL> urls) {
+        this.directory = directory;
+        this.plugins = plugins;
+        this.classesPerPlugin = classesPerPlugin;
+        this.crossReferences = crossReferences;
+        this.urls = urls;
+    }
+
+    /**
+     * Creates a builder for specifying the dimensions of the plugins to
+     * generate.
+     *
+     * @return The builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Generates and compiles the plugins into a new temporary directory. This
+     * requires the benchmarks to be run on a JDK.
+     *
+     * @param plugins The number of plugins to create.
+     * @param classesPerPlugin The number of classes {@code C<j>} per plugin.
+     * @param crossReferences The number of classes per plugin which extend a
+     *            class of the next plugin.
+     * @return The generated plugins.
+     * @throws IOException If writing the plugins fails.
+     */
+    public static SyntheticPlugins generate(int plugins, int classesPerPlugin,
+            int crossReferences) throws IOException {
+        return builder()
+                .plugins(plugins)
+                .classesPerPlugin(classesPerPlugin)
+                .crossReferences(crossReferences)
+                .generate();
+    }
+
+    /**
+     * Specifies the dimensions of the plugins to generate. Besides the
+     * classes described in {@link SyntheticPlugins}, each plugin can contain
+     * additional resources, declare dependencies in its manifest's
+     * {@code Class-Path} attribute and provide {@link DeployListener}
+     * implementations.
+     *
+     * @author Simon Taddiken
+     */
+    public static final class Builder {
+
+        private int plugins = 1;
+        private int classesPerPlugin = 1;
+        private int crossReferences;
+        private int resourcesPerPlugin;
+        private int dependencies;
+        private int deployListeners;
+
+        private Builder() {
+            // use SyntheticPlugins.builder()
+        }
+
+        /**
+         * Sets the number of plugins. Defaults to 1.
+         *
+         * @param plugins The number of plugins.
+         * @return This builder.
+         */
+        public Builder plugins(int plugins) {
+            this.plugins = plugins;
+            return this;
+        }
+
+        /**
+         * Sets the number of classes {@code C<j>} per plugin. Defaults to 1.
+         *
+         * @param classesPerPlugin The number of classes.
+         * @return This builder.
+         */
+        public Builder classesPerPlugin(int classesPerPlugin) {
+            this.classesPerPlugin = classesPerPlugin;
+            return this;
+        }
+
+        /**
+         * Sets the number of classes per plugin which extend a class of the
+         * next plugin. Defaults to 0.
+         *
+         * @param crossReferences The number of cross references.
+         * @return This builder.
+         */
+        public Builder crossReferences(int crossReferences) {
+            this.crossReferences = crossReferences;
+            return this;
+        }
+
+        /**
+         * Sets the number of additional resources {@code plugin<i>/r<k>.txt}
+         * per plugin. Defaults to 0.
+         *
+         * @param resourcesPerPlugin The number of resources.
+         * @return This builder.
+         */
+        public Builder resourcesPerPlugin(int resourcesPerPlugin) {
+            this.resourcesPerPlugin = resourcesPerPlugin;
+            return this;
+        }
+
+        /**
+         * Sets the number of dependency jars each plugin lists in its
+         * manifest's {@code Class-Path} attribute. Every dependency contains a
+         * single class and is only used by a single plugin. Defaults to 0.
+         *
+         * @param dependencies The number of dependencies per plugin.
+         * @return This builder.
+         */
+        public Builder dependencies(int dependencies) {
+            this.dependencies = dependencies;
+            return this;
+        }
+
+        /**
+         * Sets the total number of {@link DeployListener} implementations.
+         * The listeners are distributed evenly over the plugins and do
+         * nothing when being notified. Defaults to 0.
+         *
+         * @param deployListeners The number of listeners.
+         * @return This builder.
+         */
+        public Builder deployListeners(int deployListeners) {
+            this.deployListeners = deployListeners;
+            return this;
+        }
+
+        /**
+         * Generates and compiles the plugins into a new temporary directory.
+         * This requires the benchmarks to be run on a JDK.
+         *
+         * @return The generated plugins.
+         * @throws IOException If writing the plugins fails.
+         */
+        public SyntheticPlugins generate() throws IOException {
+            if (this.plugins < 1 || this.classesPerPlugin < 1
+                || this.crossReferences < 0
+                || this.crossReferences > this.classesPerPlugin
+                || this.resourcesPerPlugin < 0 || this.dependencies < 0
+                || this.deployListeners < 0) {
+                throw new IllegalArgumentException(String.format(
+                        "invalid dimensions: plugins=%d, classes=%d, "
+                            + "crossReferences=%d, resources=%d, dependencies=%d, "
+                            + "deployListeners=%d",
+                        this.plugins, this.classesPerPlugin, this.crossReferences,
+                        this.resourcesPerPlugin, this.dependencies,
+                        this.deployListeners));
+            }
+            final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+            if (compiler == null) {
+                throw new IllegalStateException("Benchmarks must be run using a JDK");
+            }
+
+            final Path directory = Files.createTempDirectory("tiny-plugz-benchmark");
+            final Path sources = directory.resolve("src");
+            final Path classes = directory.resolve("classes");
+            Files.createDirectories(classes);
+
+            final List<String> files = new ArrayList<>();
+            for (int i = 0; i < this.plugins; ++i) {
+                final String pkg = packageOf(i);
+                final Path pkgDir = sources.resolve(pkg);
+                Files.createDirectories(pkgDir);
+                for (int j = 0; j < this.classesPerPlugin; ++j) {
+                    final String superClass = j < this.crossReferences
+                            ? " extends " + packageOf((i + 1) % this.plugins) + ".B" + j
+                            : "";
+                    files.add(write(pkgDir.resolve("C" + j + ".java"),
+                            "package " + pkg + ";\n"
+                                + "public class C" + j + superClass + " {}\n"));
+                    files.add(write(pkgDir.resolve("B" + j + ".java"),
+                            "package " + pkg + ";\n"
+                                + "public class B" + j + " {}\n"));
+                }
+                files.add(write(pkgDir.resolve("Lookup.java"), lookupSource(i)));
+                for (int k = i; k < this.deployListeners; k += this.plugins) {
+                    files.add(write(pkgDir.resolve("Listener" + k + ".java"),
+                            listenerSource(i, k)));
+                }
+                for (int k = 0; k < this.dependencies; ++k) {
+                    final Path depDir = pkgDir.resolve("dep" + k);
+                    Files.createDirectories(depDir);
+                    files.add(write(depDir.resolve("D.java"),
+                            "package " + pkg + ".dep" + k + ";\n"
+                                + "public class D {}\n"));
+                }
+            }
+
+            final List<String> args = new ArrayList<>(Arrays.asList(
+                    "-nowarn", "-proc:none", "-d", classes.toString()));
+            if (this.deployListeners > 0) {
+                args.add("-classpath");
+                args.add(locationOf(DeployListener.class).toString());
+            }
+            args.addAll(files);
+            if (compiler.run(null, null, null,
+                    args.toArray(new String[args.size()])) != 0) {
+                throw new IllegalStateException("Compiling synthetic plugins failed");
+            }
+
+            final Path lib = directory.resolve("lib");
+            Files.createDirectories(lib);
+            final List<URL> urls = new ArrayList<>(this.plugins);
+            for (int i = 0; i < this.plugins; ++i) {
+                final String pkg = packageOf(i);
+                final Manifest manifest = newManifest();
+                final StringBuilder classPath = new StringBuilder();
+                for (int k = 0; k < this.dependencies; ++k) {
+                    final String depJar = pkg + "-dep" + k + ".jar";
+                    try (JarOutputStream jarOut = openJar(lib.resolve(depJar),
+                            newManifest())) {
+                        addClasses(jarOut, pkg + "/dep" + k,
+                                classes.resolve(pkg).resolve("dep" + k));
+                    }
+                    classPath.append(classPath.length() == 0 ? "" : " ")
+                            .append("lib/").append(depJar);
+                }
+                if (classPath.length() > 0) {
+                    manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH,
+                            classPath.toString());
+                }
+
+                final Path jar = directory.resolve(pkg + ".jar");
+                try (JarOutputStream jarOut = openJar(jar, manifest)) {
+                    addClasses(jarOut, pkg, classes.resolve(pkg));
+                    addEntry(jarOut, resourceName(i), pkg);
+                    addEntry(jarOut, COMMON_RESOURCE, pkg);
+                    for (int k = 0; k < this.resourcesPerPlugin; ++k) {
+                        addEntry(jarOut, pkg + "/r" + k + ".txt", pkg + k);
+                    }
+                    final StringBuilder listeners = new StringBuilder();
+                    for (int k = i; k < this.deployListeners; k += this.plugins) {
+                        listeners.append(pkg).append(".Listener").append(k)
+                                .append("\n");
+                    }
+                    if (listeners.length() > 0) {
+                        addEntry(jarOut, "META-INF/services/"
+                            + DeployListener.class.getName(), listeners.toString());
+                    }
+                }
+                urls.add(jar.toUri().toURL());
+            }
+            deleteRecursively(sources);
+            deleteRecursively(classes);
+            return new SyntheticPlugins(directory, this.plugins, this.classesPerPlugin,
+                    this.crossReferences, urls);
+        }
+    }
+
+    private static Path locationOf(Class<?> type) {
+        try {
+            return Paths.get(type.getProtectionDomain().getCodeSource().getLocation()
+                    .toURI());
+        } catch (final URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String lookupSource(int plugin) {
+        return "package " + packageOf(plugin) + ";\n"
+            + "public final class Lookup implements "
+            + "java.util.function.Function<String, Class<?>> {\n"
+            + "    @Override\n"
+            + "    public Class<?> apply(String name) {\n"
+            + "        try {\n"
+            + "            return Lookup.class.getClassLoader().loadClass(name);\n"
+            + "        } catch (ClassNotFoundException e) {\n"
+            + "            return null;\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n";
+    }
+
+    private static String write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file.toString();
+    }
+
+    private static String listenerSource(int plugin, int listener) {
+        return "package " + packageOf(plugin) + ";\n"
+            + "public final class Listener" + listener + " implements "
+            + DeployListener.class.getName() + " {\n"
+            + "    @Override\n"
+            + "    public void initialized(" + TinyPlugz.class.getName() + " tinyPlugz,\n"
+            + "            java.util.Map<Object, Object> properties) {}\n"
+            + "}\n";
+    }
+
+    private static Manifest newManifest() {
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        return manifest;
+    }
+
+    private static JarOutputStream openJar(Path jar, Manifest manifest)
+            throws IOException {
+        return new JarOutputStream(Files.newOutputStream(jar), manifest);
+    }
+
+    private static void addClasses(JarOutputStream jarOut, String pkg, Path classes)
+            throws IOException {
+        final List<Path> files;
+        try (Stream<Path> stream = Files.list(classes)) {
+            files = stream.filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (final Path file : files) {
+            jarOut.putNextEntry(new JarEntry(pkg + "/" + file.getFileName()));
+            Files.copy(file, jarOut);
+            jarOut.closeEntry();
+        }
+    }
+
+    private static void addEntry(JarOutputStream jarOut, String name, String content)
+            throws IOException {
+        jarOut.putNextEntry(new JarEntry(name));
+        jarOut.write(content.getBytes(StandardCharsets.UTF_8));
+        jarOut.closeEntry();
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                    throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc)
+                    throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Name of the package which contains the classes of the given plugin.
+     *
+     * @param plugin Index of the plugin.
+     * @return The package name.
+     */
+    public static String packageOf(int plugin) {
+        return "plugin" + plugin;
+    }
+
+    /**
+     * Full qualified name of the class {@code C<cls>} of the given plugin.
+     *
+     * @param plugin Index of the plugin.
+     * @param cls Index of the class.
+     * @return The class name.
+     */
+    public static String className(int plugin, int cls) {
+        return packageOf(plugin) + ".C" + cls;
+    }
+
+    /**
+     * Full qualified name of the given plugin's look up class. The class
+     * implements {@code Function<String, Class<?>>} and loads the class with
+     * the given name using the plugin's ClassLoader. It returns {@code null}
+     * if the class can not be found.
+     *
+     * @param plugin Index of the plugin.
+     * @return The class name.
+     */
+    public static String lookupName(int plugin) {
+        return packageOf(plugin) + ".Lookup";
+    }
+
+    /**
+     * Name of the resource which is only contained in the given plugin.
+     *
+     * @param plugin Index of the plugin.
+     * @return The resource name.
+     */
+    public static String resourceName(int plugin) {
+        return packageOf(plugin) + "/data.txt";
+    }
+
+    /**
+     * Full qualified names of the classes {@code C<j>} of all plugins, ordered
+     * by plugin index.
+     *
+     * @return The class names.
+     */
+    public String[] classNames() {
+        final String[] result = new String[this.plugins * this.classesPerPlugin];
+        for (int i = 0; i < this.plugins; ++i) {
+            for (int j = 0; j < this.classesPerPlugin; ++j) {
+                result[i * this.classesPerPlugin + j] = className(i, j);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates an instance of the given plugin's {@link #lookupName(int) look up
+     * class}.
+     *
+     * @param classLoader The ClassLoader which provides access to the
+     *            plugins.
+     * @param plugin Index of the plugin.
+     * @return The look up.
+     * @throws ReflectiveOperationException If the look up class can not be
+     *             instantiated.
+     */
+    public static Function<String, Class<?>> newLookup(ClassLoader classLoader,
+            int plugin) throws ReflectiveOperationException {
+        @SuppressWarnings("unchecked")
+        final Function<String, Class<?>> lookup = (Function<String, Class<?>>)
+                classLoader.loadClass(lookupName(plugin)).getConstructor()
+                        .newInstance();
+        return lookup;
+    }
+
+    /**
+     * URLs of the generated plugin jars, ordered by plugin index.
+     *
+     * @return The URLs.
+     */
+    public List<URL> getURLs() {
+        return this.urls;
+    }
+
+    /**
+     * Stream of the URLs of the generated plugin jars.
+     *
+     * @return The URLs.
+     */
+    public Stream<URL> urls() {
+        return this.urls.stream();
+    }
+
+    /**
+     * Directory which contains the plugin jars.
+     *
+     * @return The directory.
+     */
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * The number of generated plugins.
+     *
+     * @return The number of plugins.
+     */
+    public int getPlugins() {
+        return this.plugins;
+    }
+
+    /**
+     * The number of classes {@code C<j>} per plugin.
+     *
+     * @return The number of classes.
+     */
+    public int getClassesPerPlugin() {
+        return this.classesPerPlugin;
+    }
+
+    /**
+     * The number of classes per plugin which extend a class of the next
+     * plugin.
+     *
+     * @return The number of cross references.
+     */
+    public int getCrossReferences() {
+        return this.crossReferences;
+    }
+
+    /**
+     * Deletes the generated plugins. The ClassLoaders of the plugins should be
+     * closed before.
+     */
+    public void delete() {
+        try {
+            deleteRecursively(this.directory);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package de.skuzzle.tinyplugz.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Observes the threads of the JVM using the {@link ThreadMXBean}. While
+ * running, the monitor periodically checks for deadlocked threads and
+ * remembers their stack traces. Additionally, it provides the time threads
+ * spent blocked while entering monitors, which is where class loading
+ * threads wait for each other.
+ *
+ * @author Simon Taddiken
+ */
+public final class ThreadMonitor implements AutoCloseable {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final int MAX_STACK_DEPTH = 64;
+
+    private final Thread thread;
+    private final long intervalMillis;
+    private final List<String> deadlocks;
+    private volatile boolean running;
+
+    private ThreadMonitor(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+        this.deadlocks = Collections.synchronizedList(new ArrayList<>());
+        this.running = true;
+        this.thread = new Thread(this::run, "tiny-plugz-thread-monitor");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Enables thread contention monitoring and starts a new monitor which
+     * checks for deadlocks in the given interval.
+     *
+     * @param intervalMillis The interval in milliseconds.
+     * @return The running monitor.
+     */
+    public static ThreadMonitor start(long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        if (THREADS.isThreadContentionMonitoringSupported()) {
+            THREADS.setThreadContentionMonitoringEnabled(true);
+        }
+        final ThreadMonitor monitor = new ThreadMonitor(intervalMillis);
+        monitor.thread.start();
+        return monitor;
+    }
+
+    private void run() {
+        while (this.running) {
+            checkDeadlocks();
+            try {
+                Thread.sleep(this.intervalMillis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks for deadlocked threads immediately. The stack traces of
+     * deadlocked threads are recorded and can be obtained using
+     * {@link #getDeadlocks()}.
+     *
+     * @return Whether a deadlock has been detected by this call.
+     */
+    public boolean checkDeadlocks() {
+        final long[] ids = THREADS.findDeadlockedThreads();
+        if (ids == null) {
+            return false;
+        }
+        final StringBuilder b = new StringBuilder();
+        for (final ThreadInfo info : THREADS.getThreadInfo(ids, MAX_STACK_DEPTH)) {
+            if (info != null) {
+                b.append(info.getThreadName()).append(" waiting for ")
+                        .append(info.getLockName()).append(" held by ")
+                        .append(info.getLockOwnerName()).append("\n");
+                for (final StackTraceElement element : info.getStackTrace()) {
+                    b.append("\tat ").append(element).append("\n");
+                }
+            }
+        }
+        synchronized (this.deadlocks) {
+            if (!this.deadlocks.contains(b.toString())) {
+                this.deadlocks.add(b.toString());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Descriptions of all deadlocks that have been detected so far.
+     *
+     * @return A copy of the recorded deadlocks.
+     */
+    public List<String> getDeadlocks() {
+        synchronized (this.deadlocks) {
+            return new ArrayList<>(this.deadlocks);
+        }
+    }
+
+    /**
+     * Total time in milliseconds the current thread has been blocked while
+     * entering a monitor.
+     *
+     * @return The blocked time or -1 if contention monitoring is not
+     *         supported.
+     */
+    public static long currentBlockedTime() {
+        return THREADS.getThreadInfo(Thread.currentThread().getId()).getBlockedTime();
+    }
+
+    /**
+     * Number of times the current thread has been blocked while entering a
+     * monitor.
+     *
+     * @return The blocked count.
+     */
+    public static long currentBlockedCount() {
+        return THREADS.getThreadInfo(Thread.currentThread().getId()).getBlockedCount();
+    }
+
+    @Override
+    public void close() {
+        this.running = false;
+        this.thread.interrupt();
+        checkDeadlocks();
+    }
+}
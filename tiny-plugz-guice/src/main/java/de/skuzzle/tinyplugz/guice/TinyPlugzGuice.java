@@ -263,7 +263,8 @@ public final class TinyPlugzGuice extends TinyPlugz {
         this.getServiceStrategy = getGetServiceStrategy(properties);
         LOG.debug("Service strategy: {}", this.getServiceStrategy);
 
-        this.pluginClassLoader = createClassLoader(source, parentClassLoader);
+        this.pluginClassLoader = createClassLoader(source, parentClassLoader,
+                properties);
 
         if (properties.containsKey(Options.SERVICE_LOADER_WRAPPER)) {
             this.serviceLoader = ReflectionUtil.createInstance(
@@ -329,6 +330,9 @@ public final class TinyPlugzGuice extends TinyPlugz {
 
     @Override
     protected final void dispose() {
+        // singletons might still load classes from their plugins while being
+        // closed, so they are disposed before the plugins are closed
+        this.serviceLoader.invalidate(this.pluginClassLoader);
         defaultDispose();
     }
 
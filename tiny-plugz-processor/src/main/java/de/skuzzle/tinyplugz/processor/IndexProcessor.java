@@ -0,0 +1,206 @@
+package de.skuzzle.tinyplugz.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import de.skuzzle.tinyplugz.internal.BuildIndex;
+
+/**
+ * Annotation processor which writes a {@link BuildIndex} of the compiled
+ * plugin to {@value BuildIndex#LOCATION}. When the plugin is deployed,
+ * TinyPlugz reads this index instead of enumerating all entries of the
+ * plugin's jar.
+ * <p>
+ * The processor is run for every compilation by adding this module to the
+ * compiler's class path or processor path. Packages are taken from the
+ * compiled sources and from the class files already present in the class
+ * output directory. Resources and service declarations are taken from the
+ * class output directory, into which Maven copies the resources before
+ * compiling. If resources are kept elsewhere, the additional directories can
+ * be passed as a list separated by the platform's path separator using the
+ * {@value #RESOURCE_DIRS} option.
+ * </p>
+ * <p>
+ * The index must describe the whole contents of the plugin. Thus, it must not
+ * be used for plugins whose jar is modified after compilation, for example
+ * by shading other jars into it. Entries below {@code META-INF} which are
+ * added while packaging, like the manifest, need not be listed.
+ * </p>
+ * <p>
+ * As the order in which annotation processors are run is unspecified, the
+ * index might miss classes and service declarations which other processors
+ * generate in their last round. For example, AutoService declares its services
+ * in that round. TinyPlugz therefore still searches a plugin with an index for
+ * classes of packages and for services which the index does not list.
+ * </p>
+ *
+ * @author Simon Taddiken
+ * @since 0.4.0
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions(IndexProcessor.RESOURCE_DIRS)
+public final class IndexProcessor extends AbstractProcessor {
+
+    /** Processor option for specifying additional resource directories. */
+    public static final String RESOURCE_DIRS = "tinyplugz.resourceDirs";
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String META_INF = "META-INF/";
+    private static final String SERVICES = "META-INF/services/";
+
+    private static final Pattern PATH_SEPARATOR = Pattern.compile(
+            Pattern.quote(java.io.File.pathSeparator));
+
+    private final Set<String> packages = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations,
+            RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        } else {
+            for (final Element element : roundEnv.getRootElements()) {
+                this.packages.add(this.processingEnv.getElementUtils()
+                        .getPackageOf(element).getQualifiedName().toString());
+            }
+        }
+        // never claim any annotations
+        return false;
+    }
+
+    private void writeIndex() {
+        try {
+            final FileObject file = this.processingEnv.getFiler().createResource(
+                    StandardLocation.CLASS_OUTPUT, "", BuildIndex.LOCATION);
+            final Path classOutput = classOutputOf(file.toUri());
+            if (classOutput == null) {
+                warn("Can not determine class output directory from '%s'. "
+                    + "No index will be written", file.toUri());
+                return;
+            }
+
+            final Set<String> resources = new HashSet<>();
+            final Map<String, Collection<String>> services = new TreeMap<>();
+            scan(classOutput, resources, services);
+            final String resourceDirs = this.processingEnv.getOptions().get(
+                    RESOURCE_DIRS);
+            if (resourceDirs != null && !resourceDirs.trim().isEmpty()) {
+                for (final String dir : PATH_SEPARATOR.split(resourceDirs.trim())) {
+                    scan(Paths.get(dir), resources, services);
+                }
+            }
+
+            final BuildIndex index = new BuildIndex(this.packages, resources,
+                    services);
+            try (OutputStream out = file.openOutputStream()) {
+                index.writeTo(out);
+            }
+            this.processingEnv.getMessager().printMessage(Kind.NOTE,
+                    String.format("Wrote TinyPlugz %s", index));
+        } catch (final IOException | RuntimeException e) {
+            this.processingEnv.getMessager().printMessage(Kind.ERROR,
+                    String.format("Error while writing TinyPlugz index: %s", e));
+        }
+    }
+
+    private static Path classOutputOf(URI indexUri) {
+        if (!"file".equals(indexUri.getScheme())) {
+            return null;
+        }
+        Path root = Paths.get(indexUri);
+        // strip the index location's segments
+        for (int i = 0; i < BuildIndex.LOCATION.split("/").length; ++i) {
+            root = root.getParent();
+        }
+        return root;
+    }
+
+    private void scan(Path root, Set<String> resources,
+            Map<String, Collection<String>> services) throws IOException {
+        if (!Files.isDirectory(root)) {
+            warn("Skipping '%s' because it is not a directory", root);
+            return;
+        }
+        final Collection<Path> files;
+        try (Stream<Path> stream = Files.walk(root)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        for (final Path file : files) {
+            final String entry = root.relativize(file).toString()
+                    .replace(file.getFileSystem().getSeparator(), "/");
+            if (BuildIndex.LOCATION.equals(entry)) {
+                continue;
+            } else if (entry.endsWith(CLASS_SUFFIX) && !entry.startsWith(META_INF)
+                && !"module-info.class".equals(entry)) {
+                final int lastSlash = entry.lastIndexOf('/');
+                this.packages.add(lastSlash == -1
+                        ? ""
+                        : entry.substring(0, lastSlash).replace('/', '.'));
+                continue;
+            }
+
+            resources.add(entry);
+            if (entry.startsWith(SERVICES)
+                && entry.indexOf('/', SERVICES.length()) == -1) {
+                final String serviceName = entry.substring(SERVICES.length());
+                services.computeIfAbsent(serviceName, k -> new LinkedHashSet<>())
+                        .addAll(readProviders(file));
+            }
+        }
+    }
+
+    private static Collection<String> readProviders(Path config) throws IOException {
+        final Collection<String> result = new LinkedHashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(config,
+                StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    result.add(line);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void warn(String format, Object... args) {
+        this.processingEnv.getMessager().printMessage(Kind.WARNING,
+                String.format(format, args));
+    }
+}
@@ -0,0 +1,147 @@
+package de.skuzzle.tinyplugz.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.skuzzle.tinyplugz.TinyPlugz;
+import de.skuzzle.tinyplugz.TinyPlugzConfigurator;
+import de.skuzzle.tinyplugz.internal.BuildIndex;
+
+public class IndexProcessorTest {
+
+    /** Declares a service in the last round, like AutoService does. */
+    @SupportedAnnotationTypes("*")
+    public static class LateServiceProcessor extends AbstractProcessor {
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations,
+                RoundEnvironment roundEnv) {
+            if (roundEnv.processingOver()) {
+                try (Writer writer = this.processingEnv.getFiler().createResource(
+                        StandardLocation.CLASS_OUTPUT, "",
+                        "META-INF/services/java.lang.Runnable").openWriter()) {
+                    writer.write("com.foo.Service\n");
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return false;
+        }
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File write(File root, String path, String content) throws Exception {
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private void compile(File output, List<? extends Processor> processors,
+            File... sources) throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(
+                null, null, StandardCharsets.UTF_8)) {
+            final CompilationTask task = compiler.getTask(null, fileManager, null,
+                    Arrays.asList("-d", output.getPath()), null,
+                    fileManager.getJavaFileObjects(sources));
+            task.setProcessors(processors);
+            assertTrue(task.call());
+        }
+    }
+
+    private BuildIndex readIndex(File output) throws Exception {
+        try (InputStream in = Files.newInputStream(
+                new File(output, BuildIndex.LOCATION).toPath())) {
+            return BuildIndex.readFrom(in);
+        }
+    }
+
+    @Test
+    public void testWriteIndex() throws Exception {
+        final File sources = this.folder.newFolder("src");
+        final File output = this.folder.newFolder("classes");
+        final File service = write(sources, "com/foo/Service.java",
+                "package com.foo; public class Service implements Runnable { "
+                    + "public void run() {} }");
+        final File defaultPackage = write(sources, "Default.java",
+                "public class Default {}");
+        write(output, "com/foo/messages.properties", "");
+        write(output, "META-INF/services/java.lang.Runnable",
+                "# comment\ncom.foo.Service\n");
+
+        compile(output, Collections.singletonList(new IndexProcessor()), service,
+                defaultPackage);
+
+        final BuildIndex index = readIndex(output);
+        assertEquals(new HashSet<>(Arrays.asList("com.foo", "")), index.getPackages());
+        assertEquals(new HashSet<>(Arrays.asList("com/foo/messages.properties",
+                "META-INF/services/java.lang.Runnable")), index.getResources());
+        assertEquals(Collections.singletonMap("java.lang.Runnable",
+                Arrays.asList("com.foo.Service")), index.getServices());
+    }
+
+    @Test
+    public void testServiceDeclaredInLastRound() throws Exception {
+        final File sources = this.folder.newFolder("src");
+        final File output = this.folder.newFolder("classes");
+        final File service = write(sources, "com/foo/Service.java",
+                "package com.foo; public class Service implements Runnable { "
+                    + "public void run() {} }");
+
+        compile(output, Arrays.asList(new IndexProcessor(), new LateServiceProcessor()),
+                service);
+
+        // the index has been written before the service has been declared
+        assertFalse(readIndex(output).getServices().containsKey("java.lang.Runnable"));
+        TinyPlugzConfigurator.setup()
+                .withPlugins(source -> source.addUnpackedPlugin(output.toPath()))
+                .deploy();
+        try {
+            final Iterator<Runnable> it = TinyPlugz.getInstance()
+                    .getServices(Runnable.class);
+            assertEquals("com.foo.Service", it.next().getClass().getName());
+            assertFalse(it.hasNext());
+        } finally {
+            TinyPlugz.getInstance().undeploy();
+        }
+    }
+}
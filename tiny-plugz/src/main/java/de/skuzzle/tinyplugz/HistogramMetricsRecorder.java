@@ -0,0 +1,296 @@
+package de.skuzzle.tinyplugz;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.skuzzle.tinyplugz.util.Require;
+
+/**
+ * Reference implementation of {@link MetricsRecorder} which collects the
+ * durations of all measured operations in memory. Durations are counted in
+ * {@link Histogram histograms} with buckets of exponentially growing size.
+ * Recording does not block concurrently recording threads. It only allocates
+ * while the internal counters grow under contention.
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * final HistogramMetricsRecorder metrics = new HistogramMetricsRecorder();
+ * TinyPlugzConfigurator.setup()
+ *         .withProperty(Options.METRICS_RECORDER, metrics)
+ *         ...
+ *         .deploy();
+ *
+ * System.out.println(metrics.getClassLookups());
+ * </pre>
+ *
+ * @author Simon Taddiken
+ * @since 0.4.0
+ */
+public final class HistogramMetricsRecorder implements MetricsRecorder {
+
+    /**
+     * Counts durations in buckets. Bucket {@code i} contains all durations
+     * {@code d} with {@code 2^(i-1) <= d < 2^i} nano seconds. Bucket
+     * {@code 0} contains durations of zero nano seconds.
+     *
+     * @author Simon Taddiken
+     * @since 0.4.0
+     */
+    public static final class Histogram {
+
+        /**
+         * Number of buckets, one for zero plus one for each of the 63 value bits
+         * of a non-negative long.
+         */
+        private static final int BUCKETS = 64;
+
+        private final AtomicLongArray buckets;
+        private final LongAdder count;
+        private final LongAdder totalNanos;
+        private final LongAccumulator maxNanos;
+
+        private Histogram() {
+            this.buckets = new AtomicLongArray(BUCKETS);
+            this.count = new LongAdder();
+            this.totalNanos = new LongAdder();
+            this.maxNanos = new LongAccumulator(Math::max, 0L);
+        }
+
+        private void record(long nanos) {
+            final long value = Math.max(0L, nanos);
+            this.buckets.incrementAndGet(bucketOf(value));
+            this.count.increment();
+            this.totalNanos.add(value);
+            this.maxNanos.accumulate(value);
+        }
+
+        private static int bucketOf(long nanos) {
+            return Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(nanos));
+        }
+
+        /**
+         * Gets the number of recorded durations.
+         *
+         * @return The count.
+         */
+        public long getCount() {
+            return this.count.sum();
+        }
+
+        /**
+         * Gets the sum of all recorded durations.
+         *
+         * @return The total duration in nano seconds.
+         */
+        public long getTotalNanos() {
+            return this.totalNanos.sum();
+        }
+
+        /**
+         * Gets the longest recorded duration.
+         *
+         * @return The maximum duration in nano seconds.
+         */
+        public long getMaxNanos() {
+            return this.maxNanos.get();
+        }
+
+        /**
+         * Gets the mean of all recorded durations.
+         *
+         * @return The mean duration in nano seconds or <code>0</code> if
+         *         nothing has been recorded.
+         */
+        public double getMeanNanos() {
+            final long n = getCount();
+            return n == 0
+                    ? 0.0
+                    : (double) getTotalNanos() / n;
+        }
+
+        /**
+         * Estimates the given percentile of the recorded durations. The
+         * result is the upper bound of the bucket which contains the
+         * percentile, so it overestimates the actual value by at most factor
+         * two.
+         *
+         * @param percentile The percentile within <code>[0, 100]</code>.
+         * @return The estimated duration in nano seconds or <code>0</code> if
+         *         nothing has been recorded.
+         */
+        public long getPercentileNanos(double percentile) {
+            Require.condition(percentile >= 0.0 && percentile <= 100.0,
+                    "percentile must be within [0, 100]");
+            final long[] counts = getBucketCounts();
+            long total = 0;
+            for (final long c : counts) {
+                total += c;
+            }
+            if (total == 0) {
+                return 0L;
+            }
+            final long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), getMaxNanos());
+                }
+            }
+            return getMaxNanos();
+        }
+
+        private static long upperBoundOf(int bucket) {
+            if (bucket == 0) {
+                return 0L;
+            } else if (bucket >= Long.SIZE - 1) {
+                return Long.MAX_VALUE;
+            }
+            return (1L << bucket) - 1;
+        }
+
+        /**
+         * Gets a snapshot of the number of durations in each bucket.
+         *
+         * @return The counts, indexed by bucket.
+         */
+        public long[] getBucketCounts() {
+            final long[] result = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; ++i) {
+                result[i] = this.buckets.get(i);
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, mean=%.0f ns, p50=%d ns, p99=%d ns, "
+                + "max=%d ns", getCount(), getMeanNanos(), getPercentileNanos(50),
+                    getPercentileNanos(99), getMaxNanos());
+        }
+    }
+
+    private final Histogram classLookups = new Histogram();
+    private final Histogram classLookupMisses = new Histogram();
+    private final Histogram resourceLookups = new Histogram();
+    private final Histogram resourceLookupMisses = new Histogram();
+    private final Histogram serviceLookups = new Histogram();
+    private final Map<DeployPhase, Histogram> deployPhases;
+
+    /**
+     * Creates a new recorder with empty histograms.
+     */
+    public HistogramMetricsRecorder() {
+        this.deployPhases = new EnumMap<>(DeployPhase.class);
+        for (final DeployPhase phase : DeployPhase.values()) {
+            this.deployPhases.put(phase, new Histogram());
+        }
+    }
+
+    @Override
+    public void classLookup(@Nullable String requestor, String className,
+            boolean found, long nanos) {
+        if (found) {
+            this.classLookups.record(nanos);
+        } else {
+            this.classLookupMisses.record(nanos);
+        }
+    }
+
+    @Override
+    public void resourceLookup(@Nullable String requestor, String name,
+            boolean found, long nanos) {
+        if (found) {
+            this.resourceLookups.record(nanos);
+        } else {
+            this.resourceLookupMisses.record(nanos);
+        }
+    }
+
+    @Override
+    public void serviceLookup(Class<?> service, @Nullable String plugin, long nanos) {
+        this.serviceLookups.record(nanos);
+    }
+
+    @Override
+    public void deployPhase(DeployPhase phase, boolean success, long nanos) {
+        this.deployPhases.get(phase).record(nanos);
+    }
+
+    /**
+     * Durations of class look ups which found the class.
+     *
+     * @return The histogram.
+     */
+    public Histogram getClassLookups() {
+        return this.classLookups;
+    }
+
+    /**
+     * Durations of class look ups which did not find the class.
+     *
+     * @return The histogram.
+     */
+    public Histogram getClassLookupMisses() {
+        return this.classLookupMisses;
+    }
+
+    /**
+     * Durations of resource look ups which found the resource.
+     *
+     * @return The histogram.
+     */
+    public Histogram getResourceLookups() {
+        return this.resourceLookups;
+    }
+
+    /**
+     * Durations of resource look ups which did not find the resource.
+     *
+     * @return The histogram.
+     */
+    public Histogram getResourceLookupMisses() {
+        return this.resourceLookupMisses;
+    }
+
+    /**
+     * Durations of service look ups.
+     *
+     * @return The histogram.
+     */
+    public Histogram getServiceLookups() {
+        return this.serviceLookups;
+    }
+
+    /**
+     * Durations of the given deploy phase.
+     *
+     * @param phase The phase.
+     * @return The histogram.
+     */
+    public Histogram getDeployPhase(DeployPhase phase) {
+        Require.nonNull(phase, "phase");
+        return this.deployPhases.get(phase);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder b = new StringBuilder();
+        b.append("classLookups: ").append(this.classLookups).append('\n')
+                .append("classLookupMisses: ").append(this.classLookupMisses).append('\n')
+                .append("resourceLookups: ").append(this.resourceLookups).append('\n')
+                .append("resourceLookupMisses: ").append(this.resourceLookupMisses)
+                .append('\n')
+                .append("serviceLookups: ").append(this.serviceLookups);
+        this.deployPhases.forEach((phase, histogram) -> b.append('\n')
+                .append(phase).append(": ").append(histogram));
+        return b.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package de.skuzzle.tinyplugz;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Receives measurements of the hot paths of TinyPlugz in order to feed them
+ * into an arbitrary telemetry system. A recorder is configured using the
+ * {@link Options#METRICS_RECORDER} property. If none is configured, the
+ * {@link #noop() no-op recorder} is used, in which case TinyPlugz does not take
+ * any measurements at all.
+ * <p>
+ * The callbacks are invoked synchronously on the thread which performed the
+ * measured operation, possibly by many threads concurrently and while class
+ * loading locks are held. Implementations must thus be thread safe, must
+ * return quickly and must not load classes from plugins. The callbacks only
+ * receive primitives and objects which already exist, so that recording does
+ * not allocate on behalf of the implementation.
+ * </p>
+ * <p>
+ * TinyPlugz ships the {@link HistogramMetricsRecorder} as reference
+ * implementation which keeps the measurements in memory.
+ * </p>
+ *
+ * @author Simon Taddiken
+ * @since 0.4.0
+ */
+public interface MetricsRecorder {
+
+    /**
+     * The measured phases of deploying TinyPlugz.
+     *
+     * @author Simon Taddiken
+     * @since 0.4.0
+     */
+    public enum DeployPhase {
+        /** Looking up the TinyPlugz implementation to deploy. */
+        LOOK_UP,
+        /** Initializing the TinyPlugz instance with the plugins. */
+        INITIALIZE,
+        /** Publishing the TinyPlugz instance. */
+        DEPLOY,
+        /** Notifying the {@link DeployListener DeployListeners}. */
+        NOTIFY_LISTENERS
+    }
+
+    /**
+     * Returns the recorder which discards all measurements. If this recorder
+     * is configured, TinyPlugz does not measure anything.
+     *
+     * @return The no-op recorder.
+     */
+    public static MetricsRecorder noop() {
+        return NoopMetricsRecorder.INSTANCE;
+    }
+
+    /**
+     * Records a class look up within the plugins. This includes requests of
+     * the application which could not be answered by the parent ClassLoader
+     * as well as all {@code loadClass} calls of plugin ClassLoaders.
+     *
+     * @param requestor The name of the requesting plugin or <code>null</code>
+     *            if the class has been requested by the application.
+     * @param className The name of the class.
+     * @param found Whether the class has been found.
+     * @param nanos The duration of the look up in nano seconds.
+     */
+    void classLookup(@Nullable String requestor, String className, boolean found,
+            long nanos);
+
+    /**
+     * Records a resource look up within the plugins.
+     *
+     * @param requestor The name of the requesting plugin or <code>null</code>
+     *            if the resource has been requested by the application.
+     * @param name The name of the resource.
+     * @param found Whether the resource has been found.
+     * @param nanos The duration of the look up in nano seconds.
+     */
+    void resourceLookup(@Nullable String requestor, String name, boolean found,
+            long nanos);
+
+    /**
+     * Records a service look up. Providers might be resolved and instantiated
+     * lazily while iterating the result. Depending on the configured
+     * {@link Options#SERVICE_LOADER_WRAPPER}, this time is not included in the
+     * measured duration.
+     *
+     * @param service The service.
+     * @param plugin The name of the plugin which has been searched or
+     *            <code>null</code> if all plugins have been searched.
+     * @param nanos The duration of the look up in nano seconds.
+     */
+    void serviceLookup(Class<?> service, @Nullable String plugin, long nanos);
+
+    /**
+     * Records a phase of deploying TinyPlugz.
+     *
+     * @param phase The phase.
+     * @param success Whether the phase completed normally.
+     * @param nanos The duration of the phase in nano seconds.
+     */
+    void deployPhase(DeployPhase phase, boolean success, long nanos);
+}
@@ -0,0 +1,36 @@
+package de.skuzzle.tinyplugz;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The default {@link MetricsRecorder} which discards all measurements.
+ *
+ * @author Simon Taddiken
+ */
+final class NoopMetricsRecorder implements MetricsRecorder {
+
+    static final MetricsRecorder INSTANCE = new NoopMetricsRecorder();
+
+    private NoopMetricsRecorder() {
+        // singleton
+    }
+
+    @Override
+    public void classLookup(@Nullable String requestor, String className,
+            boolean found, long nanos) {}
+
+    @Override
+    public void resourceLookup(@Nullable String requestor, String name,
+            boolean found, long nanos) {}
+
+    @Override
+    public void serviceLookup(Class<?> service, @Nullable String plugin, long nanos) {}
+
+    @Override
+    public void deployPhase(DeployPhase phase, boolean success, long nanos) {}
+
+    @Override
+    public String toString() {
+        return "NoopMetricsRecorder";
+    }
+}
@@ -33,6 +33,16 @@ public final class Options {
      * will be loaded by the parent Classloader and constructed via its default
      * constructor.</li>
      * </ul>
+     * <p>
+     * If this property is omitted, the default TinyPlugz implementation uses
+     * {@link de.skuzzle.tinyplugz.internal.ServiceLoaderWrapper#getDefault()
+     * ServiceLoaderWrapper.getDefault()} which uses the
+     * {@link java.util.ServiceLoader ServiceLoader} directly and resolves the
+     * providers on every look up. If {@link #SERVICE_SCOPE} is specified, it
+     * uses the {@link de.skuzzle.tinyplugz.internal.CachingServiceLoaderWrapper
+     * CachingServiceLoaderWrapper} instead, which resolves the provider
+     * classes of each service only once per deployment and discards them when
+     * the plugins are undeployed.
      *
      * @since 0.3.0
      */
@@ -97,6 +107,189 @@ public final class Options {
     public static final String FAIL_ON_MULTIPLE_PROVIDERS =
             "tinyplugz.failOnMultipleProviders";
 
+    /**
+     * Configuration property for specifying the maximum number of class and
+     * resource names which are remembered as not existent when looking them up
+     * across plugins. Repeated look ups of such names are then answered without
+     * searching the plugins again. The value must be a non-negative integer,
+     * given either as Number or as String. A value of 0 disables the cache. If
+     * omitted, a default of 10000 names is used.
+     *
+     * @since 0.4.0
+     */
+    public static final String NEGATIVE_LOOKUP_CACHE_SIZE =
+            "tinyplugz.negativeLookupCacheSize";
+
+    /**
+     * Configuration property for specifying how the locks which synchronize
+     * class loading among all plugins are held. There is one lock per class
+     * name and the locks are released when the plugin Classloader is closed.
+     * Supported values are:
+     * <ul>
+     * <li>{@code "weak"} (default): A lock is discarded as soon as no thread
+     * uses it anymore.</li>
+     * <li>{@code "unbounded"}: A lock is kept for every class name that has
+     * ever been requested.</li>
+     * <li>A positive integer, given either as Number or as String: Locks are
+     * kept until their count exceeds the given number. Then all locks which are
+     * not currently in use are discarded.</li>
+     * </ul>
+     *
+     * @since 0.4.0
+     */
+    public static final String CLASS_LOADING_LOCKS = "tinyplugz.classLoadingLocks";
+
+    /**
+     * Configuration property for specifying which classes are looked up in the
+     * parent ClassLoader before searching the plugins. The value is a list of
+     * prefixes of full qualified class names, like {@code "javax."} or the
+     * package of the host application's API. It can be given either as String
+     * in which the prefixes are separated by commas or whitespaces or as
+     * Collection of Strings.
+     * <p>
+     * If omitted, every class is looked up in the parent first. Otherwise,
+     * only classes matching one of the prefixes are. All other classes are
+     * looked up in the plugins first and the parent is only consulted if no
+     * plugin contains the class. Classes from {@code java.} are always looked
+     * up in the parent first.
+     * </p>
+     * <p>
+     * Note: Classes which are shared between the application and the plugins
+     * must be matched by a prefix. Otherwise a plugin which contains its own
+     * copy of such a class would use that copy instead of the application's.
+     * </p>
+     *
+     * @see DefineProperties#withParentFirstPackages(String...)
+     * @since 0.4.0
+     */
+    public static final String PARENT_FIRST_PACKAGES = "tinyplugz.parentFirstPackages";
+
+    /**
+     * Configuration property for creating the Classloaders of the plugins in
+     * parallel. Creating a plugin's Classloader involves opening the plugin and
+     * reading its manifest, which can take considerable time if there are many
+     * plugins or if they are located on slow storage. Supported values are:
+     * <ul>
+     * <li>A positive integer, given either as Number or as String: The number
+     * of threads to use. The threads are terminated once all Classloaders have
+     * been created. A value of 1 disables parallel creation.</li>
+     * <li>An instance of {@link java.util.concurrent.Executor Executor}: The
+     * executor to use. It will not be shut down by TinyPlugz.</li>
+     * </ul>
+     * If omitted, the Classloaders are created one after another on the
+     * deploying thread. In either case, the order in which plugins are searched
+     * for classes and resources is the order in which they have been added to
+     * the {@link PluginSource}.
+     *
+     * @since 0.4.0
+     */
+    public static final String PLUGIN_LOADING_PARALLELISM =
+            "tinyplugz.pluginLoadingParallelism";
+
+    /**
+     * Configuration property for sharing the Classloaders of identical plugin
+     * dependencies. By default, every plugin gets its own Classloader for the
+     * dependencies stated in its manifest's Class-Path attribute. If this
+     * property is present, every dependency which is identical to a dependency
+     * of another plugin is loaded by its own shared Classloader, so that its
+     * classes are only loaded once. A shared Classloader additionally searches
+     * the shared Classloaders of the dependencies which its dependency refers
+     * to. Thus, a dependency is only shared if the dependencies it refers to
+     * are shared as well and are the same for every plugin. References are
+     * determined from the class files of the dependency. The remaining
+     * dependencies of a plugin are loaded by its own Classloader which
+     * searches the shared ones first. Two files are considered identical
+     * <ul>
+     * <li>if the value is {@code "content"}: if they have the same size and
+     * the same SHA-256 hash of their content.</li>
+     * <li>for every other non-null value: if they are the same file with the
+     * same size and modification date.</li>
+     * </ul>
+     * <p>
+     * Note: Determining the references requires to read every class file of
+     * the dependencies which are candidates for sharing once during
+     * deployment. Comparing the content requires to read every dependency
+     * once.
+     * </p>
+     *
+     * @since 0.4.0
+     */
+    public static final String SHARE_DEPENDENCIES = "tinyplugz.shareDependencies";
+
+    /**
+     * Configuration property for specifying how often service providers are
+     * instantiated. If this property is present, the default TinyPlugz
+     * implementation uses the
+     * {@link de.skuzzle.tinyplugz.internal.CachingServiceLoaderWrapper
+     * CachingServiceLoaderWrapper}, which resolves the providers of each
+     * service only once per deployment. Supported values are:
+     * <ul>
+     * <li>{@code "prototype"}: Every service look up creates new provider
+     * instances, unless a provider is annotated with
+     * {@link SingletonService}.</li>
+     * <li>{@code "singleton"}: Every provider is only instantiated once per
+     * deployment. All look ups return the same instance.</li>
+     * </ul>
+     * <p>
+     * Singleton instances are disposed upon undeploy by calling their
+     * {@link AutoCloseable#close() close} method if they implement
+     * {@link AutoCloseable}. This property is not honored if a custom
+     * {@link #SERVICE_LOADER_WRAPPER} is specified. If it is absent, service
+     * providers are resolved and instantiated on every look up and the
+     * {@link SingletonService} annotation is not honored.
+     * </p>
+     *
+     * @since 0.4.0
+     */
+    public static final String SERVICE_SCOPE = "tinyplugz.serviceScope";
+
+    /**
+     * Configuration property for collecting class and resource look up
+     * statistics. If this property is present, an MBean is registered with
+     * the platform MBeanServer for the deployment and for every plugin. Their
+     * ObjectNames are {@code de.skuzzle.tinyplugz:type=Deployment,deployment=<name>}
+     * and {@code de.skuzzle.tinyplugz:type=Plugin,deployment=<name>,name=<plugin>}.
+     * If the value is a non empty String, it is used as the deployment's name.
+     * Otherwise, a unique name is generated. Names which contain characters
+     * that are not allowed in ObjectName values, like {@code ','} or
+     * {@code ':'}, are quoted using
+     * {@link javax.management.ObjectName#quote(String) ObjectName.quote}. The
+     * MBeans are unregistered on undeploy.
+     * <p>
+     * If this property is absent, no statistics are collected at all.
+     * </p>
+     *
+     * @since 0.4.0
+     */
+    public static final String JMX_STATISTICS = "tinyplugz.jmxStatistics";
+
+    /**
+     * Configuration property for specifying a {@link MetricsRecorder} which
+     * receives the durations of class, resource and service look ups and of
+     * the deploy phases. Supported values are:
+     * <ul>
+     * <li>If the value is an instance of MetricsRecorder, then just that
+     * instance will be used.</li>
+     * <li>If the value is an instance of {@link Class}, then the class's
+     * default constructor will be invoked to create a MetricsRecorder
+     * instance.</li>
+     * <li>If the value is a String, that String will be interpreted as a full
+     * qualified name to class which implements MetricsRecorder. The class will
+     * be loaded by the parent Classloader and constructed via its default
+     * constructor.</li>
+     * </ul>
+     * <p>
+     * When deploying with the {@link TinyPlugzConfigurator}, a created
+     * recorder replaces the value of this property, so that it can be
+     * obtained from {@link TinyPlugz#getProperties()}. If this property is
+     * absent, the {@link MetricsRecorder#noop() no-op recorder} is used and no
+     * measurements are taken.
+     * </p>
+     *
+     * @since 0.4.0
+     */
+    public static final String METRICS_RECORDER = "tinyplugz.metricsRecorder";
+
     /**
      * Unmodifiable set containing all known default options.
      *
@@ -109,7 +302,15 @@ public final class Options {
                 FORCE_DEFAULT,
                 FAIL_ON_MULTIPLE_PROVIDERS,
                 PLUGIN_FOLDER,
-                SERVICE_LOADER_WRAPPER
+                SERVICE_LOADER_WRAPPER,
+                NEGATIVE_LOOKUP_CACHE_SIZE,
+                CLASS_LOADING_LOCKS,
+                PARENT_FIRST_PACKAGES,
+                PLUGIN_LOADING_PARALLELISM,
+                SHARE_DEPENDENCIES,
+                SERVICE_SCOPE,
+                JMX_STATISTICS,
+                METRICS_RECORDER
                 )));
     }
 
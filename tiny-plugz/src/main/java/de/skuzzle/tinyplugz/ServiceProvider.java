@@ -0,0 +1,43 @@
+package de.skuzzle.tinyplugz;
+
+import java.util.Optional;
+
+/**
+ * Handle to a single provider of a service. A handle allows to inspect a
+ * provider before deciding whether to use it. Depending on the TinyPlugz
+ * implementation, the provider's class is neither loaded nor initialized
+ * until {@link #get()} is called.
+ *
+ * @author Simon Taddiken
+ * @param <T> Type of the service.
+ * @since 0.4.0
+ * @see TinyPlugz#getServiceProviders(Class)
+ */
+public interface ServiceProvider<T> {
+
+    /**
+     * Gets the full qualified name of the provider's class.
+     *
+     * @return The class name.
+     */
+    String getProviderClassName();
+
+    /**
+     * Gets information about the plugin which declares this provider. The
+     * result is empty if the provider is declared by the host application.
+     *
+     * @return Information about the declaring plugin.
+     */
+    Optional<PluginInformation> getPluginInformation();
+
+    /**
+     * Gets an instance of the provider. Whether a new instance is created on
+     * every call or whether the same instance is returned depends on the
+     * scope of the provider.
+     *
+     * @return The provider instance.
+     * @throws java.util.ServiceConfigurationError If the provider can not be
+     *             instantiated.
+     */
+    T get();
+}
@@ -0,0 +1,29 @@
+package de.skuzzle.tinyplugz;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service provider of which only a single instance should be created
+ * per deployment. The instance is created on first access and returned by all
+ * subsequent service look ups until TinyPlugz is undeployed. If the instance
+ * implements {@link AutoCloseable}, it will be closed upon undeploy.
+ * <p>
+ * Like the {@link Options#SERVICE_SCOPE} property, this annotation is only
+ * honored by TinyPlugz implementations that support service scopes. The
+ * default implementation honors it if the {@link Options#SERVICE_SCOPE}
+ * property is specified, for example as {@code "prototype"}.
+ * </p>
+ *
+ * @author Simon Taddiken
+ * @since 0.4.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface SingletonService {
+
+}
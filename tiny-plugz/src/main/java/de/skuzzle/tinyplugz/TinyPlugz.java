@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.Map;
@@ -13,8 +14,11 @@ import java.util.ServiceLoader;
 import java.util.stream.Stream;
 
 import de.skuzzle.tinyplugz.internal.DelegateClassLoader;
+import de.skuzzle.tinyplugz.internal.ProviderIterator;
+import de.skuzzle.tinyplugz.internal.ServiceLoaderWrapper;
 import de.skuzzle.tinyplugz.util.Closeables;
 import de.skuzzle.tinyplugz.util.ElementIterator;
+import de.skuzzle.tinyplugz.util.Iterators;
 import de.skuzzle.tinyplugz.util.Require;
 
 /**
@@ -198,9 +202,25 @@ public abstract class TinyPlugz {
      */
     protected final DelegateClassLoader createClassLoader(PluginSource source,
             ClassLoader parent) {
+        return createClassLoader(source, parent, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a {@link ClassLoader} which accesses the given collection of
+     * plugins. The ClassLoader will be configured according to the given
+     * deployment properties.
+     *
+     * @param source The plugins.
+     * @param parent The parent ClassLoader.
+     * @param properties The deployment properties.
+     * @return The created ClassLoader.
+     * @since 0.4.0
+     */
+    protected final DelegateClassLoader createClassLoader(PluginSource source,
+            ClassLoader parent, Map<Object, Object> properties) {
         final Stream<URL> urls = Require.nonNullResult(source.getPluginURLs(),
                 "pluginSource.getPluginURLs");
-        return DelegateClassLoader.forPlugins(urls, parent);
+        return DelegateClassLoader.forPlugins(urls, parent, properties);
     }
 
     /**
@@ -223,9 +243,72 @@ public abstract class TinyPlugz {
         return Optional.ofNullable(getClassLoader().getResource(name));
     }
 
+    /**
+     * Searches for a resource with given name only within the plugin with
+     * given name. Neither the plugin's dependencies, nor other plugins nor the
+     * host application are searched. This method is implemented in terms of
+     * {@link #defaultGetResource(String, String)}.
+     *
+     * @param pluginName The name of the plugin to search.
+     * @param name Name of the resource.
+     * @return An url to the resource.
+     * @throws IllegalArgumentException If there is no plugin with given name.
+     * @since 0.4.0
+     */
+    public Optional<URL> getResource(String pluginName, String name) {
+        Require.nonNull(pluginName, "pluginName");
+        Require.nonNull(name, "name");
+        return defaultGetResource(pluginName, name);
+    }
+
+    /**
+     * Searches for a resource with given name only within the given plugin.
+     * This method is shorthand for
+     * {@code getResource(plugin.getName(), name)}.
+     *
+     * @param plugin The plugin to search.
+     * @param name Name of the resource.
+     * @return An url to the resource.
+     * @throws IllegalArgumentException If the plugin is not loaded.
+     * @since 0.4.0
+     */
+    public final Optional<URL> getResource(PluginInformation plugin, String name) {
+        Require.nonNull(plugin, "plugin");
+        return getResource(plugin.getName(), name);
+    }
+
+    /**
+     * Default implementation for {@link #getResource(String, String)} building
+     * upon the result of {@link #getClassLoader()}. If that is not a
+     * {@link DelegateClassLoader}, the plugin's own ClassLoader is asked, which
+     * might also search other locations.
+     *
+     * @param pluginName The name of the plugin to search.
+     * @param name Name of the resource.
+     * @return An url to the resource.
+     * @since 0.4.0
+     */
+    protected final Optional<URL> defaultGetResource(String pluginName, String name) {
+        if (getClassLoader() instanceof DelegateClassLoader) {
+            return ((DelegateClassLoader) getClassLoader()).getResource(pluginName,
+                    name);
+        }
+        final PluginInformation plugin = requirePlugin(pluginName);
+        return Optional.ofNullable(plugin.getClassLoader().getResource(name));
+    }
+
+    private PluginInformation requirePlugin(String pluginName) {
+        final Optional<PluginInformation> plugin = getPluginInformation(pluginName);
+        Require.condition(plugin.isPresent(), "there is no plugin named '%s'",
+                pluginName);
+        return plugin.get();
+    }
+
     /**
      * Finds all the resources with the given name within loaded plugins and the
-     * host application.
+     * host application. The plugins are searched lazily while the returned
+     * iterator is consumed. Thus, if only the first few resources are needed,
+     * not all plugins have to be searched.
      *
      * @param name The name of the resource.
      * @return An iterator with resulting resources.
@@ -236,7 +319,8 @@ public abstract class TinyPlugz {
 
     /**
      * Default implementation for {@link #getResources(String)} building upon
-     * result of {@link #getClassLoader()}.
+     * result of {@link #getClassLoader()}. The resources are searched lazily if
+     * the ClassLoader supports it.
      *
      * @param name The name of the resource.
      * @return An iterator with resulting resources.
@@ -271,6 +355,101 @@ public abstract class TinyPlugz {
      */
     public abstract <T> ElementIterator<T> getServices(Class<T> type);
 
+    /**
+     * Loads all services of the given type which are declared by the plugin
+     * with given name. Providers declared by other plugins or by the host
+     * application are not returned. This method is implemented in terms of
+     * {@link #defaultGetServices(String, Class)}.
+     *
+     * @param <T> The type of the service provider interface.
+     * @param pluginName The name of the plugin.
+     * @param type Type of the service to load.
+     * @return An iterator of providers for the requested service.
+     * @throws IllegalArgumentException If there is no plugin with given name.
+     * @since 0.4.0
+     */
+    public <T> ElementIterator<T> getServices(String pluginName, Class<T> type) {
+        Require.nonNull(pluginName, "pluginName");
+        Require.nonNull(type, "type");
+        return defaultGetServices(pluginName, type);
+    }
+
+    /**
+     * Loads all services of the given type which are declared by the given
+     * plugin. This method is shorthand for
+     * {@code getServices(plugin.getName(), type)}.
+     *
+     * @param <T> The type of the service provider interface.
+     * @param plugin The plugin.
+     * @param type Type of the service to load.
+     * @return An iterator of providers for the requested service.
+     * @throws IllegalArgumentException If the plugin is not loaded.
+     * @since 0.4.0
+     */
+    public final <T> ElementIterator<T> getServices(PluginInformation plugin,
+            Class<T> type) {
+        Require.nonNull(plugin, "plugin");
+        return getServices(plugin.getName(), type);
+    }
+
+    /**
+     * Default implementation for {@link #getServices(String, Class)} building
+     * upon the result of {@link #getServices(Class)}. Only services whose
+     * class has been loaded by the plugin's ClassLoader are returned. Thus,
+     * all services of all plugins are instantiated while iterating the result.
+     * This is only suitable for implementations which do not obtain their
+     * services from the provider configuration files, like TinyPlugzGuice
+     * does. Otherwise the plugin's own configuration files should be read
+     * instead, for example by passing the plugin's ClassLoader to
+     * {@link ServiceLoaderWrapper#loadPluginServices(Class, ClassLoader)}.
+     *
+     * @param <T> The type of the service provider interface.
+     * @param pluginName The name of the plugin.
+     * @param type Type of the service to load.
+     * @return An iterator of providers for the requested service.
+     * @since 0.4.0
+     */
+    protected final <T> ElementIterator<T> defaultGetServices(String pluginName,
+            Class<T> type) {
+        final ClassLoader pluginCl = requirePlugin(pluginName).getClassLoader();
+        return ElementIterator.wrap(Iterators.filter(getServices(type),
+                service -> service.getClass().getClassLoader() == pluginCl));
+    }
+
+    /**
+     * Gets handles to all providers of the given service which are accessible
+     * from loaded plugins and the host application. In contrast to
+     * {@link #getServices(Class)}, this allows to select providers by their
+     * class name or by their declaring plugin before instantiating them.
+     * Whether provider classes are loaded before {@link ServiceProvider#get()}
+     * is called depends on the implementation. This method is implemented in
+     * terms of {@link #defaultGetServiceProviders(Class)}.
+     *
+     * @param <T> The type of the service provider interface.
+     * @param type Type of the service to load.
+     * @return An iterator of provider handles.
+     * @since 0.4.0
+     */
+    public <T> ElementIterator<ServiceProvider<T>> getServiceProviders(Class<T> type) {
+        Require.nonNull(type, "type");
+        return defaultGetServiceProviders(type);
+    }
+
+    /**
+     * Default implementation for {@link #getServiceProviders(Class)} building
+     * upon the result of {@link #getServices(Class)}. Thus, every provider is
+     * instantiated while iterating the result.
+     *
+     * @param <T> The type of the service provider interface.
+     * @param type Type of the service to load.
+     * @return An iterator of provider handles.
+     * @since 0.4.0
+     */
+    protected final <T> ElementIterator<ServiceProvider<T>> defaultGetServiceProviders(
+            Class<T> type) {
+        return ServiceLoaderWrapper.providersOf(getServices(type));
+    }
+
     /**
      * Loads services of the given type which are accessible from loaded plugins
      * and the host application by using java's {@link ServiceLoader}
@@ -315,7 +494,9 @@ public abstract class TinyPlugz {
 
     /**
      * Default implementation of {@link #getService(Class)} building upon result
-     * of {@link #getServices(Class)}.
+     * of {@link #getServices(Class)}. If the returned iterator is a
+     * {@link ProviderIterator}, the number of providers is checked before
+     * instantiating any of them.
      *
      * @param <T> The type of the service provider interface.
      * @param type Type of the service to load.
@@ -325,6 +506,16 @@ public abstract class TinyPlugz {
      */
     protected final <T> T defaultGetService(Class<T> type) {
         final Iterator<T> services = getServices(type);
+        if (services instanceof ProviderIterator<?>) {
+            final int count = ((ProviderIterator<T>) services).remaining();
+            Require.state(count > 0, "no provider for service '%s' found",
+                    type.getName());
+            Require.state(count == 1,
+                    "there are multiple providers for the service '%s'",
+                    type.getName());
+            return services.next();
+        }
+
         Require.state(services.hasNext(), "no provider for service '%s' found",
                 type.getName());
 
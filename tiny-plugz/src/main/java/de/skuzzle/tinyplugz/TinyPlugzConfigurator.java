@@ -12,11 +12,16 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.skuzzle.tinyplugz.MetricsRecorder.DeployPhase;
+import de.skuzzle.tinyplugz.internal.DeployPhaseEvent;
+import de.skuzzle.tinyplugz.internal.FlightRecording;
 import de.skuzzle.tinyplugz.internal.PluginSourceBuilderImpl;
 import de.skuzzle.tinyplugz.internal.ServiceLoaderWrapper;
 import de.skuzzle.tinyplugz.internal.TinyPlugzLookUp;
@@ -170,6 +175,19 @@ public final class TinyPlugzConfigurator {
          */
         DefineProperties withSystemProperties();
 
+        /**
+         * Specifies the prefixes of class names which are looked up in the
+         * parent ClassLoader before searching the plugins. All other classes
+         * are looked up in the plugins first. This is a shortcut for setting
+         * the {@link Options#PARENT_FIRST_PACKAGES} property.
+         *
+         * @param prefixes Prefixes of full qualified class names, like
+         *            {@code "javax."}.
+         * @return A fluent builder object for further configuration.
+         * @since 0.4.0
+         */
+        DefineProperties withParentFirstPackages(String... prefixes);
+
         /**
          * Specifies multiple properties to insert into the map which will be
          * passed to
@@ -253,11 +271,13 @@ public final class TinyPlugzConfigurator {
         private final ClassLoader parentCl;
         private PluginSource source;
         private DeployHook hook;
+        private MetricsRecorder metrics;
 
         private Impl(@NonNull ClassLoader parentCl) {
             this.parentCl = parentCl;
             this.properties = new HashMap<>();
             this.hook = new NoopDeployHook();
+            this.metrics = MetricsRecorder.noop();
         }
 
         @Override
@@ -308,6 +328,13 @@ public final class TinyPlugzConfigurator {
             return withProperties(Require.nonNull(System.getProperties()));
         }
 
+        @Override
+        public DefineProperties withParentFirstPackages(String... prefixes) {
+            Require.nonNull(prefixes, "prefixes");
+            return withProperty(Options.PARENT_FIRST_PACKAGES,
+                    String.join(",", prefixes));
+        }
+
         @Override
         public DefineProperties withProperties(
                 Map<? extends Object, ? extends Object> values) {
@@ -335,16 +362,19 @@ public final class TinyPlugzConfigurator {
         @Override
         public TinyPlugz createInstance() {
             validateProperties();
-            final TinyPlugz impl = getInstance();
+            resolveMetricsRecorder();
+            final TinyPlugz impl = phase(DeployPhase.LOOK_UP, null, this::getInstance);
 
             LOG.debug("Using '{}' TinyPlugz implementation",
                     impl.getClass().getName());
 
-            final PluginSource pluginSource = buildSource();
-            logProperties();
+            runPhase(DeployPhase.INITIALIZE, impl, () -> {
+                final PluginSource pluginSource = buildSource();
+                logProperties();
 
-            impl.initialize(pluginSource, this.parentCl,
-                    Collections.unmodifiableMap(this.properties));
+                impl.initialize(pluginSource, this.parentCl,
+                        Collections.unmodifiableMap(this.properties));
+            });
             return impl;
         }
 
@@ -358,13 +388,74 @@ public final class TinyPlugzConfigurator {
                 this.hook.beforeCreateInstance(this.properties);
                 final TinyPlugz impl = createInstance();
                 this.hook.beforeDeployment(impl, this.properties);
-                TinyPlugz.deploy(impl);
+                runPhase(DeployPhase.DEPLOY, impl, () -> TinyPlugz.deploy(impl));
                 this.hook.beforeNotifyListener(impl, this.properties);
-                notifyListeners(impl);
+                runPhase(DeployPhase.NOTIFY_LISTENERS, impl, () -> notifyListeners(impl));
                 return impl;
             }
         }
 
+        /**
+         * Creates the configured {@link MetricsRecorder} and replaces the
+         * property value with it, so that the TinyPlugz instance uses the same
+         * recorder.
+         */
+        private void resolveMetricsRecorder() {
+            final Object value = this.properties.get(Options.METRICS_RECORDER);
+            if (value == null) {
+                this.metrics = MetricsRecorder.noop();
+                return;
+            }
+            this.metrics = ReflectionUtil.createInstance(value, MetricsRecorder.class,
+                    this.parentCl);
+            this.properties.put(Options.METRICS_RECORDER, this.metrics);
+        }
+
+        /**
+         * Executes a single deploy phase and reports it to the
+         * {@link MetricsRecorder} and as Flight Recorder event if enabled.
+         *
+         * @param phase The phase.
+         * @param impl The TinyPlugz instance being deployed or
+         *            <code>null</code> if it is not known yet.
+         * @param action The phase.
+         * @return The result of the phase.
+         */
+        private <T> T phase(DeployPhase phase, @Nullable TinyPlugz impl,
+                Supplier<T> action) {
+            final DeployPhaseEvent event = FlightRecording.AVAILABLE
+                    ? DeployPhaseEvent.start(phase)
+                    : null;
+            final boolean measure = this.metrics != MetricsRecorder.noop();
+            final long start = measure
+                    ? System.nanoTime()
+                    : 0L;
+            T result = null;
+            boolean success = false;
+            try {
+                result = action.get();
+                success = true;
+                return result;
+            } finally {
+                if (measure) {
+                    this.metrics.deployPhase(phase, success, System.nanoTime() - start);
+                }
+                if (event != null) {
+                    final Object implementation = impl == null
+                            ? result
+                            : impl;
+                    event.finish(implementation, success);
+                }
+            }
+        }
+
+        private void runPhase(DeployPhase phase, TinyPlugz impl, Runnable action) {
+            phase(phase, impl, () -> {
+                action.run();
+                return null;
+            });
+        }
+
         private PluginSource buildSource() {
             final PluginSourceBuilder builder = new PluginSourceBuilderImpl();
             if (this.properties.get(Options.PLUGIN_FOLDER) != null) {
@@ -424,7 +515,12 @@ public final class TinyPlugzConfigurator {
 
             LOG.debug("Using '{}' for instantiating TinyPlugz",
                     lookup.getClass().getName());
-            return lookup.getInstance(this.parentCl, serviceLoader, this.properties);
+            try {
+                return lookup.getInstance(this.parentCl, serviceLoader, this.properties);
+            } finally {
+                // the parent ClassLoader is only used for the look up
+                serviceLoader.invalidate(this.parentCl);
+            }
         }
 
         private void validateProperties() {
@@ -0,0 +1,177 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import de.skuzzle.tinyplugz.util.Require;
+
+/**
+ * Index of a plugin's contents which is created at build time and stored
+ * within the plugin at {@link #LOCATION}. It lists the packages which contain
+ * classes, the names of all other entries and the providers of all services
+ * declared in {@code META-INF/services}. If a plugin contains such an index,
+ * it is used instead of enumerating the plugin's entries when the plugin is
+ * deployed.
+ * <p>
+ * The index is written using a compact binary format which starts with a
+ * magic number and a format version. Indexes with an unknown version are
+ * rejected.
+ * </p>
+ *
+ * @author Simon Taddiken
+ * @since 0.4.0
+ */
+public final class BuildIndex {
+
+    /** Location of the index within a plugin. */
+    public static final String LOCATION = "META-INF/tinyplugz/index.bin";
+
+    private static final int MAGIC = 0x54504958;
+    private static final int VERSION = 1;
+
+    private final Set<String> packages;
+    private final Set<String> resources;
+    private final Map<String, List<String>> services;
+
+    /**
+     * Creates a new index.
+     *
+     * @param packages Names of all packages which contain at least one class.
+     *            The default package is represented by the empty String.
+     * @param resources Names of all entries which are not class files.
+     * @param services Maps service names to the names of their providers in
+     *            declaration order.
+     */
+    public BuildIndex(Collection<String> packages, Collection<String> resources,
+            Map<String, ? extends Collection<String>> services) {
+        Require.nonNull(packages, "packages");
+        Require.nonNull(resources, "resources");
+        Require.nonNull(services, "services");
+        this.packages = Collections.unmodifiableSet(new HashSet<>(packages));
+        this.resources = Collections.unmodifiableSet(new HashSet<>(resources));
+        final Map<String, List<String>> copy = new LinkedHashMap<>();
+        services.forEach((service, providers) -> copy.put(service,
+                Collections.unmodifiableList(new ArrayList<>(providers))));
+        this.services = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Reads an index from the given stream. The stream will not be closed.
+     *
+     * @param in The stream to read from.
+     * @return The index.
+     * @throws IOException If reading fails or if the stream does not contain
+     *             a valid index.
+     */
+    public static BuildIndex readFrom(InputStream in) throws IOException {
+        Require.nonNull(in, "in");
+        final DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a TinyPlugz index");
+        }
+        final int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported TinyPlugz index version: " + version);
+        }
+        final List<String> packages = readStrings(data);
+        final List<String> resources = readStrings(data);
+        final int serviceCount = data.readInt();
+        final Map<String, List<String>> services = new LinkedHashMap<>();
+        for (int i = 0; i < serviceCount; ++i) {
+            final String service = data.readUTF();
+            services.put(service, readStrings(data));
+        }
+        return new BuildIndex(packages, resources, services);
+    }
+
+    private static List<String> readStrings(DataInputStream data) throws IOException {
+        final int count = data.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupted TinyPlugz index");
+        }
+        final List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            result.add(data.readUTF());
+        }
+        return result;
+    }
+
+    /**
+     * Writes this index to the given stream. The stream will be flushed but
+     * not closed.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        Require.nonNull(out, "out");
+        final DataOutputStream data = new DataOutputStream(
+                new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        // sorted to produce reproducible output
+        writeStrings(data, new TreeSet<>(this.packages));
+        writeStrings(data, new TreeSet<>(this.resources));
+        data.writeInt(this.services.size());
+        for (final String service : new TreeSet<>(this.services.keySet())) {
+            data.writeUTF(service);
+            writeStrings(data, this.services.get(service));
+        }
+        data.flush();
+    }
+
+    private static void writeStrings(DataOutputStream data, Collection<String> strings)
+            throws IOException {
+        data.writeInt(strings.size());
+        for (final String s : strings) {
+            data.writeUTF(s);
+        }
+    }
+
+    /**
+     * Names of all packages which contain at least one class.
+     *
+     * @return A read-only set of package names.
+     */
+    public Set<String> getPackages() {
+        return this.packages;
+    }
+
+    /**
+     * Names of all entries which are not class files.
+     *
+     * @return A read-only set of resource names.
+     */
+    public Set<String> getResources() {
+        return this.resources;
+    }
+
+    /**
+     * Maps service names to the names of their providers in declaration order.
+     *
+     * @return A read-only map of services.
+     */
+    public Map<String, List<String>> getServices() {
+        return this.services;
+    }
+
+    @Override
+    public String toString() {
+        return "BuildIndex[packages=" + this.packages.size() + ", resources="
+            + this.resources.size() + ", services=" + this.services.size() + "]";
+    }
+}
@@ -0,0 +1,388 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.ServiceConfigurationError;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.skuzzle.tinyplugz.Options;
+import de.skuzzle.tinyplugz.PluginInformation;
+import de.skuzzle.tinyplugz.ServiceProvider;
+import de.skuzzle.tinyplugz.SingletonService;
+import de.skuzzle.tinyplugz.util.ElementIterator;
+import de.skuzzle.tinyplugz.util.Require;
+
+/**
+ * ServiceLoaderWrapper which reads the provider configuration files of a
+ * service only once per ClassLoader and remembers the provider classes. Like
+ * the {@link java.util.ServiceLoader ServiceLoader}, providers are only
+ * instantiated while the returned iterator is consumed. Optionally, every
+ * provider is only instantiated once and the same instance is returned on
+ * subsequent look ups. This is always the case for providers which are
+ * annotated with {@link SingletonService}.
+ * <p>
+ * When loading services from the plugin ClassLoader, the providers of plugins
+ * which contain a {@link BuildIndex} are taken from that index instead of
+ * reading their configuration files.
+ * </p>
+ * <p>
+ * This wrapper is used by the default TinyPlugz implementation if the
+ * {@link Options#SERVICE_SCOPE} property is specified and no other wrapper is
+ * specified using the {@link Options#SERVICE_LOADER_WRAPPER} property.
+ * All information cached for a ClassLoader is discarded when the plugins are
+ * undeployed. Reused instances which implement {@link AutoCloseable} are
+ * closed at that time. Afterwards, reused instances can no longer be obtained
+ * from the undeployed plugins.
+ * </p>
+ *
+ * @author Simon Taddiken
+ * @since 0.4.0
+ */
+public final class CachingServiceLoaderWrapper extends ServiceLoaderWrapper {
+
+    private static final Logger LOG = LoggerFactory.getLogger(
+            CachingServiceLoaderWrapper.class);
+
+    /**
+     * A single entry of a provider configuration file. The provider class is
+     * loaded on first access.
+     *
+     * @author Simon Taddiken
+     */
+    private static final class Provider {
+        private final String className;
+        @Nullable
+        private final PluginInformation plugin;
+
+        /** Either the provider class or the error which occurred loading it. */
+        @Nullable
+        private volatile Object resolved;
+
+        private Provider(String className, @Nullable PluginInformation plugin) {
+            this.className = className;
+            this.plugin = plugin;
+        }
+
+        private Class<?> resolve(Class<?> service, ClassLoader classLoader) {
+            Object result = this.resolved;
+            if (result == null) {
+                // racing threads will load the same class
+                result = ServiceConfigurations.resolveProvider(service, this.className,
+                        classLoader);
+                this.resolved = result;
+            }
+            if (result instanceof ServiceConfigurationError) {
+                throw (ServiceConfigurationError) result;
+            }
+            return (Class<?>) result;
+        }
+    }
+
+    /**
+     * Reused provider instances of a single scope. The scope also serves as
+     * lock for creating and disposing the instances.
+     *
+     * @author Simon Taddiken
+     */
+    private static final class Scope {
+        private final Map<Class<?>, Object> instances = new ConcurrentHashMap<>();
+
+        /** Whether the instances have been disposed. Guarded by this. */
+        private boolean disposed;
+    }
+
+    private final boolean reuseInstances;
+
+    /** Resolved providers per ClassLoader and service. */
+    private final Map<ClassLoader, Map<Class<?>, List<Provider>>> providers;
+
+    /** Resolved providers declared by a single plugin per plugin and service. */
+    private final Map<ClassLoader, Map<Class<?>, List<Provider>>> ownProviders;
+
+    /**
+     * Provider instances per scope if instances are reused.
+     *
+     * @see #scopeOf(ClassLoader)
+     */
+    private final Map<Object, Scope> instances;
+
+    /**
+     * Scopes of deployments which have been invalidated. They must not be
+     * recreated by look ups which run concurrently to disposing them.
+     */
+    private final Set<Object> disposedScopes;
+
+    /**
+     * Creates a wrapper which creates new provider instances on every look
+     * up.
+     */
+    public CachingServiceLoaderWrapper() {
+        this(false);
+    }
+
+    /**
+     * Creates a new wrapper.
+     *
+     * @param reuseInstances Whether every provider should only be instantiated
+     *            once per ClassLoader. If <code>false</code>, only providers
+     *            annotated with {@link SingletonService} are reused.
+     */
+    public CachingServiceLoaderWrapper(boolean reuseInstances) {
+        this.reuseInstances = reuseInstances;
+        this.providers = new ConcurrentHashMap<>();
+        this.ownProviders = new ConcurrentHashMap<>();
+        this.instances = new ConcurrentHashMap<>();
+        this.disposedScopes = Collections.synchronizedSet(
+                Collections.newSetFromMap(new WeakHashMap<>()));
+    }
+
+    @Override
+    public <T> ProviderIterator<T> loadService(Class<T> providerClass,
+            ClassLoader classLoader) {
+        Require.nonNull(providerClass, "providerClass");
+        Require.nonNull(classLoader, "classLoader");
+        return iterate(providerClass,
+                getProviders(providerClass, classLoader, this.providers), classLoader);
+    }
+
+    @Override
+    public <T> ElementIterator<T> loadPluginServices(Class<T> providerClass,
+            ClassLoader pluginClassLoader) {
+        Require.nonNull(providerClass, "providerClass");
+        Require.nonNull(pluginClassLoader, "pluginClassLoader");
+        if (!(pluginClassLoader instanceof PluginClassLoader)) {
+            return super.loadPluginServices(providerClass, pluginClassLoader);
+        }
+        return iterate(providerClass,
+                getProviders(providerClass, pluginClassLoader, this.ownProviders),
+                pluginClassLoader);
+    }
+
+    private <T> ProviderIterator<T> iterate(Class<T> providerClass,
+            List<Provider> resolved, ClassLoader classLoader) {
+        return new ProviderIterator<T>() {
+
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return this.i < resolved.size();
+            }
+
+            @Override
+            public int remaining() {
+                return resolved.size() - this.i;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Provider provider = resolved.get(this.i++);
+                return getInstance(providerClass, provider, classLoader);
+            }
+        };
+    }
+
+    @Override
+    public <T> ElementIterator<ServiceProvider<T>> loadProviders(Class<T> providerClass,
+            ClassLoader classLoader) {
+        Require.nonNull(providerClass, "providerClass");
+        Require.nonNull(classLoader, "classLoader");
+
+        final Iterator<Provider> resolved = getProviders(providerClass, classLoader,
+                this.providers).iterator();
+        return ElementIterator.wrap(new Iterator<ServiceProvider<T>>() {
+
+            @Override
+            public boolean hasNext() {
+                return resolved.hasNext();
+            }
+
+            @Override
+            public ServiceProvider<T> next() {
+                final Provider provider = resolved.next();
+                return new ServiceProvider<T>() {
+
+                    @Override
+                    public String getProviderClassName() {
+                        return provider.className;
+                    }
+
+                    @Override
+                    public Optional<PluginInformation> getPluginInformation() {
+                        return Optional.ofNullable(provider.plugin);
+                    }
+
+                    @Override
+                    public T get() {
+                        return getInstance(providerClass, provider, classLoader);
+                    }
+
+                    @Override
+                    public String toString() {
+                        return "ServiceProvider[" + provider.className + "]";
+                    }
+                };
+            }
+        });
+    }
+
+    private List<Provider> getProviders(Class<?> service, ClassLoader classLoader,
+            Map<ClassLoader, Map<Class<?>, List<Provider>>> cache) {
+        final ServiceLookupEvent event = FlightRecording.AVAILABLE
+                ? ServiceLookupEvent.start()
+                : null;
+        final List<Provider> providers = getProvidersCached(service, classLoader,
+                cache);
+        if (event != null) {
+            event.finish(service, classLoader, providers.size());
+        }
+        return providers;
+    }
+
+    private List<Provider> getProvidersCached(Class<?> service,
+            ClassLoader classLoader,
+            Map<ClassLoader, Map<Class<?>, List<Provider>>> cache) {
+        // every look up passes here, so avoid the locking computeIfAbsent of
+        // Java 8 once the ClassLoader is known
+        Map<Class<?>, List<Provider>> byService = cache.get(classLoader);
+        if (byService == null) {
+            byService = cache.computeIfAbsent(classLoader,
+                    cl -> new ConcurrentHashMap<>());
+        }
+        final List<Provider> existing = byService.get(service);
+        if (existing != null) {
+            return existing;
+        }
+        // resolve outside of the map because resolving might recursively load
+        // services
+        final List<Provider> resolved = resolve(service, classLoader,
+                cache == this.ownProviders);
+        final List<Provider> previous = byService.putIfAbsent(service, resolved);
+        return previous == null
+                ? resolved
+                : previous;
+    }
+
+    private List<Provider> resolve(Class<?> service, ClassLoader classLoader,
+            boolean own) {
+        // maps provider names to their declaring plugin
+        final Map<String, PluginInformation> names = own
+                ? ServiceConfigurations.readOwn(service, (PluginClassLoader) classLoader)
+                : ServiceConfigurations.read(service, classLoader);
+        final List<Provider> result = new ArrayList<>(names.size());
+        names.forEach((name, plugin) -> result.add(new Provider(name, plugin)));
+        LOG.debug("Resolved {} providers for '{}'", result.size(), service.getName());
+        return Collections.unmodifiableList(result);
+    }
+
+    private <T> T getInstance(Class<T> service, Provider provider,
+            ClassLoader classLoader) {
+        final Class<?> type = provider.resolve(service, classLoader);
+        return service.cast(getInstance(service, type, classLoader));
+    }
+
+    private Object getInstance(Class<?> service, Class<?> type,
+            ClassLoader classLoader) {
+        if (!this.reuseInstances && !type.isAnnotationPresent(SingletonService.class)) {
+            return ServiceConfigurations.instantiate(service, type);
+        }
+        // computeIfAbsent locks even for present keys on Java 8, so it is only
+        // used on a miss
+        final Object key = scopeOf(classLoader);
+        Scope scope = this.instances.get(key);
+        if (scope == null) {
+            scope = this.instances.computeIfAbsent(key,
+                    k -> this.disposedScopes.contains(k) ? null : new Scope());
+            Require.state(scope != null, "the scope of '%s' has already been disposed",
+                    classLoader);
+        }
+        // fast path without locking
+        final Object existing = scope.instances.get(type);
+        if (existing != null) {
+            return existing;
+        }
+        // Not using computeIfAbsent because constructors might recursively load
+        // services. The monitor is reentrant for that case.
+        synchronized (scope) {
+            Require.state(!scope.disposed, "the scope of '%s' has already been disposed",
+                    classLoader);
+            Object instance = scope.instances.get(type);
+            if (instance == null) {
+                instance = ServiceConfigurations.instantiate(service, type);
+                scope.instances.put(type, instance);
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Determines the key under which reused instances are stored. Look ups
+     * from the plugin ClassLoader and from the ClassLoaders of single plugins
+     * share the same instances for the whole deployment.
+     */
+    private static Object scopeOf(ClassLoader classLoader) {
+        if (classLoader instanceof DelegateClassLoader) {
+            return ((DelegateClassLoader) classLoader).getContext();
+        } else if (classLoader instanceof PluginClassLoader) {
+            return ((PluginClassLoader) classLoader).getContext();
+        }
+        return classLoader;
+    }
+
+    @Override
+    public void invalidate(ClassLoader classLoader) {
+        Require.nonNull(classLoader, "classLoader");
+        this.providers.remove(classLoader);
+        this.ownProviders.remove(classLoader);
+        if (classLoader instanceof DelegateClassLoader) {
+            ((DelegateClassLoader) classLoader).getPluginClassLoaders()
+                    .forEach(pluginCl -> {
+                        this.providers.remove(pluginCl);
+                        this.ownProviders.remove(pluginCl);
+                    });
+        }
+        final Object scope = scopeOf(classLoader);
+        if (scope instanceof PluginLoaderContext) {
+            // a deployment is never used again. Other ClassLoaders might be
+            // used again after being invalidated.
+            this.disposedScopes.add(scope);
+        }
+        final Scope removed = this.instances.remove(scope);
+        if (removed != null) {
+            synchronized (removed) {
+                removed.disposed = true;
+                removed.instances.values().forEach(CachingServiceLoaderWrapper::dispose);
+            }
+        }
+    }
+
+    private static void dispose(Object instance) {
+        if (instance instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) instance).close();
+            } catch (Exception | LinkageError e) {
+                LOG.error("Error while disposing service provider '{}'", instance, e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CachingServiceLoaderWrapper[reuseInstances=" + this.reuseInstances
+            + "]";
+    }
+}
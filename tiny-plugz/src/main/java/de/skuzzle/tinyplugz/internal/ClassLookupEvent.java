@@ -0,0 +1,56 @@
+package de.skuzzle.tinyplugz.internal;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for class look ups performed by
+ * {@link PluginClassLoader} and {@link DelegateDependencyResolver}.
+ *
+ * @author Simon Taddiken
+ */
+@Name("de.skuzzle.tinyplugz.ClassLookup")
+@Label("Class Look Up")
+@Description("Class look up performed by a plugin ClassLoader or among all plugins")
+final class ClassLookupEvent extends LookupEvent {
+
+    /** Queried before allocating an event so that disabled events are free. */
+    private static final EventType TYPE = EventType.getEventType(ClassLookupEvent.class);
+
+    /** Operation for {@code PluginClassLoader.loadClass}. */
+    static final String LOAD_CLASS = "loadClass";
+
+    /** Operation for {@code PluginClassLoader.findClass}. */
+    static final String FIND_CLASS = "findClass";
+
+    /** Operation for {@code DelegateDependencyResolver.findClass}. */
+    static final String RESOLVE_CLASS = "resolveClass";
+
+    @Label("Operation")
+    @Nullable
+    String operation;
+
+    private ClassLookupEvent(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Begins a new event.
+     *
+     * @param operation The look up operation.
+     * @return The event or <code>null</code> if it is disabled.
+     */
+    @Nullable
+    static ClassLookupEvent start(String operation) {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        final ClassLookupEvent event = new ClassLookupEvent(operation);
+        event.begin();
+        return event;
+    }
+}
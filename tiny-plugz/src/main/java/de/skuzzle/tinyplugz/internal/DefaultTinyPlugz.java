@@ -8,35 +8,62 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
 
+import org.eclipse.jdt.annotation.Nullable;
+
 import de.skuzzle.tinyplugz.DeployListener;
+import de.skuzzle.tinyplugz.MetricsRecorder;
 import de.skuzzle.tinyplugz.Options;
 import de.skuzzle.tinyplugz.PluginInformation;
 import de.skuzzle.tinyplugz.PluginSource;
+import de.skuzzle.tinyplugz.ServiceProvider;
 import de.skuzzle.tinyplugz.TinyPlugz;
+import de.skuzzle.tinyplugz.TinyPlugzException;
 import de.skuzzle.tinyplugz.util.ElementIterator;
 import de.skuzzle.tinyplugz.util.ReflectionUtil;
 import de.skuzzle.tinyplugz.util.Require;
 
 final class DefaultTinyPlugz extends TinyPlugz {
 
+    /** Values of {@link Options#SERVICE_SCOPE}. */
+    private static final String PROTOTYPE = "prototype";
+    private static final String SINGLETON = "singleton";
+
     private ServiceLoaderWrapper serviceLoader;
     private DelegateClassLoader pluginClassLoader;
     private Map<Object, Object> properties;
+    @Nullable
+    private MetricsRecorder metrics;
 
     @Override
     protected final void initialize(PluginSource source,
             ClassLoader parentClassLoader, Map<Object, Object> properties) {
         this.properties = Collections.unmodifiableMap(properties);
 
-        this.pluginClassLoader = createClassLoader(source, parentClassLoader);
         if (properties.containsKey(Options.SERVICE_LOADER_WRAPPER)) {
             this.serviceLoader = ReflectionUtil.createInstance(
                     properties.get(Options.SERVICE_LOADER_WRAPPER),
                     ServiceLoaderWrapper.class,
                     parentClassLoader);
+        } else if (properties.containsKey(Options.SERVICE_SCOPE)) {
+            // caching is only needed for managing the scope of the providers
+            this.serviceLoader = new CachingServiceLoaderWrapper(
+                    isSingletonScope(properties.get(Options.SERVICE_SCOPE)));
         } else {
             this.serviceLoader = ServiceLoaderWrapper.getDefault();
         }
+        this.pluginClassLoader = createClassLoader(source, parentClassLoader,
+                properties);
+        this.metrics = this.pluginClassLoader.getContext().getMetrics();
+    }
+
+    private static boolean isSingletonScope(Object scope) {
+        if (scope == null || PROTOTYPE.equals(scope.toString())) {
+            return false;
+        } else if (SINGLETON.equals(scope.toString())) {
+            return true;
+        }
+        throw new TinyPlugzException(String.format("'%s' is not valid for '%s'",
+                scope, Options.SERVICE_SCOPE));
     }
 
     @Override
@@ -63,6 +90,9 @@ final class DefaultTinyPlugz extends TinyPlugz {
 
     @Override
     protected final void dispose() {
+        // singletons might still load classes from their plugins while being
+        // closed, so they are disposed before the plugins are closed
+        this.serviceLoader.invalidate(this.pluginClassLoader);
         defaultDispose();
     }
 
@@ -87,7 +117,48 @@ final class DefaultTinyPlugz extends TinyPlugz {
     public final <T> ElementIterator<T> getServices(Class<T> type) {
         Require.nonNull(type, "type");
         Require.state(this.serviceLoader != null,"not initialized");
-        return this.serviceLoader.loadService(type, this.pluginClassLoader);
+        if (this.metrics == null) {
+            return this.serviceLoader.loadService(type, this.pluginClassLoader);
+        }
+        final long start = System.nanoTime();
+        final ElementIterator<T> services = this.serviceLoader.loadService(type,
+                this.pluginClassLoader);
+        this.metrics.serviceLookup(type, null, System.nanoTime() - start);
+        return services;
+    }
+
+    @Override
+    public final <T> ElementIterator<T> getServices(String pluginName, Class<T> type) {
+        Require.nonNull(pluginName, "pluginName");
+        Require.nonNull(type, "type");
+        Require.state(this.serviceLoader != null, "not initialized");
+        final Optional<PluginInformation> plugin = getPluginInformation(pluginName);
+        Require.condition(plugin.isPresent(), "there is no plugin named '%s'",
+                pluginName);
+        final ClassLoader pluginCl = plugin.get().getClassLoader();
+        if (this.metrics == null) {
+            return this.serviceLoader.loadPluginServices(type, pluginCl);
+        }
+        final long start = System.nanoTime();
+        final ElementIterator<T> services = this.serviceLoader.loadPluginServices(
+                type, pluginCl);
+        this.metrics.serviceLookup(type, pluginName, System.nanoTime() - start);
+        return services;
+    }
+
+    @Override
+    public final <T> ElementIterator<ServiceProvider<T>> getServiceProviders(
+            Class<T> type) {
+        Require.nonNull(type, "type");
+        Require.state(this.serviceLoader != null, "not initialized");
+        if (this.metrics == null) {
+            return this.serviceLoader.loadProviders(type, this.pluginClassLoader);
+        }
+        final long start = System.nanoTime();
+        final ElementIterator<ServiceProvider<T>> providers = this.serviceLoader
+                .loadProviders(type, this.pluginClassLoader);
+        this.metrics.serviceLookup(type, null, System.nanoTime() - start);
+        return providers;
     }
 
     @Override
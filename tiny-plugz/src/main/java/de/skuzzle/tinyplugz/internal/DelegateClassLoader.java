@@ -9,7 +9,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
@@ -19,8 +20,11 @@ import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.skuzzle.tinyplugz.MetricsRecorder;
+import de.skuzzle.tinyplugz.Options;
 import de.skuzzle.tinyplugz.PluginInformation;
-import de.skuzzle.tinyplugz.util.ElementIterator;
+import de.skuzzle.tinyplugz.TinyPlugzException;
+import de.skuzzle.tinyplugz.util.Closeables;
 import de.skuzzle.tinyplugz.util.Require;
 
 /**
@@ -38,12 +42,21 @@ public final class DelegateClassLoader extends ClassLoader implements Closeable
     private static final Logger LOG = LoggerFactory.getLogger(DelegateClassLoader.class);
 
     private final DependencyResolver delegator;
+    private final List<PluginClassLoader> pluginCls;
+    private final Map<String, PluginClassLoader> pluginClsByName;
     private final Map<String, PluginInformation> information;
+    private final PluginLoaderContext context;
 
     DelegateClassLoader(ClassLoader parent, DependencyResolver delegator,
-            Collection<PluginInformation> information) {
+            List<PluginClassLoader> pluginCls, Collection<PluginInformation> information,
+            PluginLoaderContext context) {
         super(parent);
         this.delegator = delegator;
+        this.pluginCls = Collections.unmodifiableList(pluginCls);
+        this.pluginClsByName = new HashMap<>();
+        pluginCls.forEach(pluginCl -> this.pluginClsByName.putIfAbsent(
+                pluginCl.getSimpleName(), pluginCl));
+        this.context = context;
         this.information = information.stream().collect(Collectors.toMap(
                 PluginInformation::getName,
                 Function.identity(),
@@ -62,30 +75,142 @@ public final class DelegateClassLoader extends ClassLoader implements Closeable
      */
     public static DelegateClassLoader forPlugins(Stream<URL> urls,
             ClassLoader appClassLoader) {
+        return forPlugins(urls, appClassLoader, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a new ClassLoader which provides access to all plugins given by
+     * the collection of URLs. The ClassLoader is configured according to the
+     * given deployment properties (see {@link Options}).
+     *
+     * @param urls The URLs, each pointing to a plugin to be loaded.
+     * @param appClassLoader The ClassLoader to use as parent.
+     * @param properties The deployment properties.
+     * @return The created ClassLoader.
+     * @since 0.4.0
+     */
+    public static DelegateClassLoader forPlugins(Stream<URL> urls,
+            ClassLoader appClassLoader, Map<Object, Object> properties) {
         Require.nonNull(urls, "urls");
         Require.nonNull(appClassLoader, "parent");
+        Require.nonNull(properties, "properties");
+
+        final int negativeCacheSize = getIntProperty(properties,
+                Options.NEGATIVE_LOOKUP_CACHE_SIZE,
+                DelegateDependencyResolver.DEFAULT_NEGATIVE_CACHE_SIZE);
+        final PluginLoading loading = PluginLoading.fromProperty(
+                properties.get(Options.PLUGIN_LOADING_PARALLELISM));
+        final PluginLoaderContext context = PluginLoaderContext.fromProperties(
+                properties, appClassLoader);
 
         final Collection<DependencyResolver> plugins = new ArrayList<>();
         final Collection<PluginInformation> information = new ArrayList<>();
-        final DependencyResolver delegator = new DelegateDependencyResolver(plugins);
-        final Iterator<URL> it = urls.iterator();
-        while (it.hasNext()) {
-            final URL pluginURL = it.next();
-            // Plugin classloaders must be created with the application
-            // classloader as parent. This is mandatory for establishing a sound
-            // locking strategy during class lookup.
-            final PluginClassLoader pluginCl = PluginClassLoader.create(pluginURL,
-                    appClassLoader, delegator);
+        final DelegateDependencyResolver delegator = new DelegateDependencyResolver(
+                plugins, negativeCacheSize, context.getStatistics());
+
+        // Plugin classloaders must be created with the application
+        // classloader as parent. This is mandatory for establishing a sound
+        // locking strategy during class lookup.
+        LOG.debug("Creating plugin ClassLoaders using {}", loading);
+        final List<PluginClassLoader> pluginCls;
+        try {
+            pluginCls = loading.createAll(urls.collect(Collectors.toList()),
+                    pluginURL -> PluginClassLoader.create(pluginURL, appClassLoader,
+                            delegator, context));
+        } catch (final RuntimeException e) {
+            // already created plugin ClassLoaders have been closed but the
+            // context owns the shared dependencies
+            context.close();
+            throw e;
+        }
+
+        // register in order of the URLs to keep look up results deterministic
+        for (final PluginClassLoader pluginCl : pluginCls) {
             plugins.add(pluginCl);
             information.add(pluginCl.getPluginInformation());
+
+            final PluginIndex index = pluginCl.getIndex();
+            if (index != null && index.isComplete()) {
+                delegator.indexPackages(pluginCl, index.getPackages());
+            } else if (index != null) {
+                delegator.hintPackages(pluginCl, index.getPackages());
+            }
+            final ExportedPackages exported = pluginCl.getExportedPackages();
+            if (exported != null) {
+                delegator.declareExports(pluginCl, exported);
+            }
+        }
+
+        final DelegateClassLoader result;
+        try {
+            // all plugins are known now, so dependencies shared among them can
+            // be determined
+            pluginCls.forEach(PluginClassLoader::linkDependencies);
+            declareRequirements(delegator, pluginCls);
+            delegator.invalidateCaches();
+            // fails on duplicated plugin names
+            result = AccessController.doPrivileged(
+                    new PrivilegedAction<DelegateClassLoader>() {
+
+                        @Override
+                        public DelegateClassLoader run() {
+                            return new DelegateClassLoader(appClassLoader, delegator,
+                                    pluginCls, information, context);
+                        }
+                    });
+        } catch (final RuntimeException e) {
+            Closeables.safeCloseAll(pluginCls);
+            context.close();
+            throw e;
+        }
+
+        // only register the MBeans of a deployment which can be closed
+        final DeploymentStatistics statistics = context.getStatistics();
+        if (statistics != null) {
+            statistics.register(pluginCls);
+        }
+        return result;
+    }
+
+    private static void declareRequirements(DelegateDependencyResolver delegator,
+            List<PluginClassLoader> pluginCls) {
+        final Map<String, PluginClassLoader> byName = new HashMap<>();
+        final RequirementGraph graph = new RequirementGraph();
+        for (final PluginClassLoader pluginCl : pluginCls) {
+            byName.putIfAbsent(pluginCl.getSimpleName(), pluginCl);
+            final List<String> required = pluginCl.getRequiredPlugins();
+            if (required != null) {
+                graph.declare(pluginCl.getSimpleName(), required);
+            }
         }
-        return AccessController.doPrivileged(new PrivilegedAction<DelegateClassLoader>() {
+        graph.validate(byName.keySet());
 
-            @Override
-            public DelegateClassLoader run() {
-                return new DelegateClassLoader(appClassLoader, delegator, information);
+        for (final PluginClassLoader pluginCl : pluginCls) {
+            final String name = pluginCl.getSimpleName();
+            if (graph.isDeclared(name)) {
+                final List<DependencyResolver> required = graph.searchOrder(name)
+                        .stream()
+                        .map(byName::get)
+                        .collect(Collectors.toList());
+                delegator.declareRequirements(pluginCl, required);
             }
-        });
+        }
+    }
+
+    private static int getIntProperty(Map<Object, Object> properties, String key,
+            int defaultValue) {
+        final Object value = properties.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            final int result = Integer.parseInt(value.toString().trim());
+            Require.condition(result >= 0, "negative");
+            return result;
+        } catch (final IllegalArgumentException e) {
+            throw new TinyPlugzException(String.format("'%s' is not valid for '%s'",
+                    value, key), e);
+        }
     }
 
     /**
@@ -108,9 +233,55 @@ public final class DelegateClassLoader extends ClassLoader implements Closeable
         return Optional.ofNullable(this.information.get(pluginName));
     }
 
+    /**
+     * Gets the state which is shared by all ClassLoaders of this deployment.
+     *
+     * @return The context.
+     */
+    final PluginLoaderContext getContext() {
+        return this.context;
+    }
+
+    /**
+     * Gets the ClassLoaders of all plugins in the order in which they are
+     * searched.
+     *
+     * @return A read-only list of plugin ClassLoaders.
+     */
+    final List<PluginClassLoader> getPluginClassLoaders() {
+        return this.pluginCls;
+    }
+
+    /**
+     * Searches for a resource with given name only within the plugin with given
+     * name. Neither the plugin's dependencies, nor other plugins nor the
+     * parent ClassLoader are searched.
+     *
+     * @param pluginName The name of the plugin to search.
+     * @param name The name of the resource.
+     * @return An url to the resource.
+     * @throws IllegalArgumentException If there is no plugin with given name.
+     * @since 0.4.0
+     */
+    public final Optional<URL> getResource(String pluginName, String name) {
+        Require.nonNull(pluginName, "pluginName");
+        Require.nonNull(name, "name");
+        final PluginClassLoader pluginCl = this.pluginClsByName.get(pluginName);
+        Require.condition(pluginCl != null, "there is no plugin named '%s'", pluginName);
+        return Optional.ofNullable(pluginCl.findResource(null, name));
+    }
+
     @Override
     protected final Class<?> findClass(String name) throws ClassNotFoundException {
-        final Class<?> cls = this.delegator.findClass(null, name);
+        final MetricsRecorder metrics = this.context.getMetrics();
+        final Class<?> cls;
+        if (metrics == null) {
+            cls = this.delegator.findClass(null, name);
+        } else {
+            final long start = System.nanoTime();
+            cls = this.delegator.findClass(null, name);
+            metrics.classLookup(null, name, cls != null, System.nanoTime() - start);
+        }
         if (cls == null) {
             throw new ClassNotFoundException(name);
         }
@@ -120,20 +291,40 @@ public final class DelegateClassLoader extends ClassLoader implements Closeable
     @Override
     protected final URL findResource(String name) {
         LOG.trace("delegate.findResource('{}')", name);
-        return this.delegator.findResource(null, name);
+        final MetricsRecorder metrics = this.context.getMetrics();
+        if (metrics == null) {
+            return this.delegator.findResource(null, name);
+        }
+        final long start = System.nanoTime();
+        final URL url = this.delegator.findResource(null, name);
+        metrics.resourceLookup(null, name, url != null, System.nanoTime() - start);
+        return url;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The plugins are searched lazily while the result is enumerated. Only
+     * failing to search the first plugin is reported by this method, and
+     * thus by {@link #getResources(String)}. Failing to search any later
+     * plugin is reported by the result's {@code hasMoreElements()} method
+     * as {@link java.io.UncheckedIOException}.
+     * </p>
+     */
     @Override
     protected final Enumeration<URL> findResources(String name) throws IOException {
         LOG.trace("delegate.findResources('{}')", name);
-        final Collection<URL> urls = new ArrayList<>();
-        this.delegator.findResources(null, name, urls);
-        return ElementIterator.wrap(urls.iterator());
+        return this.delegator.findResources(null, name);
     }
 
     @Override
     public final void close() throws IOException {
-        this.delegator.close();
+        try {
+            this.delegator.close();
+        } finally {
+            LOG.debug("Releasing {}", this.context);
+            this.context.close();
+        }
     }
 
     @Override
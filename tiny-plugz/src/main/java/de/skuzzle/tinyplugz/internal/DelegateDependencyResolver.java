@@ -2,15 +2,23 @@ package de.skuzzle.tinyplugz.internal;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.skuzzle.tinyplugz.internal.LazyConcatIterator.Source;
 import de.skuzzle.tinyplugz.util.Closeables;
+import de.skuzzle.tinyplugz.util.ElementIterator;
 import de.skuzzle.tinyplugz.util.Require;
 
 class DelegateDependencyResolver implements DependencyResolver {
@@ -18,12 +26,196 @@ class DelegateDependencyResolver implements DependencyResolver {
     private static final Logger LOG = LoggerFactory.getLogger(
             DelegateDependencyResolver.class);
 
+    /** Default maximum number of names remembered by each negative cache. */
+    static final int DEFAULT_NEGATIVE_CACHE_SIZE = 10000;
+
     private final Collection<DependencyResolver> children;
-    private final Map<String, DependencyResolver> packageIndex;
+
+    /**
+     * Maps package names to the plugins which contain classes of that package.
+     * Filled eagerly from the plugin's {@link PluginIndex} while the plugins are
+     * opened. The lists are read-only.
+     */
+    private final Map<String, List<DependencyResolver>> packageIndex;
+
+    /** Children for which the package index contains complete information. */
+    private final Set<DependencyResolver> indexed;
+
+    /**
+     * Package mappings learned while searching children which could not be
+     * indexed.
+     */
+    private final Map<String, DependencyResolver> learnedIndex;
+
+    /**
+     * Maps plugins which declared their requirements to the plugins they are
+     * allowed to search, in search order.
+     */
+    private final Map<DependencyResolver, List<DependencyResolver>> requirements;
+
+    /**
+     * Packages which are visible to other children. Children which are not
+     * contained export all of their packages.
+     */
+    private final Map<DependencyResolver, ExportedPackages> exports;
+
+    /** Names of classes which could not be found for a certain requestor. */
+    private final NegativeLookupCache classMisses;
+
+    /** Names of resources which could not be found for a certain requestor. */
+    private final NegativeLookupCache resourceMisses;
+
+    /** Statistics of the deployment, <code>null</code> if disabled. */
+    @Nullable
+    private final DeploymentStatistics statistics;
 
     DelegateDependencyResolver(Collection<DependencyResolver> children) {
+        this(children, DEFAULT_NEGATIVE_CACHE_SIZE);
+    }
+
+    DelegateDependencyResolver(Collection<DependencyResolver> children,
+            int negativeCacheSize) {
+        this(children, negativeCacheSize, null);
+    }
+
+    DelegateDependencyResolver(Collection<DependencyResolver> children,
+            int negativeCacheSize, @Nullable DeploymentStatistics statistics) {
         this.children = Require.nonNull(children, "children");
+        this.statistics = statistics;
+        this.classMisses = new NegativeLookupCache(negativeCacheSize);
+        this.resourceMisses = new NegativeLookupCache(negativeCacheSize);
         this.packageIndex = new ConcurrentHashMap<>();
+        this.indexed = Collections.synchronizedSet(
+                Collections.newSetFromMap(new IdentityHashMap<>()));
+        this.learnedIndex = new ConcurrentHashMap<>();
+        this.requirements = new ConcurrentHashMap<>();
+        this.exports = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Records the packages contained in the given child. Classes of these
+     * packages will be searched directly in the child while it is skipped for
+     * all other packages. Children for which this method is never called will
+     * be searched for every class which can not be found using the index.
+     *
+     * @param child The child resolver.
+     * @param packages The names of all packages which contain classes within
+     *            that child.
+     */
+    final void indexPackages(DependencyResolver child, Collection<String> packages) {
+        addPackages(child, packages);
+        this.indexed.add(child);
+        LOG.trace("Indexed {} packages of {}", packages.size(), child);
+    }
+
+    /**
+     * Records packages contained in the given child without claiming that it
+     * contains no other packages. Classes of these packages will be searched
+     * directly in the child, but it is still searched for all other packages
+     * like children which have not been indexed.
+     *
+     * @param child The child resolver.
+     * @param packages The names of packages which contain classes within that
+     *            child.
+     */
+    final void hintPackages(DependencyResolver child, Collection<String> packages) {
+        addPackages(child, packages);
+        LOG.trace("Recorded {} known packages of {}", packages.size(), child);
+    }
+
+    private void addPackages(DependencyResolver child, Collection<String> packages) {
+        Require.nonNull(child, "child");
+        Require.nonNull(packages, "packages");
+
+        for (final String packageName : packages) {
+            // published lists are read without locking, so they are never
+            // modified but replaced by a copy
+            this.packageIndex.compute(packageName, (k, owners) -> {
+                if (owners == null) {
+                    return Collections.singletonList(child);
+                }
+                final List<DependencyResolver> result = new ArrayList<>(
+                        owners.size() + 1);
+                result.addAll(owners);
+                result.add(child);
+                return Collections.unmodifiableList(result);
+            });
+        }
+        if (this.statistics != null) {
+            this.statistics.packageIndexSize(this.packageIndex.size());
+        }
+        invalidateCaches();
+    }
+
+    /**
+     * Restricts the children which are searched on behalf of the given child.
+     * Children for which this method is never called search all other
+     * children.
+     *
+     * @param child The requesting child.
+     * @param required The children to search for classes and resources
+     *            requested by that child, in search order.
+     */
+    final void declareRequirements(DependencyResolver child,
+            List<DependencyResolver> required) {
+        Require.nonNull(child, "child");
+        Require.nonNull(required, "required");
+        this.requirements.put(child, Collections.unmodifiableList(
+                new ArrayList<>(required)));
+        invalidateCaches();
+        LOG.trace("{} requires {}", child, required);
+    }
+
+    /**
+     * Restricts the packages of the given child which are visible to other
+     * children. Classes from other packages will only be found for the
+     * application. Children for which this method is never called export all
+     * of their packages.
+     *
+     * @param child The child resolver.
+     * @param exported The exported packages.
+     */
+    final void declareExports(DependencyResolver child, ExportedPackages exported) {
+        Require.nonNull(child, "child");
+        Require.nonNull(exported, "exported");
+        this.exports.put(child, exported);
+        invalidateCaches();
+        LOG.trace("{} exports {}", child, exported);
+    }
+
+    private boolean isVisible(DependencyResolver child,
+            @Nullable DependencyResolver requestor, String packageName) {
+        if (requestor == null) {
+            // the application can access all classes
+            return true;
+        }
+        final ExportedPackages exported = this.exports.get(child);
+        return exported == null || exported.isExported(packageName);
+    }
+
+    @Nullable
+    private List<DependencyResolver> requirementsOf(
+            @Nullable DependencyResolver requestor) {
+        return requestor == null
+                ? null
+                : this.requirements.get(requestor);
+    }
+
+    private Collection<DependencyResolver> searchOrderFor(
+            @Nullable DependencyResolver requestor) {
+        final List<DependencyResolver> required = requirementsOf(requestor);
+        return required == null
+                ? this.children
+                : required;
+    }
+
+    /**
+     * Discards all remembered misses. Must be called whenever the set of
+     * children changes.
+     */
+    final void invalidateCaches() {
+        this.classMisses.invalidate();
+        this.resourceMisses.invalidate();
     }
 
     private String getPackageName(String name) {
@@ -39,10 +231,93 @@ class DelegateDependencyResolver implements DependencyResolver {
     public final Class<?> findClass(@Nullable DependencyResolver requestor, String name) {
         Require.nonNull(name, "name");
 
-        // first, try package index
+        final ClassLookupEvent event = FlightRecording.AVAILABLE
+                ? ClassLookupEvent.start(ClassLookupEvent.RESOLVE_CLASS)
+                : null;
+        if (this.classMisses.isKnownMiss(requestor, name)) {
+            if (this.statistics != null) {
+                this.statistics.negativeCacheHit();
+            }
+            if (event != null) {
+                event.finish(FlightRecording.nameOf(requestor), null, name,
+                        FlightRecording.KNOWN_MISS);
+            }
+            return null;
+        }
+        final long start = this.statistics == null
+                ? 0L
+                : System.nanoTime();
+        final Class<?> cls = searchClass(requestor, name);
+        if (cls == null) {
+            this.classMisses.recordMiss(requestor, name);
+        }
+        if (this.statistics != null) {
+            this.statistics.classLookup(cls != null, System.nanoTime() - start);
+        }
+        if (event != null) {
+            event.finish(FlightRecording.nameOf(requestor), FlightRecording.pluginOf(cls),
+                    name, FlightRecording.outcomeOf(cls));
+        }
+        return cls;
+    }
+
+    private Class<?> searchClass(@Nullable DependencyResolver requestor, String name) {
         final String packageName = getPackageName(name);
-        final DependencyResolver indexResolver = this.packageIndex.get(packageName);
-        if (indexResolver != null && !indexResolver.equals(requestor)) {
+        final List<DependencyResolver> owners = this.packageIndex.get(packageName);
+        if (this.statistics != null) {
+            this.statistics.packageIndexLookup(owners != null);
+        }
+        final List<DependencyResolver> required = requirementsOf(requestor);
+        if (required != null) {
+            return searchRequired(requestor, name, packageName, owners, required);
+        }
+
+        // first, ask the plugins which are known to contain the package
+        if (owners != null) {
+            for (final DependencyResolver owner : owners) {
+                if (owner.equals(requestor)
+                    || !isVisible(owner, requestor, packageName)) {
+                    continue;
+                }
+                final Class<?> cls = owner.findClass(requestor, name);
+                if (cls != null) {
+                    return cls;
+                }
+            }
+        }
+
+        // all children are indexed, so no one else can provide the class
+        if (this.indexed.size() == this.children.size()) {
+            return null;
+        }
+        return findClassUnindexed(requestor, name, packageName, owners);
+    }
+
+    private Class<?> searchRequired(DependencyResolver requestor, String name,
+            String packageName, @Nullable List<DependencyResolver> owners,
+            List<DependencyResolver> required) {
+        for (final DependencyResolver child : required) {
+            // skip indexed children which are known to not contain the package
+            if (this.indexed.contains(child)
+                && (owners == null || !owners.contains(child))
+                || !isVisible(child, requestor, packageName)) {
+                continue;
+            }
+            final Class<?> cls = child.findClass(requestor, name);
+            if (cls != null) {
+                return cls;
+            }
+        }
+        return null;
+    }
+
+    private Class<?> findClassUnindexed(@Nullable DependencyResolver requestor,
+            String name, String packageName,
+            @Nullable List<DependencyResolver> owners) {
+        // first, try learned index
+        final DependencyResolver indexResolver = this.learnedIndex.get(packageName);
+        if (indexResolver != null && !indexResolver.equals(requestor)
+            && isVisible(indexResolver, requestor, packageName)) {
             final Class<?> indexCls = indexResolver.findClass(requestor, name);
             if (indexCls != null) {
                 return indexCls;
@@ -50,15 +325,19 @@ class DelegateDependencyResolver implements DependencyResolver {
         }
 
         for (final DependencyResolver pluginCl : this.children) {
-            // do not ask requestor nor ask the resolver from the index again
-            if (pluginCl.equals(requestor) || pluginCl.equals(indexResolver)) {
+            // do not ask requestor, indexed children nor ask the resolver from
+            // the index or the known owners again
+            if (pluginCl.equals(requestor) || pluginCl.equals(indexResolver)
+                || this.indexed.contains(pluginCl)
+                || owners != null && owners.contains(pluginCl)
+                || !isVisible(pluginCl, requestor, packageName)) {
                 continue;
             }
             final Class<?> cls = pluginCl.findClass(requestor, name);
             if (cls != null) {
                 LOG.trace("Update package index mapping: {} -> {}",
                         packageName, pluginCl);
-                this.packageIndex.put(packageName, pluginCl);
+                this.learnedIndex.put(packageName, pluginCl);
                 return cls;
             }
         }
@@ -69,33 +348,61 @@ class DelegateDependencyResolver implements DependencyResolver {
     public final URL findResource(DependencyResolver requestor, String name) {
         Require.nonNull(name, "name");
 
-        for (final DependencyResolver pluginCl : this.children) {
+        if (this.statistics != null) {
+            this.statistics.resourceLookup();
+        }
+        final ResourceLookupEvent event = FlightRecording.AVAILABLE
+                ? ResourceLookupEvent.start()
+                : null;
+        if (this.resourceMisses.isKnownMiss(requestor, name)) {
+            if (this.statistics != null) {
+                this.statistics.negativeCacheHit();
+            }
+            if (event != null) {
+                event.finish(FlightRecording.nameOf(requestor), null, name,
+                        FlightRecording.KNOWN_MISS);
+            }
+            return null;
+        }
+        for (final DependencyResolver pluginCl : searchOrderFor(requestor)) {
             if (pluginCl.equals(requestor)) {
                 continue;
             }
             final URL url = pluginCl.findResource(requestor, name);
             if (url != null) {
+                if (event != null) {
+                    event.finish(FlightRecording.nameOf(requestor),
+                            pluginCl.getSimpleName(), name, FlightRecording.FOUND);
+                }
                 return url;
             }
         }
+        this.resourceMisses.recordMiss(requestor, name);
+        if (event != null) {
+            event.finish(FlightRecording.nameOf(requestor), null, name,
+                    FlightRecording.NOT_FOUND);
+        }
         return null;
     }
 
     @Override
-    public final void findResources(DependencyResolver requestor, String name,
-            Collection<URL> target) throws IOException {
+    public final ElementIterator<URL> findResources(DependencyResolver requestor,
+            String name) throws IOException {
         Require.nonNull(name, "name");
 
-        for (final DependencyResolver pluginCl : this.children) {
-            if (pluginCl.equals(requestor)) {
-                continue;
-            }
-            pluginCl.findResources(requestor, name, target);
-        }
+        final Iterator<Source<URL>> sources = searchOrderFor(requestor).stream()
+                .filter(pluginCl -> !pluginCl.equals(requestor))
+                .map(pluginCl -> (Source<URL>) () ->
+                        pluginCl.findResources(requestor, name))
+                .iterator();
+        return LazyConcatIterator.of(sources);
     }
 
     @Override
     public final void close() throws IOException {
+        LOG.debug("Closing. Class misses: {}, resource misses: {}", this.classMisses,
+                this.resourceMisses);
+        invalidateCaches();
         Closeables.close(this.children);
     }
 
@@ -0,0 +1,310 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.skuzzle.tinyplugz.util.Require;
+
+/**
+ * Describes which packages a single dependency of a plugin defines and which
+ * packages it refers to. It is used to decide whether a dependency can be
+ * loaded by a shared ClassLoader without breaking its links to other
+ * dependencies of the same plugin.
+ * <p>
+ * Referenced packages are collected from the constant pools of all class
+ * files and from the service provider configuration files. As string
+ * constants are taken into account as well, the result is a conservative
+ * over approximation: a dependency might refer to more packages than it
+ * actually uses. References which are only computed at runtime can not be
+ * detected.
+ * </p>
+ *
+ * @author Simon Taddiken
+ */
+final class DependencyContents {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DependencyContents.class);
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String META_INF = "META-INF/";
+    private static final String SERVICES = "META-INF/services/";
+    private static final int MAGIC = 0xCAFEBABE;
+
+    /** Directories which contain at least one entry, separated by slashes. */
+    private final Set<String> packages;
+
+    /** Directories which are possibly referred to, separated by slashes. */
+    private final Set<String> references;
+
+    private DependencyContents(Set<String> packages, Set<String> references) {
+        this.packages = Collections.unmodifiableSet(packages);
+        this.references = Collections.unmodifiableSet(references);
+    }
+
+    /**
+     * Examines the dependency at the given location. Only dependencies which
+     * are located on the local file system, either as jar file or as
+     * directory, can be examined.
+     *
+     * @param url Location of the dependency.
+     * @param withReferences Whether to collect the referenced packages. This
+     *            requires to read every class file of the dependency.
+     * @return The contents or <code>null</code> if the dependency can not be
+     *         examined.
+     */
+    @Nullable
+    static DependencyContents of(URL url, boolean withReferences) {
+        Require.nonNull(url, "url");
+        if (!"file".equals(url.getProtocol())) {
+            LOG.debug("Can not examine dependency '{}': unsupported protocol", url);
+            return null;
+        }
+
+        final Set<String> packages = new HashSet<>();
+        final Set<String> references = new HashSet<>();
+        try {
+            final Path path = Paths.get(url.toURI());
+            if (Files.isDirectory(path)) {
+                examineDirectory(path, packages, withReferences ? references : null);
+            } else if (Files.isRegularFile(path)) {
+                examineJar(path, packages, withReferences ? references : null);
+            } else {
+                LOG.debug("Can not examine dependency '{}': no such file", url);
+                return null;
+            }
+        } catch (URISyntaxException | IOException | RuntimeException e) {
+            LOG.warn("Error while examining dependency '{}'", url, e);
+            return null;
+        }
+        return new DependencyContents(packages, references);
+    }
+
+    private static void examineDirectory(Path root, Set<String> packages,
+            @Nullable Set<String> references) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            final Iterator<Path> it = files.filter(Files::isRegularFile).iterator();
+            while (it.hasNext()) {
+                final Path file = it.next();
+                final Path relative = root.relativize(file);
+                final String entry = relative.toString().replace(
+                        relative.getFileSystem().getSeparator(), "/");
+                addPackage(entry, packages);
+                if (references != null && isReferring(entry)) {
+                    try (InputStream in = Files.newInputStream(file)) {
+                        addReferences(entry, in, references);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void examineJar(Path jar, Set<String> packages,
+            @Nullable Set<String> references) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                addPackage(entry.getName(), packages);
+                if (references != null && isReferring(entry.getName())) {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        addReferences(entry.getName(), in, references);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addPackage(String entry, Set<String> packages) {
+        final int lastSlash = entry.lastIndexOf('/');
+        if (lastSlash == -1) {
+            if (entry.endsWith(CLASS_SUFFIX)) {
+                // the default package
+                packages.add("");
+            }
+        } else if (!entry.startsWith(META_INF)) {
+            packages.add(entry.substring(0, lastSlash));
+        }
+    }
+
+    private static boolean isReferring(String entry) {
+        return entry.startsWith(SERVICES)
+            || entry.endsWith(CLASS_SUFFIX) && !entry.startsWith(META_INF);
+    }
+
+    private static void addReferences(String entry, InputStream in,
+            Set<String> references) throws IOException {
+        if (entry.startsWith(SERVICES)) {
+            addReferences(entry.substring(SERVICES.length()), references);
+            final BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                addReferences(line, references);
+            }
+            return;
+        }
+
+        final DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            LOG.debug("Skipping '{}' because it is not a class file", entry);
+            return;
+        }
+        // minor and major version
+        skip(data, 4);
+        final int constantPoolCount = data.readUnsignedShort();
+        for (int i = 1; i < constantPoolCount; ++i) {
+            final int tag = data.readUnsignedByte();
+            switch (tag) {
+            case 1: // Utf8: class names, descriptors and string constants
+                addReferences(data.readUTF(), references);
+                break;
+            case 7: // Class
+            case 8: // String
+            case 16: // MethodType
+            case 19: // Module
+            case 20: // Package
+                skip(data, 2);
+                break;
+            case 15: // MethodHandle
+                skip(data, 3);
+                break;
+            case 3: // Integer
+            case 4: // Float
+            case 9: // Fieldref
+            case 10: // Methodref
+            case 11: // InterfaceMethodref
+            case 12: // NameAndType
+            case 17: // Dynamic
+            case 18: // InvokeDynamic
+                skip(data, 4);
+                break;
+            case 5: // Long
+            case 6: // Double
+                skip(data, 8);
+                // takes two entries
+                ++i;
+                break;
+            default:
+                throw new IOException(String.format(
+                        "Unknown constant pool tag %d in '%s'", tag, entry));
+            }
+        }
+    }
+
+    private static void skip(DataInputStream data, int bytes) throws IOException {
+        // skipBytes might skip less bytes on compressed streams
+        for (int i = 0; i < bytes; ++i) {
+            data.readUnsignedByte();
+        }
+    }
+
+    /**
+     * Adds the directories of all names within the given String to the given
+     * set. Names may be separated by dots or slashes and may be embedded in
+     * type descriptors.
+     */
+    private static void addReferences(String value, Set<String> references) {
+        final int length = value.length();
+        int start = 0;
+        for (int i = 0; i <= length; ++i) {
+            if (i == length || !isNameChar(value.charAt(i))) {
+                if (i > start) {
+                    addReference(value.substring(start, i), references);
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    private static boolean isNameChar(char c) {
+        return c == '/' || c == '.' || Character.isJavaIdentifierPart(c);
+    }
+
+    private static void addReference(String name, Set<String> references) {
+        addDirectory(name, references);
+        addDirectory(name.replace('.', '/'), references);
+        if (name.length() > 1 && name.charAt(0) == 'L') {
+            // object type within a descriptor like 'Lcom/foo/Bar'
+            addDirectory(name.substring(1), references);
+        }
+    }
+
+    private static void addDirectory(String name, Set<String> references) {
+        final int lastSlash = name.lastIndexOf('/');
+        if (lastSlash == -1) {
+            // possibly a class within the default package
+            references.add("");
+        } else if (lastSlash > 0) {
+            references.add(name.substring(0, lastSlash));
+        }
+    }
+
+    /**
+     * Gets the directories which contain at least one entry of the
+     * dependency, separated by slashes. The default package is represented by
+     * the empty String if the dependency contains a class on the top level.
+     * Entries within META-INF are not taken into account.
+     *
+     * @return A read-only set of directory names.
+     */
+    Set<String> getPackages() {
+        return this.packages;
+    }
+
+    /**
+     * Determines whether the dependency possibly refers to any of the
+     * packages defined by the given dependency.
+     *
+     * @param other The other dependency.
+     * @return Whether this dependency refers to the other one.
+     */
+    boolean refersTo(DependencyContents other) {
+        Require.nonNull(other, "other");
+        final Set<String> smaller;
+        final Set<String> larger;
+        if (this.references.size() < other.packages.size()) {
+            smaller = this.references;
+            larger = other.packages;
+        } else {
+            smaller = other.packages;
+            larger = this.references;
+        }
+        for (final String pkg : smaller) {
+            if (larger.contains(pkg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "DependencyContents[packages=" + this.packages.size() + ", references="
+            + this.references.size() + "]";
+    }
+}
@@ -0,0 +1,497 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.AccessController;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.skuzzle.tinyplugz.Options;
+import de.skuzzle.tinyplugz.internal.LazyConcatIterator.Source;
+import de.skuzzle.tinyplugz.util.Closeables;
+import de.skuzzle.tinyplugz.util.ElementIterator;
+import de.skuzzle.tinyplugz.util.Require;
+
+/**
+ * Keeps track of the ClassLoaders which are shared among plugins that have
+ * identical dependencies. Every plugin first {@link #register(URL[])
+ * registers} the entries of its manifest Class-Path attribute. Afterwards,
+ * every dependency which is identical to a dependency of at least one other
+ * plugin gets its own shared ClassLoader. Whether two files are identical is
+ * decided either by their location, size and modification date or by a hash
+ * of their content.
+ * <p>
+ * Classes of a shared dependency must be able to link against the other
+ * dependencies they refer to. Thus, a shared ClassLoader additionally
+ * searches the shared ClassLoaders of the dependencies which its dependency
+ * refers to, as determined by {@link DependencyContents}. A dependency is
+ * only shared if all the dependencies it refers to are shared as well and
+ * if these are the same for every plugin. Otherwise, it is loaded by the
+ * plugin's own dependency ClassLoader like every dependency which is not
+ * shared.
+ * </p>
+ * <p>
+ * Shared ClassLoaders are owned by this object and are closed together with
+ * the deployment.
+ * </p>
+ *
+ * @author Simon Taddiken
+ */
+final class DependencyLoaders {
+
+    /** Value of {@link Options#SHARE_DEPENDENCIES} to compare file contents. */
+    static final String CONTENT = "content";
+
+    private static final Logger LOG = LoggerFactory.getLogger(DependencyLoaders.class);
+
+    private static final DependencyLoaders NOT_SHARED = new DependencyLoaders(false,
+            false);
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final boolean enabled;
+    private final boolean compareContent;
+
+    /** Shared ClassLoaders, keyed by the identity of their dependency. */
+    private final Map<String, SharedDependencyClassLoader> loaders;
+
+    /** Number of plugins which depend on a file, keyed by file identity. */
+    private final Map<String, Integer> usages;
+
+    /** Content hashes of already examined files, keyed by file identity. */
+    private final Map<String, String> hashes;
+
+    /**
+     * Dependencies of every registered plugin, keyed by file identity, in the
+     * order of the plugin's Class-Path attribute.
+     */
+    private final Queue<Map<String, URL>> classPaths;
+
+    /**
+     * Identities of the shared dependencies, mapped to the identities of the
+     * dependencies they refer to. Computed once after all plugins have been
+     * registered. Guarded by <code>this</code>.
+     */
+    @Nullable
+    private Map<String, Set<String>> layers;
+
+    /**
+     * Whether the shared ClassLoaders have been created. Guarded by
+     * <code>this</code>.
+     */
+    private boolean linked;
+
+    private DependencyLoaders(boolean enabled, boolean compareContent) {
+        this.enabled = enabled;
+        this.compareContent = compareContent;
+        this.loaders = new ConcurrentHashMap<>();
+        this.usages = new ConcurrentHashMap<>();
+        this.hashes = new ConcurrentHashMap<>();
+        this.classPaths = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Creates the strategy described by the given value of the
+     * {@link Options#SHARE_DEPENDENCIES} property.
+     *
+     * @param value The property value, may be <code>null</code>.
+     * @return The dependency loaders.
+     */
+    static DependencyLoaders fromProperty(@Nullable Object value) {
+        if (value == null) {
+            return NOT_SHARED;
+        }
+        return new DependencyLoaders(true, CONTENT.equals(value.toString()));
+    }
+
+    /**
+     * Registers the dependencies of a plugin. All plugins of the deployment
+     * must be registered before {@link #isShared(URL)} or
+     * {@link #obtain(URL[], ClassLoader)} is called for any of them.
+     *
+     * @param urls The dependencies as stated in a plugin's manifest.
+     */
+    void register(URL[] urls) {
+        Require.nonNull(urls, "urls");
+        if (!this.enabled) {
+            return;
+        }
+
+        final Map<String, URL> classPath = new LinkedHashMap<>();
+        for (final URL url : urls) {
+            classPath.putIfAbsent(identityOf(url), url);
+        }
+        classPath.keySet().forEach(identity -> this.usages.merge(identity, 1,
+                Integer::sum));
+        this.classPaths.add(classPath);
+    }
+
+    /**
+     * Determines whether the given dependency is loaded by a shared
+     * ClassLoader because other plugins depend on an identical file.
+     *
+     * @param url A dependency as stated in a plugin's manifest.
+     * @return Whether the dependency is shared.
+     */
+    boolean isShared(URL url) {
+        Require.nonNull(url, "url");
+        return this.enabled && layers().containsKey(identityOf(url));
+    }
+
+    /**
+     * Gets the shared ClassLoaders for those of the given dependencies which
+     * are {@link #isShared(URL) shared}. Each of them is shared with all other
+     * plugins depending on the same file.
+     *
+     * @param urls The dependencies as stated in a plugin's manifest.
+     * @param parent The parent ClassLoader of the plugins.
+     * @return The shared ClassLoaders in the order of the given dependencies.
+     *         The list is empty if sharing is disabled or none of the
+     *         dependencies is shared.
+     */
+    List<SharedDependencyClassLoader> obtain(URL[] urls, ClassLoader parent) {
+        Require.nonNull(urls, "urls");
+        Require.nonNull(parent, "parent");
+        if (!this.enabled) {
+            return Collections.emptyList();
+        }
+
+        link(parent);
+        final List<SharedDependencyClassLoader> result = new ArrayList<>(urls.length);
+        for (final URL url : urls) {
+            final SharedDependencyClassLoader loader = this.loaders.get(identityOf(url));
+            if (loader != null && !result.contains(loader)) {
+                result.add(loader);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates the shared ClassLoaders of all shared dependencies if this has
+     * not happened before.
+     */
+    private synchronized void link(ClassLoader parent) {
+        if (this.linked) {
+            return;
+        }
+        this.linked = true;
+        final Map<String, Set<String>> layers = layers();
+        final Map<String, SharedDependencyClassLoader> created = new HashMap<>();
+        for (final Map<String, URL> classPath : this.classPaths) {
+            classPath.forEach((identity, url) -> {
+                if (layers.containsKey(identity) && !created.containsKey(identity)) {
+                    created.put(identity, createLoader(url, parent));
+                }
+            });
+        }
+        // wire the layers before they are published
+        created.forEach((identity, loader) -> layers.get(identity).stream()
+                .map(created::get)
+                .forEach(loader.dependencies::add));
+        this.loaders.putAll(created);
+    }
+
+    private static SharedDependencyClassLoader createLoader(URL url,
+            ClassLoader parent) {
+        return AccessController.doPrivileged(
+                new PrivilegedAction<SharedDependencyClassLoader>() {
+
+                    @Override
+                    public SharedDependencyClassLoader run() {
+                        LOG.debug("Creating shared dependency ClassLoader for {}", url);
+                        return new SharedDependencyClassLoader(url, parent);
+                    }
+                });
+    }
+
+    /**
+     * Determines which dependencies can be shared. A dependency is a candidate
+     * if more than one plugin depends on it. A candidate is dropped if the
+     * dependencies it refers to differ between the plugins or if any of them
+     * is not shared as well.
+     */
+    private synchronized Map<String, Set<String>> layers() {
+        if (this.layers != null) {
+            return this.layers;
+        }
+
+        final Map<String, Optional<DependencyContents>> contents = new HashMap<>();
+        final Map<String, Set<String>> result = new HashMap<>();
+        final Set<String> rejected = new HashSet<>();
+        for (final Map<String, URL> classPath : this.classPaths) {
+            for (final Map.Entry<String, URL> dependency : classPath.entrySet()) {
+                final String identity = dependency.getKey();
+                if (this.usages.getOrDefault(identity, 0) < 2
+                    || rejected.contains(identity)) {
+                    continue;
+                }
+                final DependencyContents own = contentsOf(identity,
+                        dependency.getValue(), contents);
+                if (own == null) {
+                    rejected.add(identity);
+                    continue;
+                }
+
+                final Set<String> refersTo = new LinkedHashSet<>();
+                classPath.forEach((otherIdentity, otherUrl) -> {
+                    if (otherIdentity.equals(identity)) {
+                        return;
+                    }
+                    final DependencyContents other = contentsOf(otherIdentity,
+                            otherUrl, contents);
+                    // dependencies which can not be examined might be referred to
+                    if (other == null || own.refersTo(other)) {
+                        refersTo.add(otherIdentity);
+                    }
+                });
+                final Set<String> previous = result.putIfAbsent(identity, refersTo);
+                if (previous != null && !previous.equals(refersTo)) {
+                    LOG.debug("Not sharing '{}' because it links against different "
+                        + "dependencies in different plugins", dependency.getValue());
+                    rejected.add(identity);
+                }
+            }
+        }
+
+        result.keySet().removeAll(rejected);
+        boolean changed;
+        do {
+            changed = result.values().removeIf(
+                    refersTo -> !result.keySet().containsAll(refersTo));
+        } while (changed);
+
+        this.layers = result;
+        return result;
+    }
+
+    /**
+     * Examines the given dependency once. References are only collected for
+     * dependencies which are candidates for being shared.
+     */
+    @Nullable
+    private DependencyContents contentsOf(String identity, URL url,
+            Map<String, Optional<DependencyContents>> contents) {
+        return contents.computeIfAbsent(identity, key -> Optional.ofNullable(
+                DependencyContents.of(url, this.usages.getOrDefault(key, 0) > 1)))
+                .orElse(null);
+    }
+
+    private String identityOf(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return url.toExternalForm();
+        }
+        try {
+            final Path path = Paths.get(url.toURI());
+            if (!Files.isRegularFile(path)) {
+                return path.toAbsolutePath().normalize().toString();
+            }
+            final Path realPath = path.toRealPath();
+            final String fileIdentity = String.format("%s|%d|%d", realPath,
+                    Files.size(realPath), Files.getLastModifiedTime(realPath).toMillis());
+            if (!this.compareContent) {
+                return fileIdentity;
+            }
+            final String hash = this.hashes.get(fileIdentity);
+            if (hash != null) {
+                return hash;
+            }
+            final String newHash = hashOf(realPath);
+            this.hashes.put(fileIdentity, newHash);
+            return newHash;
+        } catch (URISyntaxException | IOException | RuntimeException e) {
+            LOG.warn("Error while examining dependency '{}'", url, e);
+            return url.toExternalForm();
+        }
+    }
+
+    private static String hashOf(Path file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                size += read;
+            }
+        }
+
+        final StringBuilder b = new StringBuilder("sha-256:");
+        for (final byte d : digest.digest()) {
+            b.append(String.format("%02x", d));
+        }
+        return b.append('|').append(size).toString();
+    }
+
+    /**
+     * Number of shared ClassLoaders, that is the number of distinct shared
+     * dependencies.
+     *
+     * @return The number of shared ClassLoaders.
+     */
+    int size() {
+        return this.loaders.size();
+    }
+
+    /**
+     * Closes all shared ClassLoaders. Called when the deployment is closed.
+     */
+    synchronized void close() {
+        Closeables.safeCloseAll(this.loaders.values());
+        this.loaders.clear();
+        this.usages.clear();
+        this.hashes.clear();
+        this.classPaths.clear();
+    }
+
+    @Override
+    public String toString() {
+        if (!this.enabled) {
+            return "DependencyLoaders[not shared]";
+        }
+        return "DependencyLoaders[compareContent=" + this.compareContent + ", shared="
+            + size() + "]";
+    }
+
+    /**
+     * ClassLoader for a single dependency which is shared among multiple
+     * plugins. Classes which are not found within the dependency itself are
+     * searched within the shared dependencies it refers to.
+     *
+     * @author Simon Taddiken
+     */
+    static final class SharedDependencyClassLoader extends URLClassLoader {
+
+        static {
+            registerAsParallelCapable();
+        }
+
+        /**
+         * Shared ClassLoaders of the dependencies which this dependency refers
+         * to. Filled once before this ClassLoader is published.
+         */
+        private final List<SharedDependencyClassLoader> dependencies;
+
+        private SharedDependencyClassLoader(URL url, ClassLoader parent) {
+            super(new URL[] { url }, parent);
+            this.dependencies = new ArrayList<>();
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            Class<?> result = findOwnClass(name);
+            for (int i = 0; result == null && i < this.dependencies.size(); ++i) {
+                result = this.dependencies.get(i).findOwnClass(name);
+            }
+            if (result == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return result;
+        }
+
+        /**
+         * Loads the class with given name from this dependency only, without
+         * asking the parent or the dependencies this one refers to.
+         *
+         * @param name The name of the class.
+         * @return The class or <code>null</code> if this dependency does not
+         *         contain it.
+         * @throws ClassNotFoundException If defining the class fails.
+         */
+        @Nullable
+        Class<?> findOwnClass(String name) throws ClassNotFoundException {
+            // Only lock the name if we actually contain the class. The owner
+            // of that lock then never searches other loaders, so loaders
+            // which refer to each other can not deadlock.
+            if (findOwnResource(name.replace('.', '/').concat(".class")) == null) {
+                return null;
+            }
+            synchronized (getClassLoadingLock(name)) {
+                final Class<?> loaded = findLoadedClass(name);
+                return loaded == null
+                        ? super.findClass(name)
+                        : loaded;
+            }
+        }
+
+        /**
+         * Searches the given resource within this dependency only.
+         *
+         * @param name The name of the resource.
+         * @return The resource's URL or <code>null</code> if it is not found.
+         */
+        @Nullable
+        URL findOwnResource(String name) {
+            return super.findResource(name);
+        }
+
+        @Override
+        public URL findResource(String name) {
+            URL result = findOwnResource(name);
+            for (int i = 0; result == null && i < this.dependencies.size(); ++i) {
+                result = this.dependencies.get(i).findOwnResource(name);
+            }
+            return result;
+        }
+
+        /**
+         * Searches the given resources within this dependency only.
+         *
+         * @param name The name of the resources.
+         * @return The resources.
+         * @throws IOException If an I/O error occurs.
+         */
+        Enumeration<URL> findOwnResources(String name) throws IOException {
+            return super.findResources(name);
+        }
+
+        @Override
+        public Enumeration<URL> findResources(String name) throws IOException {
+            final List<Source<URL>> sources = new ArrayList<>(
+                    this.dependencies.size() + 1);
+            sources.add(() -> ElementIterator.wrap(findOwnResources(name)));
+            for (final SharedDependencyClassLoader dependency : this.dependencies) {
+                sources.add(() -> ElementIterator.wrap(
+                        dependency.findOwnResources(name)));
+            }
+            return LazyConcatIterator.of(sources.iterator());
+        }
+
+        @Override
+        public String toString() {
+            return "SharedDependencyClassLoader" + Arrays.toString(getURLs());
+        }
+    }
+}
@@ -3,10 +3,11 @@ package de.skuzzle.tinyplugz.internal;
 import java.io.Closeable;
 import java.io.IOException;
 import java.net.URL;
-import java.util.Collection;
 
 import org.eclipse.jdt.annotation.Nullable;
 
+import de.skuzzle.tinyplugz.util.ElementIterator;
+
 /**
  * Used to connect class- and resource loading between different plugins. This
  * interface is only used internally and not meant to be implemented or used by
@@ -48,19 +49,21 @@ public interface DependencyResolver extends Closeable {
     public URL findResource(DependencyResolver requestor, String name);
 
     /**
-     * Searches for all resources with given name and collects them in the given
-     * collection.
+     * Searches for all resources with given name. The search is performed
+     * lazily while the returned iterator is consumed, so plugins are not
+     * searched before all resources found in the previous plugins have been
+     * consumed.
      *
-     * @param requestor The plugin for which the resources should be collected.
+     * @param requestor The plugin for which the resources should be searched.
      *            Parameter will be <code>null</code> if this method is not
      *            called from any plugin (but from the application itself).
      * @param name The name of the resource. Must not be <code>null</code>.
-     * @param target Target collection.
+     * @return Iterator over the found resources. Its methods might throw an
+     *         {@link java.io.UncheckedIOException UncheckedIOException} if
+     *         searching a plugin fails.
      * @throws IOException If an IO error occurs.
      */
-    public void findResources(
+    public ElementIterator<URL> findResources(
             DependencyResolver requestor,
-            String name,
-            Collection<URL> target) throws IOException;
+            String name) throws IOException;
 }
-
@@ -0,0 +1,87 @@
+package de.skuzzle.tinyplugz.internal;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.skuzzle.tinyplugz.MetricsRecorder.DeployPhase;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a single phase of deploying TinyPlugz.
+ * <p>
+ * This class must only be referenced if {@link FlightRecording#AVAILABLE} is
+ * <code>true</code>.
+ * </p>
+ *
+ * @author Simon Taddiken
+ * @since 0.4.0
+ */
+@Name("de.skuzzle.tinyplugz.DeployPhase")
+@Label("Deploy Phase")
+@Description("Phase of deploying TinyPlugz")
+@Category("TinyPlugz")
+@Enabled(false)
+@StackTrace(false)
+public final class DeployPhaseEvent extends Event {
+
+    /** Type of this event, checked before an instance is allocated. */
+    private static final EventType TYPE = EventType.getEventType(DeployPhaseEvent.class);
+
+    @Label("Phase")
+    @Nullable
+    String phase;
+
+    @Label("Implementation")
+    @Nullable
+    String implementation;
+
+    @Label("Outcome")
+    @Nullable
+    String outcome;
+
+    private DeployPhaseEvent(DeployPhase phase) {
+        this.phase = phase.name();
+    }
+
+    /**
+     * Begins a new event.
+     *
+     * @param phase The phase which is about to start.
+     * @return The event or <code>null</code> if it is disabled.
+     */
+    @Nullable
+    public static DeployPhaseEvent start(DeployPhase phase) {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        final DeployPhaseEvent event = new DeployPhaseEvent(phase);
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends this event and commits it if it passes the recording's threshold.
+     *
+     * @param implementation The TinyPlugz implementation, may be
+     *            <code>null</code> if it has not been determined yet.
+     * @param success Whether the phase completed normally.
+     */
+    public void finish(@Nullable Object implementation, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.implementation = implementation == null
+                    ? null
+                    : implementation.getClass().getName();
+            this.outcome = success
+                    ? FlightRecording.SUCCESS
+                    : FlightRecording.FAILURE;
+            commit();
+        }
+    }
+}
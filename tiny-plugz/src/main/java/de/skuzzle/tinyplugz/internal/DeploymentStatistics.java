@@ -0,0 +1,252 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.skuzzle.tinyplugz.Options;
+
+/**
+ * Collects the statistics of a whole deployment and registers the MBeans of
+ * the deployment and its plugins with the platform MBeanServer. Statistics
+ * are only collected if {@link Options#JMX_STATISTICS} is enabled. Otherwise
+ * no instance of this class is created and the instrumented code paths only
+ * perform a <code>null</code> check.
+ *
+ * @author Simon Taddiken
+ */
+final class DeploymentStatistics implements DeploymentStatisticsMXBean {
+
+    /** Domain of the ObjectNames of all TinyPlugz MBeans. */
+    static final String DOMAIN = "de.skuzzle.tinyplugz";
+
+    private static final Logger LOG = LoggerFactory.getLogger(
+            DeploymentStatistics.class);
+
+    /** Characters which are not allowed in unquoted ObjectName values. */
+    private static final String SPECIAL_CHARACTERS = ",=:\"*?\n";
+
+    /** Used to name deployments which have not been named explicitly. */
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final String name;
+    private final LongAdder packageIndexHits = new LongAdder();
+    private final LongAdder packageIndexMisses = new LongAdder();
+    private final LongAdder classLookups = new LongAdder();
+    private final LongAdder classLookupMisses = new LongAdder();
+    private final LongAdder negativeCacheHits = new LongAdder();
+    private final LongAdder resourceLookups = new LongAdder();
+    private final LongAdder classLookupTime = new LongAdder();
+    private final List<ObjectName> registered;
+    private volatile int packageIndexSize;
+    private volatile int pluginCount;
+
+    private DeploymentStatistics(String name) {
+        this.name = name;
+        this.registered = new ArrayList<>();
+    }
+
+    /**
+     * Creates the statistics described by the given value of the
+     * {@link Options#JMX_STATISTICS} property.
+     *
+     * @param value The property value, may be <code>null</code>.
+     * @return The statistics or <code>null</code> if they are disabled.
+     */
+    @Nullable
+    static DeploymentStatistics fromProperty(@Nullable Object value) {
+        if (value == null) {
+            return null;
+        }
+        final String name = value instanceof String
+            && !value.toString().trim().isEmpty()
+                    ? value.toString().trim()
+                    : "deployment-" + SEQUENCE.incrementAndGet();
+        return new DeploymentStatistics(name);
+    }
+
+    /**
+     * Registers the MBeans of this deployment and of the given plugins with
+     * the platform MBeanServer. Failures are logged but do not prevent the
+     * deployment.
+     *
+     * @param pluginCls The ClassLoaders of the deployed plugins.
+     */
+    synchronized void register(Collection<PluginClassLoader> pluginCls) {
+        this.pluginCount = pluginCls.size();
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        register(server, objectName("Deployment", null), this,
+                DeploymentStatisticsMXBean.class);
+        for (final PluginClassLoader pluginCl : pluginCls) {
+            final PluginStatistics statistics = pluginCl.getStatistics();
+            if (statistics != null) {
+                register(server, objectName("Plugin", pluginCl.getSimpleName()),
+                        statistics, PluginStatisticsMXBean.class);
+            }
+        }
+    }
+
+    private <T> void register(MBeanServer server, @Nullable ObjectName objectName,
+            T mbean, Class<T> type) {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            server.registerMBean(new StandardMBean(mbean, type, true), objectName);
+            this.registered.add(objectName);
+            LOG.debug("Registered MBean '{}'", objectName);
+        } catch (final JMException e) {
+            LOG.warn("Could not register MBean '{}'", objectName, e);
+        }
+    }
+
+    @Nullable
+    private ObjectName objectName(String type, @Nullable String pluginName) {
+        final StringBuilder b = new StringBuilder(DOMAIN)
+                .append(":type=").append(type)
+                .append(",deployment=").append(quoteIfNecessary(this.name));
+        if (pluginName != null) {
+            b.append(",name=").append(quoteIfNecessary(pluginName));
+        }
+        try {
+            return new ObjectName(b.toString());
+        } catch (final JMException e) {
+            LOG.warn("Invalid ObjectName '{}'", b, e);
+            return null;
+        }
+    }
+
+    /**
+     * Quotes the given ObjectName value only if it contains characters which
+     * are not allowed in unquoted values, so that common names can be used
+     * as they are.
+     */
+    private static String quoteIfNecessary(String value) {
+        for (int i = 0; i < value.length(); ++i) {
+            if (SPECIAL_CHARACTERS.indexOf(value.charAt(i)) >= 0) {
+                return ObjectName.quote(value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Unregisters all MBeans which have been registered by
+     * {@link #register(Collection)}.
+     */
+    synchronized void unregister() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (final ObjectName objectName : this.registered) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (final JMException e) {
+                LOG.warn("Could not unregister MBean '{}'", objectName, e);
+            }
+        }
+        this.registered.clear();
+    }
+
+    void packageIndexSize(int size) {
+        this.packageIndexSize = size;
+    }
+
+    void packageIndexLookup(boolean hit) {
+        if (hit) {
+            this.packageIndexHits.increment();
+        } else {
+            this.packageIndexMisses.increment();
+        }
+    }
+
+    void negativeCacheHit() {
+        this.negativeCacheHits.increment();
+    }
+
+    void classLookup(boolean hit, long nanos) {
+        this.classLookups.increment();
+        if (!hit) {
+            this.classLookupMisses.increment();
+        }
+        this.classLookupTime.add(nanos);
+    }
+
+    void resourceLookup() {
+        this.resourceLookups.increment();
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public int getPluginCount() {
+        return this.pluginCount;
+    }
+
+    @Override
+    public int getPackageIndexSize() {
+        return this.packageIndexSize;
+    }
+
+    @Override
+    public long getPackageIndexHits() {
+        return this.packageIndexHits.sum();
+    }
+
+    @Override
+    public long getPackageIndexMisses() {
+        return this.packageIndexMisses.sum();
+    }
+
+    @Override
+    public double getPackageIndexHitRate() {
+        final long hits = this.packageIndexHits.sum();
+        final long total = hits + this.packageIndexMisses.sum();
+        return total == 0
+                ? 0.0
+                : (double) hits / total;
+    }
+
+    @Override
+    public long getClassLookups() {
+        return this.classLookups.sum();
+    }
+
+    @Override
+    public long getClassLookupMisses() {
+        return this.classLookupMisses.sum();
+    }
+
+    @Override
+    public long getNegativeCacheHits() {
+        return this.negativeCacheHits.sum();
+    }
+
+    @Override
+    public long getResourceLookups() {
+        return this.resourceLookups.sum();
+    }
+
+    @Override
+    public long getClassLookupTimeNanos() {
+        return this.classLookupTime.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "DeploymentStatistics[" + this.name + "]";
+    }
+}
@@ -0,0 +1,99 @@
+package de.skuzzle.tinyplugz.internal;
+
+/**
+ * Management interface exposing class and resource look up statistics of a
+ * whole deployment. An MBean implementing this interface is registered for
+ * every deployment if
+ * {@link de.skuzzle.tinyplugz.Options#JMX_STATISTICS JMX_STATISTICS} is
+ * enabled.
+ *
+ * @author Simon Taddiken
+ * @since 0.4.0
+ */
+public interface DeploymentStatisticsMXBean {
+
+    /**
+     * The name of the deployment as used in the ObjectNames of its MBeans.
+     *
+     * @return The name.
+     */
+    String getName();
+
+    /**
+     * The number of deployed plugins.
+     *
+     * @return The number of plugins.
+     */
+    int getPluginCount();
+
+    /**
+     * The number of packages for which the deployment knows the plugins that
+     * contain them.
+     *
+     * @return The size of the package index.
+     */
+    int getPackageIndexSize();
+
+    /**
+     * Number of class look ups among the plugins whose package was contained
+     * in the package index.
+     *
+     * @return The number of hits.
+     */
+    long getPackageIndexHits();
+
+    /**
+     * Number of class look ups among the plugins whose package was not
+     * contained in the package index.
+     *
+     * @return The number of misses.
+     */
+    long getPackageIndexMisses();
+
+    /**
+     * Ratio of package index hits to all class look ups among the plugins
+     * which have not been answered by the negative look up cache.
+     *
+     * @return The hit rate between 0 and 1 or 0 if there were no look ups.
+     */
+    double getPackageIndexHitRate();
+
+    /**
+     * Number of class look ups among the plugins, either issued by a plugin
+     * or by the application.
+     *
+     * @return The number of look ups.
+     */
+    long getClassLookups();
+
+    /**
+     * Number of class look ups among the plugins which did not find the class.
+     *
+     * @return The number of misses.
+     */
+    long getClassLookupMisses();
+
+    /**
+     * Number of class and resource look ups which have been answered by the
+     * negative look up cache.
+     *
+     * @return The number of cached misses.
+     */
+    long getNegativeCacheHits();
+
+    /**
+     * Number of single resource look ups among the plugins.
+     *
+     * @return The number of look ups.
+     */
+    long getResourceLookups();
+
+    /**
+     * Cumulative time in nanoseconds spent searching classes among the
+     * plugins. Nested look ups are included in the time of the outer look up
+     * as well.
+     *
+     * @return The time in nanoseconds.
+     */
+    long getClassLookupTimeNanos();
+}
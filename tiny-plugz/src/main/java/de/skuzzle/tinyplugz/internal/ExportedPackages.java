@@ -0,0 +1,93 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import de.skuzzle.tinyplugz.util.Require;
+
+/**
+ * The packages of a plugin which are visible to other plugins, as declared by
+ * the {@code TinyPlugz-Export-Package} manifest attribute. An entry either
+ * names a single package or, if it ends with {@code .*}, a package and all of
+ * its sub packages.
+ *
+ * @author Simon Taddiken
+ */
+final class ExportedPackages {
+
+    private static final String WILDCARD = ".*";
+
+    /** To split the attribute value. */
+    private static final Pattern SEPARATORS = Pattern.compile("[,\\s]+");
+
+    /** Names of single exported packages. */
+    private final Set<String> packages;
+
+    /** Exported packages including their sub packages, each ending with a dot. */
+    private final List<String> prefixes;
+
+    private ExportedPackages(Set<String> packages, List<String> prefixes) {
+        this.packages = packages;
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * Parses the value of the export attribute.
+     *
+     * @param value The attribute value.
+     * @return The exported packages.
+     */
+    static ExportedPackages parse(String value) {
+        Require.nonNull(value, "value");
+        final Set<String> packages = new HashSet<>();
+        final List<String> prefixes = new ArrayList<>();
+        final String trimmed = value.trim();
+        if (!trimmed.isEmpty()) {
+            for (final String entry : SEPARATORS.split(trimmed)) {
+                if (entry.endsWith(WILDCARD)) {
+                    final String packageName = entry.substring(0,
+                            entry.length() - WILDCARD.length());
+                    packages.add(packageName);
+                    prefixes.add(packageName + ".");
+                } else {
+                    packages.add(entry);
+                }
+            }
+        }
+        return new ExportedPackages(Collections.unmodifiableSet(packages),
+                Collections.unmodifiableList(prefixes));
+    }
+
+    /**
+     * Whether the package with given name is visible to other plugins.
+     *
+     * @param packageName The package name. The default package is represented
+     *            by the empty String.
+     * @return Whether the package is exported.
+     */
+    boolean isExported(String packageName) {
+        if (this.packages.contains(packageName)) {
+            return true;
+        }
+        for (final String prefix : this.prefixes) {
+            if (packageName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        final List<String> all = new ArrayList<>(this.packages);
+        for (final String prefix : this.prefixes) {
+            all.add(prefix + "*");
+        }
+        Collections.sort(all);
+        return "ExportedPackages" + all;
+    }
+}
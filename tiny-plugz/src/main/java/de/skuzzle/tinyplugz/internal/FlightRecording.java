@@ -0,0 +1,147 @@
+package de.skuzzle.tinyplugz.internal;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Support for emitting Java Flight Recorder events. The JFR API is only
+ * available on Java 8u262 and later, so the event classes of this package must
+ * only be referenced if {@link #AVAILABLE} is <code>true</code>. All events
+ * are disabled by default and have to be enabled explicitly in the recording's
+ * settings, for example using
+ * <code>de.skuzzle.tinyplugz.ClassLookup#enabled=true</code>.
+ * <p>
+ * Code emitting an event follows this pattern:
+ * </p>
+ *
+ * <pre>
+ * final ClassLookupEvent event = FlightRecording.AVAILABLE
+ *         ? ClassLookupEvent.start()
+ *         : null;
+ * // perform the look up
+ * if (event != null) {
+ *     event.finish(...);
+ * }
+ * </pre>
+ *
+ * <p>
+ * {@code start()} returns <code>null</code> if the event is disabled in all
+ * running recordings. It checks the event's {@link jdk.jfr.EventType} before
+ * creating an event instance, so disabled events do not allocate.
+ * </p>
+ *
+ * @author Simon Taddiken
+ * @since 0.4.0
+ */
+public final class FlightRecording {
+
+    /** Whether the Java Flight Recorder API is available at runtime. */
+    public static final boolean AVAILABLE = isAvailable();
+
+    /** Outcome of a look up which found the requested element. */
+    static final String FOUND = "found";
+
+    /** Outcome of a look up which did not find the requested element. */
+    static final String NOT_FOUND = "notFound";
+
+    /**
+     * Outcome of a look up which has been answered by a negative look up
+     * cache.
+     */
+    static final String KNOWN_MISS = "knownMiss";
+
+    /** Outcome of an operation which completed normally. */
+    static final String SUCCESS = "success";
+
+    /** Outcome of an operation which threw an exception. */
+    static final String FAILURE = "failure";
+
+    /** Name of the application in the requestor and plugin fields. */
+    static final String APPLICATION = "application";
+
+    /**
+     * Name of the dependencies which are shared among plugins in the plugin
+     * field.
+     */
+    static final String SHARED_DEPENDENCIES = "sharedDependencies";
+
+    private FlightRecording() {
+        // hidden constructor
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false,
+                    FlightRecording.class.getClassLoader());
+            return true;
+        } catch (final ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Determines the name of the given requestor.
+     *
+     * @param requestor The requestor of a look up. <code>null</code> denotes
+     *            the application.
+     * @return The name.
+     */
+    static String nameOf(@Nullable DependencyResolver requestor) {
+        return requestor == null
+                ? APPLICATION
+                : requestor.getSimpleName();
+    }
+
+    /**
+     * Determines the name of the plugin which is represented by the given
+     * ClassLoader.
+     *
+     * @param classLoader The ClassLoader.
+     * @return The plugin's name, {@link #SHARED_DEPENDENCIES} for shared
+     *         dependencies, {@link #APPLICATION} if the ClassLoader does not
+     *         belong to a plugin or <code>null</code> if the given
+     *         ClassLoader is the {@link DelegateClassLoader} which represents
+     *         all plugins.
+     */
+    @Nullable
+    static String nameOf(@Nullable ClassLoader classLoader) {
+        if (classLoader instanceof PluginClassLoader) {
+            return ((PluginClassLoader) classLoader).getSimpleName();
+        } else if (classLoader instanceof PluginClassLoader.DependencyClassLoader) {
+            return ((PluginClassLoader.DependencyClassLoader) classLoader)
+                    .getPluginName();
+        } else if (classLoader instanceof DependencyLoaders.SharedDependencyClassLoader) {
+            return SHARED_DEPENDENCIES;
+        } else if (classLoader instanceof DelegateClassLoader) {
+            return null;
+        }
+        return APPLICATION;
+    }
+
+    /**
+     * Determines the name of the plugin which defined the given class.
+     *
+     * @param cls The class, may be <code>null</code>.
+     * @return The plugin's name, {@link #APPLICATION} if the class has not
+     *         been defined by a plugin or <code>null</code> if the class is
+     *         <code>null</code>.
+     */
+    @Nullable
+    static String pluginOf(@Nullable Class<?> cls) {
+        return cls == null
+                ? null
+                : nameOf(cls.getClassLoader());
+    }
+
+    /**
+     * Determines the outcome of a look up.
+     *
+     * @param result The result of the look up.
+     * @return {@link #FOUND} if the result is not <code>null</code>,
+     *         {@link #NOT_FOUND} otherwise.
+     */
+    static String outcomeOf(@Nullable Object result) {
+        return result == null
+                ? NOT_FOUND
+                : FOUND;
+    }
+}
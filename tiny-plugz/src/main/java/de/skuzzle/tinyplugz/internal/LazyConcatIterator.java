@@ -0,0 +1,96 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import de.skuzzle.tinyplugz.util.ElementIterator;
+import de.skuzzle.tinyplugz.util.Require;
+
+/**
+ * Iterator which subsequently iterates the elements of multiple sources. Apart
+ * from the first one, a source is not opened before all elements of the
+ * previous sources have been consumed.
+ *
+ * @author Simon Taddiken
+ * @param <T> Type of the iterator's elements.
+ */
+final class LazyConcatIterator<T> implements ElementIterator<T> {
+
+    /**
+     * Provides the elements of a single source.
+     *
+     * @author Simon Taddiken
+     * @param <T> Type of the elements.
+     */
+    @FunctionalInterface
+    interface Source<T> {
+
+        /**
+         * Opens this source.
+         *
+         * @return Iterator over the elements of this source.
+         * @throws IOException If opening the source fails.
+         */
+        Iterator<T> open() throws IOException;
+    }
+
+    private final Iterator<? extends Source<T>> sources;
+    private Iterator<T> current;
+
+    private LazyConcatIterator(Iterator<? extends Source<T>> sources) {
+        this.sources = sources;
+        this.current = Collections.emptyIterator();
+    }
+
+    /**
+     * Creates an iterator over the elements of all given sources. The first
+     * source is opened immediately, so that failing to open it is reported by
+     * this method. Failing to open one of the remaining sources is reported by
+     * {@link #hasNext()} as {@link UncheckedIOException}.
+     *
+     * @param <T> Type of the elements.
+     * @param sources The sources in iteration order.
+     * @return The iterator.
+     * @throws IOException If opening the first source fails.
+     */
+    static <T> ElementIterator<T> of(Iterator<? extends Source<T>> sources)
+            throws IOException {
+        Require.nonNull(sources, "sources");
+        final LazyConcatIterator<T> result = new LazyConcatIterator<>(sources);
+        if (sources.hasNext()) {
+            result.current = sources.next().open();
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException If opening the next source fails.
+     */
+    @Override
+    public boolean hasNext() {
+        while (!this.current.hasNext()) {
+            if (!this.sources.hasNext()) {
+                return false;
+            }
+            try {
+                this.current = this.sources.next().open();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.current.next();
+    }
+}
@@ -0,0 +1,273 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.skuzzle.tinyplugz.Options;
+import de.skuzzle.tinyplugz.TinyPlugzException;
+import de.skuzzle.tinyplugz.util.Require;
+
+/**
+ * Provides the locks which synchronize class loading among all plugin
+ * ClassLoaders of a single deployment. Implementations guarantee that all
+ * threads which concurrently acquire a lock for the same class name obtain the
+ * same lock object and that different class names never share a lock. Sharing
+ * a lock between different names would allow two threads to wait for each
+ * other while loading nested classes.
+ * <p>
+ * Every call to {@link #acquire(String)} must be followed by exactly one call
+ * to {@link #release(String, Object)} after the lock is no longer used.
+ *
+ * @author Simon Taddiken
+ */
+abstract class LockTable {
+
+    /** Value of {@link Options#CLASS_LOADING_LOCKS} for a weak lock table. */
+    static final String WEAK = "weak";
+
+    /** Value of {@link Options#CLASS_LOADING_LOCKS} for an unbounded lock table. */
+    static final String UNBOUNDED = "unbounded";
+
+    /**
+     * Creates a table which keeps a lock for every class name which has ever
+     * been requested until it is {@link #clear() cleared}.
+     *
+     * @return The lock table.
+     */
+    static LockTable unbounded() {
+        return new UnboundedLockTable();
+    }
+
+    /**
+     * Creates a table which only weakly references its locks. A lock is
+     * discarded by the garbage collector as soon as no thread is using it.
+     *
+     * @return The lock table.
+     */
+    static LockTable weak() {
+        return new WeakLockTable();
+    }
+
+    /**
+     * Creates a table which keeps track of the threads using each lock. Locks
+     * which are not in use are discarded as soon as the table grows beyond the
+     * given size.
+     *
+     * @param maxSize Number of locks to keep before unused locks are
+     *            discarded.
+     * @return The lock table.
+     */
+    static LockTable bounded(int maxSize) {
+        Require.condition(maxSize > 0, "maxSize must be positive: %d", maxSize);
+        return new BoundedLockTable(maxSize);
+    }
+
+    /**
+     * Creates the lock table described by the given value of the
+     * {@link Options#CLASS_LOADING_LOCKS} property.
+     *
+     * @param value The property value, may be <code>null</code>.
+     * @return The lock table.
+     * @throws TinyPlugzException If the value is not valid.
+     */
+    static LockTable fromProperty(@Nullable Object value) {
+        if (value == null || WEAK.equals(value.toString())) {
+            return weak();
+        } else if (UNBOUNDED.equals(value.toString())) {
+            return unbounded();
+        }
+        try {
+            return bounded(Integer.parseInt(value.toString().trim()));
+        } catch (final IllegalArgumentException e) {
+            throw new TinyPlugzException(String.format("'%s' is not valid for '%s'",
+                    value, Options.CLASS_LOADING_LOCKS), e);
+        }
+    }
+
+    /**
+     * Gets the lock object for the class with given name.
+     *
+     * @param className The class name.
+     * @return The lock object.
+     */
+    abstract Object acquire(String className);
+
+    /**
+     * Signals that the given lock, which has been obtained by
+     * {@link #acquire(String)}, is no longer used by the current thread.
+     *
+     * @param className The class name.
+     * @param lock The lock object.
+     */
+    void release(String className, Object lock) {
+        // nothing to do by default
+    }
+
+    /**
+     * Discards all locks. Called when the ClassLoaders using this table are
+     * closed.
+     */
+    abstract void clear();
+
+    /**
+     * The number of locks currently held by this table.
+     *
+     * @return The number of locks.
+     */
+    abstract int size();
+
+    private static final class UnboundedLockTable extends LockTable {
+
+        private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+        @Override
+        Object acquire(String className) {
+            return this.locks.computeIfAbsent(className, k -> new Object());
+        }
+
+        @Override
+        void clear() {
+            this.locks.clear();
+        }
+
+        @Override
+        int size() {
+            return this.locks.size();
+        }
+
+        @Override
+        public String toString() {
+            return "UnboundedLockTable[size=" + size() + "]";
+        }
+    }
+
+    private static final class WeakLockTable extends LockTable {
+
+        private static final class LockReference extends WeakReference<Object> {
+            private final String className;
+
+            private LockReference(String className, Object lock,
+                    ReferenceQueue<Object> queue) {
+                super(lock, queue);
+                this.className = className;
+            }
+        }
+
+        private final Map<String, LockReference> locks = new ConcurrentHashMap<>();
+        private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+        @Override
+        Object acquire(String className) {
+            expungeStaleLocks();
+            while (true) {
+                final LockReference ref = this.locks.get(className);
+                final Object existing = ref == null
+                        ? null
+                        : ref.get();
+                if (existing != null) {
+                    return existing;
+                }
+
+                // the caller holds a strong reference to the lock for as long
+                // as it is in use, so it can not be collected meanwhile
+                final Object lock = new Object();
+                final LockReference newRef = new LockReference(className, lock,
+                        this.queue);
+                final boolean success = ref == null
+                        ? this.locks.putIfAbsent(className, newRef) == null
+                        : this.locks.replace(className, ref, newRef);
+                if (success) {
+                    return lock;
+                }
+            }
+        }
+
+        private void expungeStaleLocks() {
+            LockReference ref;
+            while ((ref = (LockReference) this.queue.poll()) != null) {
+                this.locks.remove(ref.className, ref);
+            }
+        }
+
+        @Override
+        void clear() {
+            this.locks.clear();
+            expungeStaleLocks();
+        }
+
+        @Override
+        int size() {
+            expungeStaleLocks();
+            return this.locks.size();
+        }
+
+        @Override
+        public String toString() {
+            return "WeakLockTable[size=" + size() + "]";
+        }
+    }
+
+    private static final class BoundedLockTable extends LockTable {
+
+        private static final class CountingLock {
+            /** Number of threads using this lock. Guarded by the map. */
+            private int users;
+        }
+
+        private final int maxSize;
+        private final Map<String, CountingLock> locks = new ConcurrentHashMap<>();
+
+        private BoundedLockTable(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        Object acquire(String className) {
+            return this.locks.compute(className, (k, lock) -> {
+                final CountingLock result = lock == null
+                        ? new CountingLock()
+                        : lock;
+                ++result.users;
+                return result;
+            });
+        }
+
+        @Override
+        void release(String className, Object lock) {
+            this.locks.computeIfPresent(className, (k, existing) -> {
+                --existing.users;
+                return existing;
+            });
+            if (this.locks.size() > this.maxSize) {
+                discardUnused();
+            }
+        }
+
+        private void discardUnused() {
+            for (final String className : this.locks.keySet()) {
+                this.locks.computeIfPresent(className, (k, lock) -> lock.users == 0
+                        ? null
+                        : lock);
+            }
+        }
+
+        @Override
+        void clear() {
+            this.locks.clear();
+        }
+
+        @Override
+        int size() {
+            return this.locks.size();
+        }
+
+        @Override
+        public String toString() {
+            return "BoundedLockTable[size=" + size() + ", maxSize=" + this.maxSize + "]";
+        }
+    }
+}
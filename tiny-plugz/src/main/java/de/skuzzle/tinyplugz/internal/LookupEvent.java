@@ -0,0 +1,63 @@
+package de.skuzzle.tinyplugz.internal;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Common base of the Flight Recorder events which are emitted for class,
+ * resource and service look ups. The duration of the event is the time spent
+ * between {@link #begin()} and {@link #finish(String, String, String, String)}.
+ * <p>
+ * This class must only be referenced if {@link FlightRecording#AVAILABLE} is
+ * <code>true</code>.
+ * </p>
+ *
+ * @author Simon Taddiken
+ */
+@Category("TinyPlugz")
+@Enabled(false)
+@StackTrace(false)
+abstract class LookupEvent extends Event {
+
+    @Label("Requestor")
+    @Nullable
+    String requestor;
+
+    @Label("Plugin")
+    @Nullable
+    String plugin;
+
+    @Label("Name")
+    @Nullable
+    String name;
+
+    @Label("Outcome")
+    @Nullable
+    String outcome;
+
+    /**
+     * Ends this event and commits it if it passes the recording's threshold.
+     *
+     * @param requestor The name of the plugin which requested the element.
+     * @param plugin The name of the plugin which has been searched or which
+     *            provided the element.
+     * @param name The name of the requested element.
+     * @param outcome The outcome of the look up.
+     */
+    final void finish(@Nullable String requestor, @Nullable String plugin,
+            String name, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.requestor = requestor;
+            this.plugin = plugin;
+            this.name = name;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
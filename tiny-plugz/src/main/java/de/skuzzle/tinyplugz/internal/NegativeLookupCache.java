@@ -0,0 +1,136 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.skuzzle.tinyplugz.util.Require;
+
+/**
+ * Remembers names which could not be found by a certain requestor. This allows
+ * to answer repeated look ups of non existent classes or resources without
+ * searching all plugins again. The cache is bounded: once the maximum number
+ * of entries has been reached, all entries are discarded at once.
+ *
+ * @author Simon Taddiken
+ */
+final class NegativeLookupCache {
+
+    /** Key used for look ups which are not requested by a plugin. */
+    private static final Object APPLICATION = new Object();
+
+    private final int maxSize;
+    private final Map<Object, Set<String>> misses;
+    private final AtomicInteger size;
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize The maximum number of names to remember. If 0, the cache
+     *            is disabled and will never remember any name.
+     */
+    NegativeLookupCache(int maxSize) {
+        Require.condition(maxSize >= 0, "maxSize must not be negative: %d", maxSize);
+        this.maxSize = maxSize;
+        this.misses = new ConcurrentHashMap<>();
+        this.size = new AtomicInteger();
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+    }
+
+    private Object keyOf(@Nullable DependencyResolver requestor) {
+        return requestor == null
+                ? APPLICATION
+                : requestor;
+    }
+
+    /**
+     * Checks whether the given name is known to not exist for the given
+     * requestor.
+     *
+     * @param requestor The requesting plugin or <code>null</code> for the
+     *            application.
+     * @param name The name to check.
+     * @return Whether the name has previously been recorded as missing.
+     */
+    boolean isKnownMiss(@Nullable DependencyResolver requestor, String name) {
+        if (this.maxSize == 0) {
+            return false;
+        }
+        final Set<String> names = this.misses.get(keyOf(requestor));
+        if (names != null && names.contains(name)) {
+            this.hitCount.increment();
+            return true;
+        }
+        this.missCount.increment();
+        return false;
+    }
+
+    /**
+     * Records that the given name could not be found for the given requestor.
+     *
+     * @param requestor The requesting plugin or <code>null</code> for the
+     *            application.
+     * @param name The name which could not be found.
+     */
+    void recordMiss(@Nullable DependencyResolver requestor, String name) {
+        if (this.maxSize == 0) {
+            return;
+        }
+        if (this.size.get() >= this.maxSize) {
+            invalidate();
+        }
+        final Set<String> names = this.misses.computeIfAbsent(keyOf(requestor),
+                key -> ConcurrentHashMap.newKeySet());
+        if (names.add(name)) {
+            this.size.incrementAndGet();
+        }
+    }
+
+    /**
+     * Discards all recorded names.
+     */
+    void invalidate() {
+        this.misses.clear();
+        this.size.set(0);
+    }
+
+    /**
+     * Number of names currently remembered by this cache.
+     *
+     * @return The number of names.
+     */
+    int size() {
+        return this.size.get();
+    }
+
+    /**
+     * Number of look ups which could be answered by this cache.
+     *
+     * @return The hit count.
+     */
+    long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    /**
+     * Number of look ups which could not be answered by this cache.
+     *
+     * @return The miss count.
+     */
+    long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NegativeLookupCache[size=%d, hits=%d, misses=%d]",
+                size(), getHitCount(), getMissCount());
+    }
+}
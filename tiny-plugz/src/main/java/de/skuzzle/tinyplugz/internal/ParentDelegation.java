@@ -0,0 +1,141 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.skuzzle.tinyplugz.Options;
+import de.skuzzle.tinyplugz.TinyPlugzException;
+import de.skuzzle.tinyplugz.util.Require;
+
+/**
+ * Decides whether a plugin ClassLoader asks its parent ClassLoader before or
+ * after searching the plugins for a class. By default, every class is looked
+ * up in the parent first. If {@link Options#PARENT_FIRST_PACKAGES} is
+ * specified, only classes whose names start with one of the configured
+ * prefixes are looked up in the parent first. All other classes are looked up
+ * in the plugins first and the parent is only consulted if no plugin contains
+ * the class.
+ *
+ * @author Simon Taddiken
+ */
+final class ParentDelegation {
+
+    /** Classes from this package can only ever be defined by the VM. */
+    private static final String JAVA_PREFIX = "java.";
+
+    /** To split the property value. */
+    private static final Pattern SEPARATORS = Pattern.compile("[,\\s]+");
+
+    private static final ParentDelegation ALWAYS = new ParentDelegation(null);
+
+    /** The parent first prefixes or <code>null</code> for all classes. */
+    @Nullable
+    private final String[] prefixes;
+
+    private ParentDelegation(@Nullable String[] prefixes) {
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * Creates a delegation which looks up every class in the parent first.
+     *
+     * @return The delegation.
+     */
+    static ParentDelegation parentFirst() {
+        return ALWAYS;
+    }
+
+    /**
+     * Creates a delegation which only looks up classes within the given
+     * packages in the parent first. Classes from <code>java.</code> are
+     * always looked up in the parent first.
+     *
+     * @param prefixes Prefixes of full qualified class names, e.g.
+     *            <code>"javax."</code>.
+     * @return The delegation.
+     */
+    static ParentDelegation parentFirst(Collection<String> prefixes) {
+        Require.nonNull(prefixes, "prefixes");
+        final Set<String> result = new LinkedHashSet<>();
+        result.add(JAVA_PREFIX);
+        for (final String prefix : prefixes) {
+            Require.nonNull(prefix, "prefix");
+            final String trimmed = prefix.trim();
+            Require.condition(!trimmed.isEmpty(), "prefix must not be empty");
+            result.add(trimmed);
+        }
+        return new ParentDelegation(result.toArray(new String[result.size()]));
+    }
+
+    /**
+     * Creates the delegation described by the given value of the
+     * {@link Options#PARENT_FIRST_PACKAGES} property.
+     *
+     * @param value The property value, may be <code>null</code>.
+     * @return The delegation.
+     * @throws TinyPlugzException If the value is not valid.
+     */
+    static ParentDelegation fromProperty(@Nullable Object value) {
+        if (value == null) {
+            return parentFirst();
+        }
+        try {
+            if (value instanceof Collection<?>) {
+                return parentFirst(toStrings((Collection<?>) value));
+            } else if (value instanceof String[]) {
+                return parentFirst(Arrays.asList((String[]) value));
+            } else if (value instanceof String) {
+                final String trimmed = ((String) value).trim();
+                return parentFirst(trimmed.isEmpty()
+                        ? Arrays.asList()
+                        : Arrays.asList(SEPARATORS.split(trimmed)));
+            }
+        } catch (final IllegalArgumentException e) {
+            throw new TinyPlugzException(String.format("'%s' is not valid for '%s'",
+                    value, Options.PARENT_FIRST_PACKAGES), e);
+        }
+        throw new TinyPlugzException(String.format("'%s' is not valid for '%s'",
+                value, Options.PARENT_FIRST_PACKAGES));
+    }
+
+    private static Collection<String> toStrings(Collection<?> values) {
+        final Collection<String> result = new LinkedHashSet<>(values.size());
+        for (final Object value : values) {
+            Require.condition(value instanceof String, "not a String: %s", value);
+            result.add((String) value);
+        }
+        return result;
+    }
+
+    /**
+     * Whether the class with given name is looked up in the parent ClassLoader
+     * before searching the plugins.
+     *
+     * @param className The full qualified class name.
+     * @return Whether to ask the parent first.
+     */
+    boolean isParentFirst(String className) {
+        final String[] p = this.prefixes;
+        if (p == null) {
+            return true;
+        }
+        for (final String prefix : p) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return this.prefixes == null
+                ? "ParentDelegation[all]"
+                : "ParentDelegation" + Arrays.toString(this.prefixes);
+    }
+}
@@ -9,10 +9,9 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
 import java.util.jar.Attributes.Name;
 import java.util.jar.Manifest;
 import java.util.regex.Pattern;
@@ -21,7 +20,11 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.skuzzle.tinyplugz.MetricsRecorder;
 import de.skuzzle.tinyplugz.PluginInformation;
+import de.skuzzle.tinyplugz.internal.DependencyLoaders.SharedDependencyClassLoader;
+import de.skuzzle.tinyplugz.internal.LazyConcatIterator.Source;
+import de.skuzzle.tinyplugz.internal.PluginLoaderContext.LookupFrame;
 import de.skuzzle.tinyplugz.util.Closeables;
 import de.skuzzle.tinyplugz.util.ElementIterator;
 import de.skuzzle.tinyplugz.util.Require;
@@ -36,10 +39,13 @@ import de.skuzzle.tinyplugz.util.Require;
  */
 final class PluginClassLoader extends URLClassLoader implements DependencyResolver {
 
-    private static final Logger LOG = LoggerFactory.getLogger(PluginClassLoader.class);
+    static {
+        // Otherwise the VM additionally locks the ClassLoader instance while
+        // defining classes, which would defeat our own locking strategy
+        registerAsParallelCapable();
+    }
 
-    /** Holds a lock object per class name shared among all plugin ClassLoaders. */
-    private static final Map<String, Object> STATIC_LOCK_MAP = new ConcurrentHashMap<>();
+    private static final Logger LOG = LoggerFactory.getLogger(PluginClassLoader.class);
 
     /**
      * Some static manifest file names in case the underlying file system is
@@ -55,6 +61,22 @@ final class PluginClassLoader extends URLClassLoader implements DependencyResolv
     /** To split classpath entries. */
     private static final Pattern WHITESPACES = Pattern.compile("\\s+");
 
+    /** To split the names of required plugins. */
+    private static final Pattern SEPARATORS = Pattern.compile("[,\\s]+");
+
+    /**
+     * Manifest attribute which lists the names of the plugins that are
+     * required by the plugin. If present, only the listed plugins are searched
+     * for classes and resources requested by the plugin.
+     */
+    static final Name REQUIRES = new Name("TinyPlugz-Requires");
+
+    /**
+     * Manifest attribute which lists the packages of the plugin that are
+     * visible to other plugins. If absent, all packages are visible.
+     */
+    static final Name EXPORT_PACKAGE = new Name("TinyPlugz-Export-Package");
+
     /** URL to the plugin this loader belongs to. */
     private final URL self;
 
@@ -64,58 +86,115 @@ final class PluginClassLoader extends URLClassLoader implements DependencyResolv
     /** A simple name describing the plugin loaded by this loader */
     private final String simpleName;
 
+    /**
+     * The dependencies stated in plugin's MANIFEST Class-Path entry. Empty if
+     * this plugin has no dependencies.
+     */
+    private final URL[] dependencies;
+
+    /**
+     * Loaders of the dependencies which are shared with other plugins. They
+     * are owned by the {@link DependencyLoaders}. This list will be empty if
+     * no dependency is shared. It is assigned by {@link #linkDependencies()}
+     * before the deployment is published.
+     */
+    private List<SharedDependencyClassLoader> sharedDependencies;
+
     /**
      * Optionally created loader to access dependencies stated in plugin's
-     * MANIFEST Class-Path entry. This field will be <code>null</code> if this
-     * plugin has no dependencies.
+     * MANIFEST Class-Path entry. It loads the dependencies which are not
+     * shared and searches the {@link #sharedDependencies} before. This field
+     * will be <code>null</code> if this plugin has no dependencies. It is
+     * assigned by {@link #linkDependencies()} before the deployment is
+     * published.
      */
-    private final URLClassLoader dependencyClassLoader;
+    @Nullable
+    private DependencyClassLoader dependencyClassLoader;
 
     /** Resolver to access classes and resources from other loaded plugins. */
     private final DependencyResolver dependencyResolver;
 
+    /** State shared among all plugin ClassLoaders of the deployment. */
+    private final PluginLoaderContext context;
+
     /** The contents of the manifest.mf of this plugin. */
     private final Manifest manifest;
 
     private final PluginInformation information;
 
     /**
-     * Counts nested calls to {@link #loadClass(String, boolean)} coming from
-     * other plugins.
+     * Names of the plugins required by this plugin. This field will be
+     * <code>null</code> if the plugin does not declare its requirements.
      */
-    private final ThreadLocal<Integer> foreignEnterCount;
+    @Nullable
+    private final List<String> requiredPlugins;
 
-    /** Counts all nested calls to {@link #loadClass(String, boolean)}. */
-    private final ThreadLocal<Integer> localEnterCount;
+    /**
+     * Packages of this plugin which are visible to other plugins. This field
+     * will be <code>null</code> if the plugin exports all of its packages.
+     */
+    @Nullable
+    private final ExportedPackages exportedPackages;
+
+    /**
+     * Index of the plugin's contents. This field will be <code>null</code> if
+     * the plugin's contents could not be enumerated.
+     */
+    @Nullable
+    private final PluginIndex index;
+
+    /**
+     * Statistics of this plugin. This field will be <code>null</code> if
+     * collecting statistics is disabled.
+     */
+    @Nullable
+    private final PluginStatistics statistics;
+
+    /**
+     * Receives the measurements of this plugin. This field will be
+     * <code>null</code> if no measurements should be taken.
+     */
+    @Nullable
+    private final MetricsRecorder metrics;
 
     private PluginClassLoader(URL pluginUrl, ClassLoader appClassLoader,
-            DependencyResolver dependencyResolver) {
+            DependencyResolver dependencyResolver, PluginLoaderContext context) {
         super(new URL[] { pluginUrl }, appClassLoader);
 
-        this.foreignEnterCount = ThreadLocal.withInitial(() -> 0);
-        this.localEnterCount = ThreadLocal.withInitial(() -> 0);
+        this.context = context;
         this.dependencyResolver = dependencyResolver;
         this.self = pluginUrl;
         this.basePath = getBasePathOf(pluginUrl);
 
         this.manifest = readManifest();
         this.simpleName = getName(this.manifest, pluginUrl);
-        this.dependencyClassLoader = createDependencyClassLoader(this.manifest);
+        this.dependencies = readDependencies(this.manifest);
+        this.sharedDependencies = Collections.emptyList();
+        context.getDependencyLoaders().register(this.dependencies);
+        this.requiredPlugins = readRequiredPlugins(this.manifest);
+        this.exportedPackages = readExportedPackages(this.manifest);
         this.information = new PluginInformationImpl();
+        this.index = PluginIndex.of(pluginUrl);
+        this.statistics = context.getStatistics() == null
+                ? null
+                : new PluginStatistics(this.simpleName);
+        this.metrics = context.getMetrics();
     }
 
     static PluginClassLoader create(URL plugin, ClassLoader appClassLoader,
-            DependencyResolver dependencyResolver) {
+            DependencyResolver dependencyResolver, PluginLoaderContext context) {
         Require.nonNull(plugin, "plugin");
         Require.nonNull(appClassLoader, "appClassLoader");
         Require.nonNull(dependencyResolver, "dependencyResolver");
+        Require.nonNull(context, "context");
 
         return AccessController.doPrivileged(new PrivilegedAction<PluginClassLoader>() {
 
             @Override
             public PluginClassLoader run() {
                 LOG.debug("Loading plugin from {}", plugin);
-                return new PluginClassLoader(plugin, appClassLoader, dependencyResolver);
+                return new PluginClassLoader(plugin, appClassLoader, dependencyResolver,
+                        context);
             }
 
         });
@@ -130,6 +209,63 @@ final class PluginClassLoader extends URLClassLoader implements DependencyResolv
         return this.information;
     }
 
+    /**
+     * Gets the state which is shared by all ClassLoaders of the deployment
+     * this plugin belongs to.
+     *
+     * @return The context.
+     */
+    final PluginLoaderContext getContext() {
+        return this.context;
+    }
+
+    /**
+     * Gets the index of the plugin's contents which has been built when this
+     * ClassLoader was created.
+     *
+     * @return The index or <code>null</code> if the plugin's contents could not
+     *         be enumerated.
+     */
+    @Nullable
+    final PluginIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Gets the statistics of this plugin.
+     *
+     * @return The statistics or <code>null</code> if collecting statistics is
+     *         disabled.
+     */
+    @Nullable
+    final PluginStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Gets the names of the plugins which are required by this plugin as
+     * declared by the {@link #REQUIRES} manifest attribute.
+     *
+     * @return The names of the required plugins or <code>null</code> if the
+     *         plugin does not declare its requirements.
+     */
+    @Nullable
+    final List<String> getRequiredPlugins() {
+        return this.requiredPlugins;
+    }
+
+    /**
+     * Gets the packages of this plugin which are visible to other plugins as
+     * declared by the {@link #EXPORT_PACKAGE} manifest attribute.
+     *
+     * @return The exported packages or <code>null</code> if all packages are
+     *         exported.
+     */
+    @Nullable
+    final ExportedPackages getExportedPackages() {
+        return this.exportedPackages;
+    }
+
     /**
      * Gets the base path of the plugin loaded by this Classloader. If the
      * plugin was loaded from a jar, its base path is the folder that contains
@@ -144,53 +280,95 @@ final class PluginClassLoader extends URLClassLoader implements DependencyResolv
         return this.basePath;
     }
 
-    @Override
-    protected final Object getClassLoadingLock(String className) {
-        // synchronizes class loading among all plugin classloaders.
-        return STATIC_LOCK_MAP.computeIfAbsent(className, k -> new Object());
-    }
-
     @Override
     protected final Class<?> loadClass(String name, boolean resolve)
             throws ClassNotFoundException {
 
         LOG.trace("{}.loadClass('{}')", getSimpleName(), name);
 
-        final int localCount = this.localEnterCount.get();
+        // A request is foreign if this very call has been issued by
+        // loadClassForForeignPlugin. All nested calls on this thread are made
+        // on behalf of the classes defined by this loader.
+        final LookupFrame frame = this.context.currentFrame();
+        final boolean foreign = frame.foreignTarget == this
+            && frame.foreignDepth == frame.depth;
+
+        // synchronizes class loading among all plugin classloaders.
+        final LockTable locks = this.context.getLocks();
+        final boolean measure = this.statistics != null || this.metrics != null;
+        final long start = measure
+                ? System.nanoTime()
+                : 0L;
+        final ClassLookupEvent event = FlightRecording.AVAILABLE
+                ? ClassLookupEvent.start(ClassLookupEvent.LOAD_CLASS)
+                : null;
+        final Object lock = locks.acquire(name);
+        ++frame.depth;
+        Class<?> result = null;
+        try {
+            result = loadClassLocked(name, resolve, foreign, lock);
+            return result;
+        } finally {
+            --frame.depth;
+            locks.release(name, lock);
+            if (measure) {
+                recordLoadClass(name, result != null, System.nanoTime() - start);
+            }
+            if (event != null) {
+                event.finish(getSimpleName(), FlightRecording.pluginOf(result), name,
+                        FlightRecording.outcomeOf(result));
+            }
+        }
+    }
+
+    private void recordLoadClass(String name, boolean found, long nanos) {
+        if (this.statistics != null) {
+            this.statistics.loadClass(nanos);
+        }
+        if (this.metrics != null) {
+            this.metrics.classLookup(this.simpleName, name, found, nanos);
+        }
+    }
+
+    private Class<?> loadClassLocked(String name, boolean resolve, boolean foreign,
+            Object lock) throws ClassNotFoundException {
         Class<?> c;
-        synchronized (getClassLoadingLock(name)) {
+        synchronized (lock) {
             c = findLoadedClass(name);
-            try {
-                // count every nested call per thread to distinguish between
-                // direct calls to this method and calls coming from other
-                // plugins.
-                this.localEnterCount.set(localCount + 1);
-
-                if (c == null) {
-                    try {
-                        c = getParent().loadClass(name);
-                    } catch (final ClassNotFoundException ignore) {
-                        // do nothing but continue search
-                        LOG.trace("Class '{}' not found using parent '{}' of '{}'", name,
-                                getParent(), getSimpleName(), ignore);
-                    }
-                }
 
-                if (c == null) {
-                    if (this.foreignEnterCount.get().equals(this.localEnterCount.get())) {
-                        // load class request from foreign plugin. We only look
-                        // up the requested class in our own class path without
-                        // querying the other plugins
-                        c = super.findClass(name);
-                    } else {
-                        // load class request from own plugin. We need to query
-                        // the other plugin ClassLoaders too in case this is not
-                        // a class from our own class path.
-                        c = findClass(name);
+            // Requests from foreign plugins are checked against our parent by
+            // the requesting plugin, because all plugins share the same parent
+            final boolean parentFirst = !foreign
+                && this.context.getParentDelegation().isParentFirst(name);
+            if (c == null && parentFirst) {
+                c = loadFromParent(name);
+            }
+
+            if (c == null) {
+                if (foreign) {
+                    // load class request from foreign plugin. We only look
+                    // up the requested class in our own class path without
+                    // querying the other plugins
+                    c = super.findClass(name);
+                    if (this.statistics != null) {
+                        this.statistics.classDefined();
                     }
+                } else {
+                    // load class request from own plugin. We need to query
+                    // the other plugin ClassLoaders too in case this is not
+                    // a class from our own class path.
+                    c = findClass(this, name);
                 }
-            } finally {
-                this.localEnterCount.set(localCount);
+            }
+
+            if (c == null && !foreign && !parentFirst) {
+                // plugin first: the parent is only asked if no plugin
+                // contains the class
+                c = loadFromParent(name);
+            }
+
+            if (c == null) {
+                throw new ClassNotFoundException(name);
             }
 
             if (resolve) {
@@ -205,6 +383,18 @@ final class PluginClassLoader extends URLClassLoader implements DependencyResolv
         }
     }
 
+    @Nullable
+    private Class<?> loadFromParent(String name) {
+        try {
+            return getParent().loadClass(name);
+        } catch (final ClassNotFoundException ignore) {
+            // do nothing but continue search
+            LOG.trace("Class '{}' not found using parent '{}' of '{}'", name,
+                    getParent(), getSimpleName(), ignore);
+            return null;
+        }
+    }
+
     private String getBasePathOf(URL url) {
         String path = url.getPath();
         // If the url ends with '/' it already denotes the base directory.
@@ -258,44 +448,78 @@ final class PluginClassLoader extends URLClassLoader implements DependencyResolv
         return result;
     }
 
-    private DependencyClassLoader createDependencyClassLoader(Manifest mf) {
-        final DependencyClassLoader result;
-        final String cp = mf.getMainAttributes().getValue(Name.CLASS_PATH);
-        if (cp == null) {
-            LOG.debug("Plugin '{}' has no Class-Path attribute", getSimpleName());
-            result = null;
-        } else {
-            final String[] entries = WHITESPACES.split(cp);
-            result = fromClassPath(entries);
+    @Nullable
+    private List<String> readRequiredPlugins(Manifest mf) {
+        final String requires = mf.getMainAttributes().getValue(REQUIRES);
+        if (requires == null) {
+            return null;
         }
+        final String trimmed = requires.trim();
+        final List<String> result = trimmed.isEmpty()
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(Arrays.asList(SEPARATORS.split(trimmed)));
+        LOG.debug("Plugin '{}' requires {}", getSimpleName(), result);
+        return result;
+    }
 
+    @Nullable
+    private ExportedPackages readExportedPackages(Manifest mf) {
+        final String exports = mf.getMainAttributes().getValue(EXPORT_PACKAGE);
+        if (exports == null) {
+            return null;
+        }
+        final ExportedPackages result = ExportedPackages.parse(exports);
+        LOG.debug("Plugin '{}' exports {}", getSimpleName(), result);
         return result;
     }
 
-    private DependencyClassLoader fromClassPath(String[] entries) {
-        final URL[] urls = Arrays.stream(entries)
+    private URL[] readDependencies(Manifest mf) {
+        final String cp = mf.getMainAttributes().getValue(Name.CLASS_PATH);
+        if (cp == null) {
+            LOG.debug("Plugin '{}' has no Class-Path attribute", getSimpleName());
+            return new URL[0];
+        }
+        return Arrays.stream(WHITESPACES.split(cp))
                 .map(this::resolveRelative)
                 .filter(url -> url != null)
                 .peek(url ->
                         LOG.debug("Add dependency of <{}>: '{}'", getSimpleName(), url)
                 )
                 .toArray(size -> new URL[size]);
+    }
 
-        if (urls.length > 0) {
-            return AccessController.doPrivileged(
-                    new PrivilegedAction<DependencyClassLoader>() {
-
-                        // Dependency classloader gets the same parent as the
-                        // plugin loader -> dependencies can not load classes
-                        // from plugins
-                        @Override
-                        public DependencyClassLoader run() {
-                            return new DependencyClassLoader(urls,
-                                    PluginClassLoader.this.getParent());
-                        }
-                    });
+    /**
+     * Creates the loader for the dependencies stated in the plugin's manifest.
+     * Must be called once after the dependencies of all plugins of the
+     * deployment have been registered with the {@link DependencyLoaders}, so
+     * that the dependencies which are shared with other plugins are known.
+     */
+    final void linkDependencies() {
+        if (this.dependencies.length == 0) {
+            return;
         }
-        return null;
+        final DependencyLoaders dependencyLoaders = this.context.getDependencyLoaders();
+        final List<SharedDependencyClassLoader> shared = dependencyLoaders.obtain(
+                this.dependencies, getParent());
+        final URL[] own = Arrays.stream(this.dependencies)
+                .filter(url -> !dependencyLoaders.isShared(url))
+                .toArray(size -> new URL[size]);
+        if (!shared.isEmpty()) {
+            LOG.debug("Plugin '{}' uses {}", getSimpleName(), shared);
+        }
+        this.sharedDependencies = shared;
+        this.dependencyClassLoader = AccessController.doPrivileged(
+                new PrivilegedAction<DependencyClassLoader>() {
+
+                    // Dependency classloader gets the same parent as the
+                    // plugin loader -> dependencies can not load classes
+                    // from plugins.
+                    @Override
+                    public DependencyClassLoader run() {
+                        return new DependencyClassLoader(own, shared,
+                                PluginClassLoader.this.getParent());
+                    }
+                });
     }
 
     private URL resolveRelative(String name) {
@@ -337,14 +561,19 @@ final class PluginClassLoader extends URLClassLoader implements DependencyResolv
 
     @Override
     public final URL findResource(String name) {
-        return findResource(this, name);
+        if (this.metrics == null) {
+            return findResource(this, name);
+        }
+        final long start = System.nanoTime();
+        final URL url = findResource(this, name);
+        this.metrics.resourceLookup(this.simpleName, name, url != null,
+                System.nanoTime() - start);
+        return url;
     }
 
     @Override
     public final Enumeration<URL> findResources(String name) throws IOException {
-        final Collection<URL> urls = new ArrayList<>();
-        findResources(this, name, urls);
-        return ElementIterator.wrap(urls.iterator());
+        return findResources(this, name);
     }
 
     private Class<?> loadClassForForeignPlugin(String name)
@@ -353,12 +582,16 @@ final class PluginClassLoader extends URLClassLoader implements DependencyResolv
         // be returned by 'loadClass' in order for this
         // classloader to get registered as the 'defining
         // classloader' for that class.
-        final int count = this.foreignEnterCount.get();
+        final LookupFrame frame = this.context.currentFrame();
+        final PluginClassLoader previousTarget = frame.foreignTarget;
+        final int previousDepth = frame.foreignDepth;
         try {
-            this.foreignEnterCount.set(count + 1);
+            frame.foreignTarget = this;
+            frame.foreignDepth = frame.depth;
             return loadClass(name);
         } finally {
-            this.foreignEnterCount.set(count);
+            frame.foreignTarget = previousTarget;
+            frame.foreignDepth = previousDepth;
         }
     }
 
@@ -366,31 +599,60 @@ final class PluginClassLoader extends URLClassLoader implements DependencyResolv
     public final Class<?> findClass(@Nullable DependencyResolver requestor, String name) {
         Require.nonNull(name, "name");
 
+        final ClassLookupEvent event = FlightRecording.AVAILABLE
+                ? ClassLookupEvent.start(ClassLookupEvent.FIND_CLASS)
+                : null;
+        final Class<?> result = findClassFor(requestor, name);
+        if (event != null) {
+            event.finish(FlightRecording.nameOf(requestor), getSimpleName(), name,
+                    FlightRecording.outcomeOf(result));
+        }
+        return result;
+    }
+
+    @Nullable
+    private Class<?> findClassFor(@Nullable DependencyResolver requestor, String name) {
+
         LOG.debug("{}.findClassFor(<{}>, '{}')", getSimpleName(), nameOf(requestor),
                 name);
 
         Class<?> result;
-        synchronized (getClassLoadingLock(name)) {
-            // first, look up in own jar
-            result = findLoadedClass(name);
+        final LockTable locks = this.context.getLocks();
+        final Object lock = locks.acquire(name);
+        try {
+            synchronized (lock) {
+                // first, look up in own jar
+                result = findLoadedClass(name);
+            }
+        } finally {
+            locks.release(name, lock);
         }
 
         if (result == null) {
-            try {
-                if (equals(requestor)) {
-                    // request from own plugin
-                    // INVARIANT: we have a lock on getClassLoadingLock()
-                    result = super.findClass(name);
-                } else {
-                    result = loadClassForForeignPlugin(name);
+            // only try to define the class if we actually have its class file.
+            // This avoids creating an exception for every probed plugin.
+            if (!containsClassFile(name)) {
+                LOG.trace("Class '{}' not contained in '{}' (request by '{}')", name,
+                        getSimpleName(), nameOf(requestor));
+            } else {
+                try {
+                    if (equals(requestor)) {
+                        // request from own plugin
+                        // INVARIANT: we have a lock on the class name
+                        result = super.findClass(name);
+                        if (this.statistics != null) {
+                            this.statistics.classDefined();
+                        }
+                    } else {
+                        result = loadClassForForeignPlugin(name);
+                    }
+                } catch (final ClassNotFoundException ignore) {
+                    // ignore and continue search
+                    LOG.trace("Class '{}' not found in '{}' (request by '{}')", name,
+                            getSimpleName(), nameOf(requestor), ignore);
                 }
-            } catch (final ClassNotFoundException ignore) {
-                // ignore and continue search
-                LOG.trace("Class '{}' not found in '{}' (request by '{}')", name,
-                        getSimpleName(), nameOf(requestor), ignore);
             }
-        } else if (result.getClassLoader().equals(this.dependencyClassLoader)
-            && !equals(requestor)) {
+        } else if (isDependency(result.getClassLoader()) && !equals(requestor)) {
             // the class has already been loaded but it is not visible for
             // the requestor because it has been loaded by the dependency
             // loader.
@@ -399,11 +661,14 @@ final class PluginClassLoader extends URLClassLoader implements DependencyResolv
 
         // second, look up in our dependencies
         if (result == null && equals(requestor)) {
-            // INVARIANT: we have a lock on getClassLoadingLock()
+            // INVARIANT: we have a lock on the class name
 
-            if (this.dependencyClassLoader != null) {
+            if (findDependencyResource(classFileOf(name)) != null) {
                 try {
                     result = this.dependencyClassLoader.loadClass(name);
+                    if (this.statistics != null) {
+                        this.statistics.dependencyHit();
+                    }
                 } catch (final ClassNotFoundException ignore) {
                     // ignore and continue
                     LOG.trace("Class '{}' not found as dependency of '{}'", name,
@@ -417,25 +682,53 @@ final class PluginClassLoader extends URLClassLoader implements DependencyResolv
                 // classes within other plugins. Otherwise we would allow
                 // deadlock conditions
                 result = this.dependencyResolver.findClass(requestor, name);
+                if (this.statistics != null) {
+                    this.statistics.crossPluginLookup(result != null);
+                }
             }
+        } else if (result != null && this.statistics != null && !equals(requestor)) {
+            // served a class to another plugin
+            this.statistics.classServed();
         }
         return result;
     }
 
+    private static String classFileOf(String className) {
+        return className.replace('.', '/').concat(".class");
+    }
+
+    private boolean containsClassFile(String className) {
+        if (this.index != null && (this.index.isComplete()
+            || this.index.containsClass(className))) {
+            return this.index.containsClass(className);
+        }
+        // a build index might miss packages, so its negative answers are
+        // verified. Crucial to use super method because we only want to search
+        // our own jar
+        return super.findResource(classFileOf(className)) != null;
+    }
+
+    private boolean containsResource(String name) {
+        return this.index == null || this.index.mayContainResource(name);
+    }
+
     @Override
     public URL findResource(DependencyResolver requestor, String name) {
         Require.nonNull(name, "name");
         LOG.debug("{}.findResourceFor(<{}>, '{}')", getSimpleName(),
                 nameOf(requestor), name);
+        if (this.statistics != null) {
+            this.statistics.resourceLookup();
+        }
 
         // look up in own jar
-        URL url = super.findResource(name);
+        URL url = containsResource(name)
+                ? super.findResource(name)
+                : null;
 
         if (url == null && equals(requestor)) {
             // second look up in our dependencies
-            if (this.dependencyClassLoader != null) {
-                url = this.dependencyClassLoader.findResource(name);
-            }
+            url = findDependencyResource(name);
 
             // third, look up in other plugins
             if (url == null) {
@@ -446,35 +739,52 @@ final class PluginClassLoader extends URLClassLoader implements DependencyResolv
     }
 
     @Override
-    public void findResources(DependencyResolver requestor, String name,
-            Collection<URL> target) throws IOException {
+    public ElementIterator<URL> findResources(DependencyResolver requestor,
+            String name) throws IOException {
         Require.nonNull(name, "name");
         LOG.debug("{}.findResourcesFor(<{}>, '{}')", getSimpleName(),
                 nameOf(requestor), name);
+        if (this.statistics != null) {
+            this.statistics.resourceLookup();
+        }
+
+        final List<Source<URL>> sources = new ArrayList<>(4);
 
         // look up in own jar
-        final Enumeration<URL> selfResult = super.findResources(name);
-        addAll(target, selfResult);
+        if (containsResource(name)) {
+            sources.add(() -> ElementIterator.wrap(super.findResources(name)));
+        }
 
         if (equals(requestor)) {
 
             // look up in dependencies
-            if (this.dependencyClassLoader != null) {
-                final Enumeration<URL> dependencyResult =
-                        this.dependencyClassLoader.findResources(name);
-
-                addAll(target, dependencyResult);
+            final DependencyClassLoader dependencies = this.dependencyClassLoader;
+            if (dependencies != null) {
+                sources.add(() -> ElementIterator.wrap(dependencies.findResources(name)));
             }
 
             // look up in other plugins
-            this.dependencyResolver.findResources(requestor, name, target);
+            sources.add(() -> this.dependencyResolver.findResources(requestor, name));
         }
+        return LazyConcatIterator.of(sources.iterator());
     }
 
-    private <T> void addAll(Collection<T> target, Enumeration<T> elements) {
-        while (elements.hasMoreElements()) {
-            target.add(elements.nextElement());
-        }
+    /**
+     * Searches the shared dependencies and then the remaining dependencies of
+     * this plugin for the given resource, in the same order in which the
+     * dependency loader loads classes.
+     */
+    @Nullable
+    private URL findDependencyResource(String name) {
+        return this.dependencyClassLoader == null
+                ? null
+                : this.dependencyClassLoader.findResource(name);
+    }
+
+    private boolean isDependency(@Nullable ClassLoader classLoader) {
+        return classLoader != null
+            && (classLoader == this.dependencyClassLoader
+                || this.sharedDependencies.contains(classLoader));
     }
 
     @Override
@@ -490,6 +800,7 @@ final class PluginClassLoader extends URLClassLoader implements DependencyResolv
 
     @Override
     public final void close() throws IOException {
+        // shared dependencies are closed together with the deployment
         Closeables.close(super::close, this.dependencyClassLoader);
     }
 
@@ -501,8 +812,46 @@ final class PluginClassLoader extends URLClassLoader implements DependencyResolv
      */
     final class DependencyClassLoader extends URLClassLoader {
 
-        private DependencyClassLoader(URL[] urls, ClassLoader parent) {
+        private final List<SharedDependencyClassLoader> shared;
+
+        private DependencyClassLoader(URL[] urls,
+                List<SharedDependencyClassLoader> shared, ClassLoader parent) {
             super(urls, parent);
+            this.shared = shared;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            // shared dependencies first, so that the remaining ones can link
+            // against them
+            for (final SharedDependencyClassLoader loader : this.shared) {
+                final Class<?> result = loader.findOwnClass(name);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return super.findClass(name);
+        }
+
+        @Override
+        public URL findResource(String name) {
+            for (final SharedDependencyClassLoader loader : this.shared) {
+                final URL result = loader.findOwnResource(name);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return super.findResource(name);
+        }
+
+        @Override
+        public Enumeration<URL> findResources(String name) throws IOException {
+            final List<Source<URL>> sources = new ArrayList<>(this.shared.size() + 1);
+            for (final SharedDependencyClassLoader loader : this.shared) {
+                sources.add(() -> ElementIterator.wrap(loader.findOwnResources(name)));
+            }
+            sources.add(() -> ElementIterator.wrap(super.findResources(name)));
+            return LazyConcatIterator.of(sources.iterator());
         }
 
         final String getPluginName() {
@@ -0,0 +1,295 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.skuzzle.tinyplugz.util.Require;
+
+/**
+ * Index of the contents of a single plugin. The index is built once by
+ * enumerating the entries of the plugin's jar file or directory when the plugin
+ * is opened. It allows to decide whether a plugin can possibly contain a
+ * certain class or resource without actually asking its ClassLoader.
+ * <p>
+ * If the plugin contains a {@link BuildIndex}, the index is read from there
+ * instead of enumerating the entries. As a build index only lists packages,
+ * classes are then only known to the granularity of their package. A build
+ * index might also miss classes and service declarations which other
+ * annotation processors generated in their last round. Thus, such an index is
+ * not {@link #isComplete() complete} and can not rule out classes of unknown
+ * packages or undeclared services.
+ * </p>
+ *
+ * @author Simon Taddiken
+ */
+final class PluginIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PluginIndex.class);
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String META_INF = "META-INF/";
+
+    /** Names of all packages which contain at least one class. */
+    private final Set<String> packages;
+
+    /**
+     * Full qualified names of all classes. <code>null</code> if the index has
+     * been read from a build index.
+     */
+    @Nullable
+    private final Set<String> classes;
+
+    /** Names of all entries which are not class files. */
+    private final Set<String> resources;
+
+    /**
+     * Providers per service name. <code>null</code> if the index has not been
+     * read from a build index.
+     */
+    @Nullable
+    private final Map<String, List<String>> services;
+
+    private PluginIndex(Set<String> packages, Set<String> classes,
+            Set<String> resources) {
+        this.packages = Collections.unmodifiableSet(packages);
+        this.classes = Collections.unmodifiableSet(classes);
+        this.resources = Collections.unmodifiableSet(resources);
+        this.services = null;
+    }
+
+    private PluginIndex(BuildIndex buildIndex) {
+        this.packages = buildIndex.getPackages();
+        this.classes = null;
+        this.resources = buildIndex.getResources();
+        this.services = buildIndex.getServices();
+    }
+
+    /**
+     * Creates the index for the plugin at the given location. Only plugins
+     * which are located on the local file system, either as jar file or as
+     * directory, can be indexed. If the plugin contains a {@link BuildIndex},
+     * it is used instead of enumerating the plugin's entries.
+     *
+     * @param pluginUrl Location of the plugin.
+     * @return The index or <code>null</code> if the plugin's contents can not
+     *         be enumerated.
+     */
+    @Nullable
+    static PluginIndex of(URL pluginUrl) {
+        Require.nonNull(pluginUrl, "pluginUrl");
+        if (!"file".equals(pluginUrl.getProtocol())) {
+            LOG.debug("Can not index plugin at '{}': unsupported protocol", pluginUrl);
+            return null;
+        }
+
+        final Set<String> packages = new HashSet<>();
+        final Set<String> classes = new HashSet<>();
+        final Set<String> resources = new HashSet<>();
+        try {
+            final Path path = Paths.get(pluginUrl.toURI());
+            if (Files.isDirectory(path)) {
+                final Path buildIndex = path.resolve(BuildIndex.LOCATION);
+                if (Files.isRegularFile(buildIndex)) {
+                    try (InputStream in = Files.newInputStream(buildIndex)) {
+                        return fromBuildIndex(pluginUrl, in);
+                    }
+                }
+                indexDirectory(path, packages, classes, resources);
+            } else if (Files.isRegularFile(path)) {
+                final PluginIndex fromBuildIndex = indexJar(pluginUrl, path, packages,
+                        classes, resources);
+                if (fromBuildIndex != null) {
+                    return fromBuildIndex;
+                }
+            } else {
+                LOG.debug("Can not index plugin at '{}': no such file", pluginUrl);
+                return null;
+            }
+        } catch (URISyntaxException | IOException | RuntimeException e) {
+            LOG.warn("Error while indexing plugin at '{}'", pluginUrl, e);
+            return null;
+        }
+        return new PluginIndex(packages, classes, resources);
+    }
+
+    private static void indexDirectory(Path root, Set<String> packages,
+            Set<String> classes, Set<String> resources) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile)
+                    .map(root::relativize)
+                    .map(path -> path.toString().replace(path.getFileSystem()
+                            .getSeparator(), "/"))
+                    .forEach(entry -> addEntry(entry, packages, classes, resources));
+        }
+    }
+
+    private static PluginIndex fromBuildIndex(URL pluginUrl, InputStream in)
+            throws IOException {
+        final BuildIndex buildIndex = BuildIndex.readFrom(in);
+        LOG.debug("Using {} of plugin at '{}'", buildIndex, pluginUrl);
+        return new PluginIndex(buildIndex);
+    }
+
+    /**
+     * Enumerates the entries of the given jar file into the given sets. If the
+     * jar contains a build index, it is read instead.
+     *
+     * @return The index read from the build index or <code>null</code> if the
+     *         entries have been enumerated.
+     */
+    @Nullable
+    private static PluginIndex indexJar(URL pluginUrl, Path jar, Set<String> packages,
+            Set<String> classes, Set<String> resources) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            final ZipEntry buildIndex = zip.getEntry(BuildIndex.LOCATION);
+            if (buildIndex != null) {
+                try (InputStream in = zip.getInputStream(buildIndex)) {
+                    return fromBuildIndex(pluginUrl, in);
+                }
+            }
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    addEntry(entry.getName(), packages, classes, resources);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void addEntry(String entry, Set<String> packages,
+            Set<String> classes, Set<String> resources) {
+        if (!entry.endsWith(CLASS_SUFFIX) || entry.startsWith(META_INF)
+            || "module-info.class".equals(entry)) {
+            resources.add(entry);
+            return;
+        }
+        final String className = entry
+                .substring(0, entry.length() - CLASS_SUFFIX.length())
+                .replace('/', '.');
+        classes.add(className);
+
+        final int lastDot = className.lastIndexOf('.');
+        packages.add(lastDot == -1
+                ? ""
+                : className.substring(0, lastDot));
+    }
+
+    /**
+     * Gets the names of all packages which contain at least one class within
+     * the indexed plugin. The default package is represented by the empty
+     * String.
+     *
+     * @return A read-only set of package names.
+     */
+    Set<String> getPackages() {
+        return this.packages;
+    }
+
+    /**
+     * Whether this index has been built by enumerating the plugin's entries.
+     * If not, it has been read from a {@link BuildIndex} and negative answers
+     * of {@link #containsClass(String)} must be verified by probing the plugin.
+     *
+     * @return Whether the index lists every package of the plugin.
+     */
+    boolean isComplete() {
+        return this.classes != null;
+    }
+
+    /**
+     * Checks whether the indexed plugin contains a class file for the class
+     * with given name. If this index is not {@link #isComplete() complete},
+     * <code>false</code> only means that the class' package is unknown.
+     *
+     * @param className The full qualified name of the class.
+     * @return Whether the plugin contains the class.
+     */
+    boolean containsClass(String className) {
+        if (this.classes == null) {
+            // only packages are known
+            final int lastDot = className.lastIndexOf('.');
+            return this.packages.contains(lastDot == -1
+                    ? ""
+                    : className.substring(0, lastDot));
+        }
+        return this.classes.contains(className);
+    }
+
+    /**
+     * Checks whether the indexed plugin might contain a resource with given
+     * name. Names which do not denote a plain entry of the plugin, like
+     * directories or relative paths, can not be decided using the index. For
+     * these, this method always returns <code>true</code>.
+     *
+     * @param name The resource name.
+     * @return Whether the plugin might contain the resource.
+     */
+    boolean mayContainResource(String name) {
+        if (name.isEmpty() || name.endsWith("/") || name.startsWith("/")
+            || name.startsWith(".") || name.contains("/.")
+            || name.indexOf('\\') != -1) {
+            return true;
+        } else if (this.resources.contains(name)) {
+            return true;
+        } else if (!isComplete() && name.startsWith(META_INF)) {
+            // entries like the manifest are added after the build index has
+            // been created and service declarations might have been written
+            // by other annotation processors in their last round
+            return true;
+        } else if (name.endsWith(CLASS_SUFFIX)) {
+            final String className = name
+                    .substring(0, name.length() - CLASS_SUFFIX.length())
+                    .replace('/', '.');
+            return !isComplete() || containsClass(className);
+        }
+        return false;
+    }
+
+    /**
+     * Gets the names of the providers of the given service which are declared
+     * within the indexed plugin. This information is only available if the
+     * index has been read from a {@link BuildIndex} which lists the service.
+     * Services which are not listed might still have been declared by other
+     * annotation processors after the build index has been written.
+     *
+     * @param serviceName Full qualified name of the service.
+     * @return The provider names in declaration order or <code>null</code> if
+     *         they are unknown.
+     */
+    @Nullable
+    List<String> getProviders(String serviceName) {
+        if (this.services == null) {
+            return null;
+        }
+        return this.services.get(serviceName);
+    }
+
+    @Override
+    public String toString() {
+        final String classCount = this.classes == null
+                ? "unknown"
+                : String.valueOf(this.classes.size());
+        return "PluginIndex[packages=" + this.packages.size() + ", classes="
+            + classCount + ", resources=" + this.resources.size() + "]";
+    }
+}
@@ -0,0 +1,189 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.skuzzle.tinyplugz.MetricsRecorder;
+import de.skuzzle.tinyplugz.Options;
+import de.skuzzle.tinyplugz.util.ReflectionUtil;
+import de.skuzzle.tinyplugz.util.Require;
+
+/**
+ * Holds state which is shared among all plugin ClassLoaders of a single
+ * deployment.
+ *
+ * @author Simon Taddiken
+ */
+final class PluginLoaderContext {
+
+    /**
+     * Per thread bookkeeping of nested class loading calls among all plugin
+     * ClassLoaders of a deployment. Only accessed by the thread which owns it.
+     *
+     * @author Simon Taddiken
+     */
+    static final class LookupFrame {
+
+        /** Nesting depth of loadClass calls of any plugin ClassLoader. */
+        int depth;
+
+        /**
+         * The ClassLoader which has been asked to load a class on behalf of
+         * another plugin. <code>null</code> if there is no pending foreign
+         * request.
+         */
+        PluginClassLoader foreignTarget;
+
+        /** The value of {@link #depth} when the foreign request was issued. */
+        int foreignDepth;
+
+        private LookupFrame() {
+            // only created by context
+        }
+    }
+
+    private final LockTable locks;
+    private final ParentDelegation parentDelegation;
+    private final DependencyLoaders dependencyLoaders;
+    @Nullable
+    private final DeploymentStatistics statistics;
+    @Nullable
+    private final MetricsRecorder metrics;
+    private final ThreadLocal<LookupFrame> frames;
+
+    private PluginLoaderContext(LockTable locks, ParentDelegation parentDelegation,
+            DependencyLoaders dependencyLoaders,
+            @Nullable DeploymentStatistics statistics,
+            @Nullable MetricsRecorder metrics) {
+        this.locks = locks;
+        this.parentDelegation = parentDelegation;
+        this.dependencyLoaders = dependencyLoaders;
+        this.statistics = statistics;
+        this.metrics = metrics;
+        this.frames = ThreadLocal.withInitial(LookupFrame::new);
+    }
+
+    /**
+     * Creates a context which is configured according to the given deployment
+     * properties.
+     *
+     * @param properties The deployment properties.
+     * @param appClassLoader The ClassLoader to load configured classes with.
+     * @return The context.
+     */
+    static PluginLoaderContext fromProperties(Map<Object, Object> properties,
+            ClassLoader appClassLoader) {
+        Require.nonNull(properties, "properties");
+        final LockTable locks = LockTable.fromProperty(
+                properties.get(Options.CLASS_LOADING_LOCKS));
+        final ParentDelegation parentDelegation = ParentDelegation.fromProperty(
+                properties.get(Options.PARENT_FIRST_PACKAGES));
+        final DependencyLoaders dependencyLoaders = DependencyLoaders.fromProperty(
+                properties.get(Options.SHARE_DEPENDENCIES));
+        final DeploymentStatistics statistics = DeploymentStatistics.fromProperty(
+                properties.get(Options.JMX_STATISTICS));
+        final MetricsRecorder metrics = metricsFromProperty(
+                properties.get(Options.METRICS_RECORDER), appClassLoader);
+        return new PluginLoaderContext(locks, parentDelegation, dependencyLoaders,
+                statistics, metrics);
+    }
+
+    @Nullable
+    private static MetricsRecorder metricsFromProperty(@Nullable Object value,
+            ClassLoader appClassLoader) {
+        if (value == null) {
+            return null;
+        }
+        final MetricsRecorder metrics = ReflectionUtil.createInstance(value,
+                MetricsRecorder.class, appClassLoader);
+        // no need to take measurements for the no-op
+        return metrics == MetricsRecorder.noop()
+                ? null
+                : metrics;
+    }
+
+    /**
+     * Gets the locks which synchronize class loading among all plugin
+     * ClassLoaders of this deployment.
+     *
+     * @return The lock table.
+     */
+    LockTable getLocks() {
+        return this.locks;
+    }
+
+    /**
+     * Gets the strategy which decides whether classes are looked up in the
+     * parent ClassLoader or in the plugins first.
+     *
+     * @return The parent delegation.
+     */
+    ParentDelegation getParentDelegation() {
+        return this.parentDelegation;
+    }
+
+    /**
+     * Gets the ClassLoaders for dependencies which are shared among the
+     * plugins of this deployment.
+     *
+     * @return The dependency loaders.
+     */
+    DependencyLoaders getDependencyLoaders() {
+        return this.dependencyLoaders;
+    }
+
+    /**
+     * Gets the statistics of this deployment.
+     *
+     * @return The statistics or <code>null</code> if collecting statistics is
+     *         disabled.
+     */
+    @Nullable
+    DeploymentStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Gets the recorder which receives the measurements of this deployment.
+     *
+     * @return The recorder or <code>null</code> if no measurements should be
+     *         taken.
+     */
+    @Nullable
+    MetricsRecorder getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Gets the calling thread's lookup frame.
+     *
+     * @return The lookup frame.
+     */
+    LookupFrame currentFrame() {
+        return this.frames.get();
+    }
+
+    /**
+     * Releases the resources held by this context. Called when the plugin
+     * ClassLoaders are closed.
+     */
+    void close() {
+        this.locks.clear();
+        this.dependencyLoaders.close();
+        if (this.statistics != null) {
+            this.statistics.unregister();
+        }
+        // only removes the calling thread's frame. Frames of other threads hold
+        // no references to plugin ClassLoaders once their look up finished and
+        // become stale as soon as this context is unreachable.
+        this.frames.remove();
+    }
+
+    @Override
+    public String toString() {
+        return "PluginLoaderContext[locks=" + this.locks + ", parentDelegation="
+            + this.parentDelegation + ", dependencyLoaders=" + this.dependencyLoaders
+            + "]";
+    }
+}
@@ -0,0 +1,248 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.io.Closeable;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.skuzzle.tinyplugz.Options;
+import de.skuzzle.tinyplugz.TinyPlugzException;
+import de.skuzzle.tinyplugz.util.Closeables;
+import de.skuzzle.tinyplugz.util.Require;
+
+/**
+ * Strategy for creating the ClassLoaders of all plugins of a deployment.
+ * Creating a plugin ClassLoader involves opening the plugin and reading its
+ * manifest, so for many plugins it can be beneficial to create them in
+ * parallel. Regardless of the strategy, the created ClassLoaders are always
+ * returned in the order of the plugin URLs.
+ *
+ * @author Simon Taddiken
+ */
+abstract class PluginLoading {
+
+    private static final PluginLoading SERIAL = new SerialPluginLoading();
+
+    /**
+     * Creates a strategy which creates one ClassLoader after another on the
+     * calling thread.
+     *
+     * @return The strategy.
+     */
+    static PluginLoading serial() {
+        return SERIAL;
+    }
+
+    /**
+     * Creates a strategy which creates the ClassLoaders using the given number
+     * of threads. The threads are started for every deployment and terminated
+     * when all ClassLoaders have been created.
+     *
+     * @param parallelism The number of threads.
+     * @return The strategy.
+     */
+    static PluginLoading parallel(int parallelism) {
+        Require.condition(parallelism > 0, "parallelism must be positive: %d",
+                parallelism);
+        return parallelism == 1
+                ? serial()
+                : new ParallelPluginLoading(parallelism);
+    }
+
+    /**
+     * Creates a strategy which creates the ClassLoaders using the given
+     * executor. The executor will not be shut down.
+     *
+     * @param executor The executor.
+     * @return The strategy.
+     */
+    static PluginLoading using(Executor executor) {
+        Require.nonNull(executor, "executor");
+        return new ExecutorPluginLoading(executor);
+    }
+
+    /**
+     * Creates the strategy described by the given value of the
+     * {@link Options#PLUGIN_LOADING_PARALLELISM} property.
+     *
+     * @param value The property value, may be <code>null</code>.
+     * @return The strategy.
+     * @throws TinyPlugzException If the value is not valid.
+     */
+    static PluginLoading fromProperty(@Nullable Object value) {
+        if (value == null) {
+            return serial();
+        } else if (value instanceof Executor) {
+            return using((Executor) value);
+        }
+        try {
+            return parallel(Integer.parseInt(value.toString().trim()));
+        } catch (final IllegalArgumentException e) {
+            throw new TinyPlugzException(String.format("'%s' is not valid for '%s'",
+                    value, Options.PLUGIN_LOADING_PARALLELISM), e);
+        }
+    }
+
+    /**
+     * Creates an object for each of the given URLs. If creation fails for any
+     * URL, all successfully created objects are closed.
+     *
+     * @param <T> Type of the created objects.
+     * @param urls The plugin URLs.
+     * @param factory Creates the object for a single URL.
+     * @return The created objects in the order of their URLs.
+     */
+    abstract <T extends Closeable> List<T> createAll(List<URL> urls,
+            Function<URL, T> factory);
+
+    private static <T extends Closeable> List<T> createAllUsing(Executor executor,
+            List<URL> urls, Function<URL, T> factory) {
+        final List<CompletableFuture<T>> futures = new ArrayList<>(urls.size());
+        for (final URL url : urls) {
+            CompletableFuture<T> future;
+            try {
+                future = CompletableFuture.supplyAsync(() -> factory.apply(url),
+                        executor);
+            } catch (final RejectedExecutionException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            futures.add(future);
+        }
+
+        // join in order of submission to keep the order of the URLs
+        final List<T> result = new ArrayList<>(urls.size());
+        Throwable failure = null;
+        for (final CompletableFuture<T> future : futures) {
+            try {
+                result.add(future.join());
+            } catch (CompletionException | CancellationException e) {
+                // Errors are rethrown as well, but only after all loaders have
+                // been joined, so that none of them leaks
+                final Throwable cause = unwrap(e);
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            Closeables.safeCloseAll(result);
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw (RuntimeException) failure;
+        }
+        return result;
+    }
+
+    private static Throwable unwrap(RuntimeException e) {
+        final Throwable cause = e instanceof CompletionException
+                ? e.getCause()
+                : e;
+        if (cause instanceof RuntimeException || cause instanceof Error) {
+            return cause;
+        }
+        return new TinyPlugzException("Error while creating plugin ClassLoader", cause);
+    }
+
+    private static final class SerialPluginLoading extends PluginLoading {
+
+        @Override
+        <T extends Closeable> List<T> createAll(List<URL> urls,
+                Function<URL, T> factory) {
+            final List<T> result = new ArrayList<>(urls.size());
+            try {
+                for (final URL url : urls) {
+                    result.add(factory.apply(url));
+                }
+            } catch (RuntimeException | Error e) {
+                Closeables.safeCloseAll(result);
+                throw e;
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "SerialPluginLoading";
+        }
+    }
+
+    private static final class ParallelPluginLoading extends PluginLoading {
+
+        private final int parallelism;
+
+        private ParallelPluginLoading(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        <T extends Closeable> List<T> createAll(List<URL> urls,
+                Function<URL, T> factory) {
+            if (urls.size() < 2) {
+                return serial().createAll(urls, factory);
+            }
+
+            final int threads = Math.min(this.parallelism, urls.size());
+            final ExecutorService executor = Executors.newFixedThreadPool(threads,
+                    new PluginLoadingThreadFactory());
+            try {
+                return createAllUsing(executor, urls, factory);
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "ParallelPluginLoading[parallelism=" + this.parallelism + "]";
+        }
+    }
+
+    private static final class ExecutorPluginLoading extends PluginLoading {
+
+        private final Executor executor;
+
+        private ExecutorPluginLoading(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        <T extends Closeable> List<T> createAll(List<URL> urls,
+                Function<URL, T> factory) {
+            return createAllUsing(this.executor, urls, factory);
+        }
+
+        @Override
+        public String toString() {
+            return "ExecutorPluginLoading[executor=" + this.executor + "]";
+        }
+    }
+
+    private static final class PluginLoadingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r,
+                    "tinyplugz-plugin-loading-" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
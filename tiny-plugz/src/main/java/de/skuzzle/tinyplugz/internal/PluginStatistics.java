@@ -0,0 +1,105 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the statistics of a single {@link PluginClassLoader}. Counters are
+ * striped so that concurrently loading threads do not contend on them.
+ *
+ * @author Simon Taddiken
+ */
+final class PluginStatistics implements PluginStatisticsMXBean {
+
+    private final String pluginName;
+    private final LongAdder classesDefined = new LongAdder();
+    private final LongAdder classesServed = new LongAdder();
+    private final LongAdder crossPluginHits = new LongAdder();
+    private final LongAdder crossPluginMisses = new LongAdder();
+    private final LongAdder dependencyHits = new LongAdder();
+    private final LongAdder resourceLookups = new LongAdder();
+    private final LongAdder loadClassCount = new LongAdder();
+    private final LongAdder loadClassTime = new LongAdder();
+
+    PluginStatistics(String pluginName) {
+        this.pluginName = pluginName;
+    }
+
+    void classDefined() {
+        this.classesDefined.increment();
+    }
+
+    void classServed() {
+        this.classesServed.increment();
+    }
+
+    void crossPluginLookup(boolean hit) {
+        if (hit) {
+            this.crossPluginHits.increment();
+        } else {
+            this.crossPluginMisses.increment();
+        }
+    }
+
+    void dependencyHit() {
+        this.dependencyHits.increment();
+    }
+
+    void resourceLookup() {
+        this.resourceLookups.increment();
+    }
+
+    void loadClass(long nanos) {
+        this.loadClassCount.increment();
+        this.loadClassTime.add(nanos);
+    }
+
+    @Override
+    public String getPluginName() {
+        return this.pluginName;
+    }
+
+    @Override
+    public long getClassesDefined() {
+        return this.classesDefined.sum();
+    }
+
+    @Override
+    public long getClassesServed() {
+        return this.classesServed.sum();
+    }
+
+    @Override
+    public long getCrossPluginHits() {
+        return this.crossPluginHits.sum();
+    }
+
+    @Override
+    public long getCrossPluginMisses() {
+        return this.crossPluginMisses.sum();
+    }
+
+    @Override
+    public long getDependencyHits() {
+        return this.dependencyHits.sum();
+    }
+
+    @Override
+    public long getResourceLookups() {
+        return this.resourceLookups.sum();
+    }
+
+    @Override
+    public long getLoadClassCount() {
+        return this.loadClassCount.sum();
+    }
+
+    @Override
+    public long getLoadClassTimeNanos() {
+        return this.loadClassTime.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "PluginStatistics[" + this.pluginName + "]";
+    }
+}
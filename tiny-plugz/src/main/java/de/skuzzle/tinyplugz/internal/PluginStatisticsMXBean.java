@@ -0,0 +1,83 @@
+package de.skuzzle.tinyplugz.internal;
+
+/**
+ * Management interface exposing class and resource look up statistics of a
+ * single plugin. An MBean implementing this interface is registered for every
+ * plugin if {@link de.skuzzle.tinyplugz.Options#JMX_STATISTICS JMX_STATISTICS}
+ * is enabled.
+ *
+ * @author Simon Taddiken
+ * @since 0.4.0
+ */
+public interface PluginStatisticsMXBean {
+
+    /**
+     * The name of the plugin.
+     *
+     * @return The plugin name.
+     */
+    String getPluginName();
+
+    /**
+     * Number of classes which have been defined from the plugin's jar.
+     *
+     * @return The number of classes.
+     */
+    long getClassesDefined();
+
+    /**
+     * Number of classes which have been provided by the plugin to other
+     * plugins or to the application.
+     *
+     * @return The number of classes.
+     */
+    long getClassesServed();
+
+    /**
+     * Number of classes requested by the plugin which have been found in
+     * other plugins.
+     *
+     * @return The number of hits.
+     */
+    long getCrossPluginHits();
+
+    /**
+     * Number of classes requested by the plugin which have been searched in
+     * other plugins without success.
+     *
+     * @return The number of misses.
+     */
+    long getCrossPluginMisses();
+
+    /**
+     * Number of classes requested by the plugin which have been found in the
+     * dependencies stated in the plugin's Class-Path manifest attribute.
+     *
+     * @return The number of hits.
+     */
+    long getDependencyHits();
+
+    /**
+     * Number of resource look ups which have been performed by the plugin's
+     * ClassLoader, either for the plugin itself or on behalf of others.
+     *
+     * @return The number of look ups.
+     */
+    long getResourceLookups();
+
+    /**
+     * Number of calls to the ClassLoader's {@code loadClass} method.
+     *
+     * @return The number of calls.
+     */
+    long getLoadClassCount();
+
+    /**
+     * Cumulative time in nanoseconds spent in the ClassLoader's
+     * {@code loadClass} method. Nested calls for loading super types from
+     * other plugins are included in the time of the outer call as well.
+     *
+     * @return The time in nanoseconds.
+     */
+    long getLoadClassTimeNanos();
+}
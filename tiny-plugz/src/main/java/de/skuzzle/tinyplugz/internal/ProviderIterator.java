@@ -0,0 +1,23 @@
+package de.skuzzle.tinyplugz.internal;
+
+import de.skuzzle.tinyplugz.util.ElementIterator;
+
+/**
+ * Iterator over service providers which knows the number of remaining
+ * providers in advance. The number is determined from the declared provider
+ * names, so that it can be queried without instantiating any provider.
+ *
+ * @author Simon Taddiken
+ * @param <T> Type of the service.
+ * @since 0.4.0
+ */
+public interface ProviderIterator<T> extends ElementIterator<T> {
+
+    /**
+     * Gets the number of providers which have not been returned by
+     * {@link #next()} yet.
+     *
+     * @return The number of remaining providers.
+     */
+    int remaining();
+}
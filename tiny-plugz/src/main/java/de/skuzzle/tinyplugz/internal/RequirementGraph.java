@@ -0,0 +1,151 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+import de.skuzzle.tinyplugz.TinyPlugzException;
+import de.skuzzle.tinyplugz.util.Require;
+
+/**
+ * Graph of the plugins which are required by other plugins, as declared by the
+ * {@code TinyPlugz-Requires} manifest attribute. Plugins which do not declare
+ * any requirements are not part of the graph as a requiring node.
+ *
+ * @author Simon Taddiken
+ */
+final class RequirementGraph {
+
+    /** Maps plugin names to the names of plugins they require. */
+    private final Map<String, List<String>> requirements;
+
+    RequirementGraph() {
+        this.requirements = new LinkedHashMap<>();
+    }
+
+    /**
+     * Declares the plugins required by the given plugin.
+     *
+     * @param pluginName Name of the requiring plugin.
+     * @param required Names of the required plugins in declaration order.
+     */
+    void declare(String pluginName, List<String> required) {
+        Require.nonNull(pluginName, "pluginName");
+        Require.nonNull(required, "required");
+        this.requirements.put(pluginName, new ArrayList<>(required));
+    }
+
+    /**
+     * Whether the given plugin has declared its requirements.
+     *
+     * @param pluginName Name of the plugin.
+     * @return Whether the plugin declared its requirements.
+     */
+    boolean isDeclared(String pluginName) {
+        return this.requirements.containsKey(pluginName);
+    }
+
+    /**
+     * Checks that all required plugins exist and that there are no cyclic
+     * requirements.
+     *
+     * @param pluginNames Names of all deployed plugins.
+     * @throws TinyPlugzException If the graph is invalid.
+     */
+    void validate(Collection<String> pluginNames) {
+        Require.nonNull(pluginNames, "pluginNames");
+        for (final Map.Entry<String, List<String>> e : this.requirements.entrySet()) {
+            for (final String required : e.getValue()) {
+                if (!pluginNames.contains(required)) {
+                    throw new TinyPlugzException(String.format(
+                            "Plugin '%s' requires unknown plugin '%s'",
+                            e.getKey(), required));
+                }
+            }
+        }
+
+        final Set<String> finished = new HashSet<>();
+        for (final String pluginName : this.requirements.keySet()) {
+            checkCycles(pluginName, new ArrayDeque<>(), finished);
+        }
+    }
+
+    private void checkCycles(String pluginName, Deque<String> path,
+            Set<String> finished) {
+        if (finished.contains(pluginName)) {
+            return;
+        } else if (path.contains(pluginName)) {
+            final List<String> cycle = new ArrayList<>();
+            final Iterator<String> it = path.descendingIterator();
+            while (it.hasNext()) {
+                cycle.add(it.next());
+            }
+            cycle.add(pluginName);
+            cycle.subList(0, cycle.indexOf(pluginName)).clear();
+            throw new TinyPlugzException(String.format(
+                    "Cyclic plugin requirements: %s", String.join(" -> ", cycle)));
+        }
+        path.push(pluginName);
+        for (final String required : requirementsOf(pluginName)) {
+            checkCycles(required, path, finished);
+        }
+        path.pop();
+        finished.add(pluginName);
+    }
+
+    private List<String> requirementsOf(String pluginName) {
+        final List<String> result = this.requirements.get(pluginName);
+        return result == null
+                ? Collections.emptyList()
+                : result;
+    }
+
+    /**
+     * Determines the plugins which are searched for classes and resources
+     * requested by the given plugin. These are all plugins which are directly
+     * or indirectly required by the given plugin in topological order. That
+     * is, a plugin always precedes the plugins it requires. Plugins which
+     * do not depend on each other are ordered as they are declared.
+     *
+     * @param pluginName Name of the requiring plugin which must have declared
+     *            its requirements.
+     * @return The names of the plugins to search.
+     */
+    List<String> searchOrder(String pluginName) {
+        Require.condition(isDeclared(pluginName), "'%s' declares no requirements",
+                pluginName);
+
+        // reverse post order of a depth first traversal is a topological order
+        final Deque<String> result = new ArrayDeque<>();
+        visit(pluginName, new HashSet<>(), result);
+        result.removeFirst();
+        return new ArrayList<>(result);
+    }
+
+    private void visit(String pluginName, Set<String> visited, Deque<String> result) {
+        if (!visited.add(pluginName)) {
+            return;
+        }
+        // visit in reverse order to retain declaration order after reversing
+        final List<String> required = requirementsOf(pluginName);
+        final ListIterator<String> it = required.listIterator(required.size());
+        while (it.hasPrevious()) {
+            visit(it.previous(), visited, result);
+        }
+        result.addFirst(pluginName);
+    }
+
+    @Override
+    public String toString() {
+        return "RequirementGraph" + this.requirements;
+    }
+}
@@ -0,0 +1,42 @@
+package de.skuzzle.tinyplugz.internal;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for resource look ups performed by
+ * {@link DelegateDependencyResolver}.
+ *
+ * @author Simon Taddiken
+ */
+@Name("de.skuzzle.tinyplugz.ResourceLookup")
+@Label("Resource Look Up")
+@Description("Resource look up among all plugins")
+final class ResourceLookupEvent extends LookupEvent {
+
+    /** Type of this event, checked before an instance is allocated. */
+    private static final EventType TYPE = EventType.getEventType(ResourceLookupEvent.class);
+
+    private ResourceLookupEvent() {
+        // use start()
+    }
+
+    /**
+     * Begins a new event.
+     *
+     * @return The event or <code>null</code> if it is disabled.
+     */
+    @Nullable
+    static ResourceLookupEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        final ResourceLookupEvent event = new ResourceLookupEvent();
+        event.begin();
+        return event;
+    }
+}
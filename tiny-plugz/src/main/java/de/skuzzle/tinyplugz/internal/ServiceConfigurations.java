@@ -0,0 +1,220 @@
+package de.skuzzle.tinyplugz.internal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.skuzzle.tinyplugz.PluginInformation;
+import de.skuzzle.tinyplugz.util.ReflectionUtil;
+
+/**
+ * Reads the provider configuration files of services in the format specified
+ * by the {@link java.util.ServiceLoader ServiceLoader} and resolves the
+ * declared providers. Used by the {@link ServiceLoaderWrapper} implementations
+ * which need to know the provider names before instantiating them.
+ *
+ * @author Simon Taddiken
+ * @since 0.4.0
+ */
+final class ServiceConfigurations {
+
+    private static final String PREFIX = "META-INF/services/";
+
+    private ServiceConfigurations() {
+        // hidden constructor
+    }
+
+    /**
+     * Collects the names of the providers of the given service which are
+     * visible to the given ClassLoader.
+     *
+     * @param service The service.
+     * @param classLoader The ClassLoader.
+     * @return The provider names in declaration order, mapped to their
+     *         declaring plugin or to <code>null</code> if they are declared
+     *         by the application.
+     * @throws ServiceConfigurationError If reading a configuration file fails.
+     */
+    static Map<String, PluginInformation> read(Class<?> service,
+            ClassLoader classLoader) {
+        final Map<String, PluginInformation> names = new LinkedHashMap<>();
+        try {
+            if (classLoader instanceof DelegateClassLoader) {
+                readIndexed(service.getName(), (DelegateClassLoader) classLoader,
+                        names);
+            } else {
+                parseAll(classLoader.getResources(PREFIX + service.getName()), null,
+                        names);
+            }
+        } catch (final IOException | UncheckedIOException e) {
+            throw new ServiceConfigurationError(service.getName()
+                + ": Error reading configuration file", e);
+        }
+        return names;
+    }
+
+    /**
+     * Collects the names of the providers of the given service which are
+     * declared by a single plugin. No other plugin and not the application
+     * is searched.
+     *
+     * @param service The service.
+     * @param pluginCl The ClassLoader of the plugin.
+     * @return The provider names in declaration order, mapped to the plugin.
+     * @throws ServiceConfigurationError If reading a configuration file fails.
+     */
+    static Map<String, PluginInformation> readOwn(Class<?> service,
+            PluginClassLoader pluginCl) {
+        final Map<String, PluginInformation> names = new LinkedHashMap<>();
+        try {
+            readOwn(service.getName(), pluginCl, names);
+        } catch (final IOException | UncheckedIOException e) {
+            throw new ServiceConfigurationError(service.getName()
+                + ": Error reading configuration file", e);
+        }
+        return names;
+    }
+
+    /**
+     * Collects the provider names in the same order as
+     * {@link ClassLoader#getResources(String)} would, but takes them from the
+     * build indexes of plugins which have one instead of reading their
+     * configuration files.
+     */
+    private static void readIndexed(String serviceName, DelegateClassLoader delegate,
+            Map<String, PluginInformation> names) throws IOException {
+        final ClassLoader parent = delegate.getParent();
+        if (parent != null) {
+            parseAll(parent.getResources(PREFIX + serviceName), null, names);
+        }
+        for (final PluginClassLoader pluginCl : delegate.getPluginClassLoaders()) {
+            readOwn(serviceName, pluginCl, names);
+        }
+    }
+
+    /**
+     * Collects the provider names which are declared within the given plugin
+     * itself.
+     */
+    private static void readOwn(String serviceName, PluginClassLoader pluginCl,
+            Map<String, PluginInformation> names) throws IOException {
+        final PluginInformation plugin = pluginCl.getPluginInformation();
+        final PluginIndex index = pluginCl.getIndex();
+        final List<String> indexed = index == null
+                ? null
+                : index.getProviders(serviceName);
+        if (indexed != null) {
+            indexed.forEach(name -> addName(name, plugin, names));
+        } else {
+            parseAll(pluginCl.findResources(null, PREFIX + serviceName), plugin, names);
+        }
+    }
+
+    private static void addName(String name, @Nullable PluginInformation plugin,
+            Map<String, PluginInformation> names) {
+        // first declaration wins
+        if (!names.containsKey(name)) {
+            names.put(name, plugin);
+        }
+    }
+
+    private static void parseAll(Enumeration<URL> configs,
+            @Nullable PluginInformation plugin, Map<String, PluginInformation> names)
+            throws IOException {
+        while (configs.hasMoreElements()) {
+            parse(configs.nextElement(), plugin, names);
+        }
+    }
+
+    private static void parse(URL config, @Nullable PluginInformation plugin,
+            Map<String, PluginInformation> names) throws IOException {
+        try (InputStream in = config.openStream();
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    addName(line, plugin, names);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a provider class without initializing it.
+     *
+     * @param service The service.
+     * @param name The name of the provider class.
+     * @param classLoader The ClassLoader to load the class with.
+     * @return Either the provider class or the {@link ServiceConfigurationError}
+     *         describing why it could not be loaded.
+     */
+    static Object resolveProvider(Class<?> service, String name,
+            ClassLoader classLoader) {
+        try {
+            final Class<?> type = Class.forName(name, false, classLoader);
+            if (!service.isAssignableFrom(type)) {
+                return new ServiceConfigurationError(
+                        service.getName() + ": Provider " + name + " not a subtype");
+            }
+            return type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return new ServiceConfigurationError(
+                    service.getName() + ": Provider " + name + " not found", e);
+        }
+    }
+
+    /**
+     * Loads the provider class with given name and creates a new instance of
+     * it.
+     *
+     * @param <T> Type of the service.
+     * @param service The service.
+     * @param name The name of the provider class.
+     * @param classLoader The ClassLoader to load the class with.
+     * @return The new instance.
+     * @throws ServiceConfigurationError If the class can not be loaded or
+     *             instantiated.
+     */
+    static <T> T loadProvider(Class<T> service, String name, ClassLoader classLoader) {
+        final Object resolved = resolveProvider(service, name, classLoader);
+        if (resolved instanceof ServiceConfigurationError) {
+            throw (ServiceConfigurationError) resolved;
+        }
+        return service.cast(instantiate(service, (Class<?>) resolved));
+    }
+
+    /**
+     * Creates a new instance of a provider class using its default
+     * constructor.
+     *
+     * @param service The service.
+     * @param type The provider class.
+     * @return The new instance.
+     * @throws ServiceConfigurationError If the class can not be instantiated.
+     */
+    static Object instantiate(Class<?> service, Class<?> type) {
+        try {
+            return ReflectionUtil.getFactory(type).get();
+        } catch (final RuntimeException e) {
+            throw new ServiceConfigurationError(service.getName() + ": Provider "
+                + type.getName() + " could not be instantiated", e);
+        }
+    }
+}
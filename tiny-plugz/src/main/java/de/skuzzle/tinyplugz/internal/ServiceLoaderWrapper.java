@@ -1,9 +1,18 @@
 package de.skuzzle.tinyplugz.internal;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.ServiceLoader;
 
+import de.skuzzle.tinyplugz.PluginInformation;
+import de.skuzzle.tinyplugz.ServiceProvider;
 import de.skuzzle.tinyplugz.util.ElementIterator;
+import de.skuzzle.tinyplugz.util.Iterators;
 import de.skuzzle.tinyplugz.util.Require;
 
 /**
@@ -47,6 +56,115 @@ public abstract class ServiceLoaderWrapper {
     public abstract <T> ElementIterator<T> loadService(Class<T> providerClass,
             ClassLoader classLoader);
 
+    /**
+     * Returns an {@link Iterator} of the implementors of the given service
+     * provider interface which are declared by a single plugin. This base
+     * implementation builds upon {@link #loadService(Class, ClassLoader)} and
+     * only returns the implementors whose class has been defined by the
+     * plugin's ClassLoader. Thus, all implementors visible to the plugin are
+     * instantiated while iterating. The built-in wrappers override it to only
+     * read the plugin's own configuration files.
+     *
+     * @param <T> Type of the service provider interface.
+     * @param providerClass The service provider interface.
+     * @param pluginClassLoader The ClassLoader of the plugin.
+     * @return An iterator of implementors.
+     * @since 0.4.0
+     */
+    public <T> ElementIterator<T> loadPluginServices(Class<T> providerClass,
+            ClassLoader pluginClassLoader) {
+        return ElementIterator.wrap(Iterators.filter(
+                loadService(providerClass, pluginClassLoader),
+                service -> service.getClass().getClassLoader() == pluginClassLoader));
+    }
+
+    /**
+     * Returns handles to all implementors of the given service provider
+     * interface. Implementations should avoid loading the provider classes
+     * until {@link ServiceProvider#get()} is called. This base implementation
+     * builds upon {@link #loadService(Class, ClassLoader)} and thus
+     * instantiates every provider while iterating. The
+     * {@link #getDefault() default wrapper} overrides it and reads the
+     * provider names from the configuration files instead.
+     *
+     * @param <T> Type of the service provider interface.
+     * @param providerClass The service provider interface.
+     * @param classLoader The Classloader to use.
+     * @return An iterator of provider handles.
+     * @since 0.4.0
+     */
+    public <T> ElementIterator<ServiceProvider<T>> loadProviders(Class<T> providerClass,
+            ClassLoader classLoader) {
+        return providersOf(loadService(providerClass, classLoader));
+    }
+
+    /**
+     * Wraps already instantiated providers into {@link ServiceProvider}
+     * handles. The declaring plugin of a provider is determined by the
+     * ClassLoader of its class.
+     *
+     * @param <T> Type of the service provider interface.
+     * @param instances The provider instances.
+     * @return An iterator of provider handles. The handles return the given
+     *         instances, so every provider is instantiated while iterating.
+     * @since 0.4.0
+     */
+    public static <T> ElementIterator<ServiceProvider<T>> providersOf(
+            Iterator<T> instances) {
+        Require.nonNull(instances, "instances");
+        return ElementIterator.wrap(new Iterator<ServiceProvider<T>>() {
+
+            @Override
+            public boolean hasNext() {
+                return instances.hasNext();
+            }
+
+            @Override
+            public ServiceProvider<T> next() {
+                final T instance = instances.next();
+                final ClassLoader cl = instance.getClass().getClassLoader();
+                final PluginInformation plugin = cl instanceof PluginClassLoader
+                        ? ((PluginClassLoader) cl).getPluginInformation()
+                        : null;
+                return new ServiceProvider<T>() {
+
+                    @Override
+                    public String getProviderClassName() {
+                        return instance.getClass().getName();
+                    }
+
+                    @Override
+                    public Optional<PluginInformation> getPluginInformation() {
+                        return Optional.ofNullable(plugin);
+                    }
+
+                    @Override
+                    public T get() {
+                        return instance;
+                    }
+
+                    @Override
+                    public String toString() {
+                        return "ServiceProvider[" + getProviderClassName() + "]";
+                    }
+                };
+            }
+        });
+    }
+
+    /**
+     * Discards all information which this wrapper might have cached for the
+     * given ClassLoader. Called when the ClassLoader is no longer used, for
+     * example when plugins are undeployed. The default implementation does
+     * nothing.
+     *
+     * @param classLoader The ClassLoader which is no longer used.
+     * @since 0.4.0
+     */
+    public void invalidate(ClassLoader classLoader) {
+        // nothing cached by default
+    }
+
     private static final class ServiceLoaderWrapperImpl extends ServiceLoaderWrapper {
 
         private ServiceLoaderWrapperImpl() {
@@ -55,11 +173,122 @@ public abstract class ServiceLoaderWrapper {
         }
 
         @Override
-        public <T> ElementIterator<T> loadService(Class<T> providerClass,
+        public <T> ProviderIterator<T> loadService(Class<T> providerClass,
                 ClassLoader classLoader) {
-            return ElementIterator.wrap(
-                    ServiceLoader.load(providerClass, classLoader).iterator());
+            // reads the same configuration files as the ServiceLoader, but
+            // allows to count the providers before instantiating them
+            final ServiceLookupEvent event = FlightRecording.AVAILABLE
+                    ? ServiceLookupEvent.start()
+                    : null;
+            final List<String> names = new ArrayList<>(ServiceConfigurations
+                    .read(providerClass, classLoader).keySet());
+            if (event != null) {
+                event.finish(providerClass, classLoader, names.size());
+            }
+            return providers(providerClass, names, classLoader);
         }
 
+        @Override
+        public <T> ElementIterator<ServiceProvider<T>> loadProviders(
+                Class<T> providerClass, ClassLoader classLoader) {
+            final ServiceLookupEvent event = FlightRecording.AVAILABLE
+                    ? ServiceLookupEvent.start()
+                    : null;
+            final Map<String, PluginInformation> names = ServiceConfigurations
+                    .read(providerClass, classLoader);
+            if (event != null) {
+                event.finish(providerClass, classLoader, names.size());
+            }
+            final Iterator<Entry<String, PluginInformation>> entries = names
+                    .entrySet().iterator();
+            return ElementIterator.wrap(new Iterator<ServiceProvider<T>>() {
+
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public ServiceProvider<T> next() {
+                    final Entry<String, PluginInformation> entry = entries.next();
+                    final String name = entry.getKey();
+                    final PluginInformation plugin = entry.getValue();
+                    return new ServiceProvider<T>() {
+
+                        @Override
+                        public String getProviderClassName() {
+                            return name;
+                        }
+
+                        @Override
+                        public Optional<PluginInformation> getPluginInformation() {
+                            return Optional.ofNullable(plugin);
+                        }
+
+                        @Override
+                        public T get() {
+                            return ServiceConfigurations.loadProvider(providerClass,
+                                    name, classLoader);
+                        }
+
+                        @Override
+                        public String toString() {
+                            return "ServiceProvider[" + name + "]";
+                        }
+                    };
+                }
+            });
+        }
+
+        @Override
+        public <T> ElementIterator<T> loadPluginServices(Class<T> providerClass,
+                ClassLoader pluginClassLoader) {
+            if (!(pluginClassLoader instanceof PluginClassLoader)) {
+                return super.loadPluginServices(providerClass, pluginClassLoader);
+            }
+            // ServiceLoader would also search the application and all other
+            // plugins, so only the plugin's own declarations are read
+            final PluginClassLoader pluginCl = (PluginClassLoader) pluginClassLoader;
+            final ServiceLookupEvent event = FlightRecording.AVAILABLE
+                    ? ServiceLookupEvent.start()
+                    : null;
+            final List<String> names = new ArrayList<>(ServiceConfigurations
+                    .readOwn(providerClass, pluginCl).keySet());
+            if (event != null) {
+                event.finish(providerClass, pluginCl, names.size());
+            }
+            return providers(providerClass, names, pluginCl);
+        }
+
+        /**
+         * Creates an iterator which instantiates the providers with given
+         * names while iterating.
+         */
+        private static <T> ProviderIterator<T> providers(Class<T> providerClass,
+                List<String> names, ClassLoader classLoader) {
+            return new ProviderIterator<T>() {
+
+                private int i;
+
+                @Override
+                public boolean hasNext() {
+                    return this.i < names.size();
+                }
+
+                @Override
+                public int remaining() {
+                    return names.size() - this.i;
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return ServiceConfigurations.loadProvider(providerClass,
+                            names.get(this.i++), classLoader);
+                }
+            };
+        }
     }
 }
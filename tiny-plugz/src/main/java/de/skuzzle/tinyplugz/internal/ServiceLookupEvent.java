@@ -0,0 +1,70 @@
+package de.skuzzle.tinyplugz.internal;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for service look ups performed by a
+ * {@link ServiceLoaderWrapper}. The requestor is the ClassLoader which is
+ * searched for providers. The plugin is only set if that ClassLoader belongs
+ * to a single plugin.
+ *
+ * @author Simon Taddiken
+ */
+@Name("de.skuzzle.tinyplugz.ServiceLookup")
+@Label("Service Look Up")
+@Description("Look up of the providers of a service")
+final class ServiceLookupEvent extends LookupEvent {
+
+    /** Type of this event, checked before an instance is allocated. */
+    private static final EventType TYPE = EventType.getEventType(ServiceLookupEvent.class);
+
+    @Label("Providers")
+    int providers;
+
+    private ServiceLookupEvent() {
+        // use start()
+    }
+
+    /**
+     * Begins a new event.
+     *
+     * @return The event or <code>null</code> if it is disabled.
+     */
+    @Nullable
+    static ServiceLookupEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        final ServiceLookupEvent event = new ServiceLookupEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends this event after the providers of the given service have been
+     * resolved.
+     *
+     * @param service The service.
+     * @param classLoader The ClassLoader which has been searched.
+     * @param providers The number of providers.
+     */
+    void finish(Class<?> service, ClassLoader classLoader, int providers) {
+        this.providers = providers;
+        final String outcome;
+        if (providers == 0) {
+            outcome = FlightRecording.NOT_FOUND;
+        } else {
+            outcome = FlightRecording.FOUND;
+        }
+        final String scope = FlightRecording.nameOf(classLoader);
+        final String plugin = classLoader instanceof PluginClassLoader
+                ? scope
+                : null;
+        finish(scope, plugin, service.getName(), outcome);
+    }
+}
@@ -1,17 +1,50 @@
 package de.skuzzle.tinyplugz.util;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import de.skuzzle.tinyplugz.TinyPlugzException;
 
 /**
  * Java Reflection utility methods.
+ * <p>
+ * The default constructors of the classes instantiated by this class are
+ * looked up only once and are then cached for subsequent instantiations. The
+ * same holds for classes which are loaded by their name. Neither cache
+ * prevents ClassLoaders from being garbage collected.
+ * </p>
  *
  * @author Simon Taddiken
  */
 public final class ReflectionUtil {
 
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(Object.class);
+
+    /** Caches the factory of each class within the class itself. */
+    private static final ClassValue<Factory> FACTORIES = new ClassValue<Factory>() {
+
+        @Override
+        protected Factory computeValue(Class<?> type) {
+            return new Factory(type);
+        }
+    };
+
+    /**
+     * Caches classes which have been loaded by name per ClassLoader. Classes
+     * are referenced weakly because they strongly reference their defining
+     * ClassLoader which will mostly be the key itself.
+     */
+    private static final Map<ClassLoader, Map<String, WeakReference<Class<?>>>> CLASSES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
     private ReflectionUtil() {
         // hidden constructor.
     }
@@ -42,12 +75,7 @@ public final class ReflectionUtil {
         if (source instanceof Class<?>) {
             return fromClass(base, (Class<?>) source);
         } else if (source instanceof String) {
-            try {
-                final Class<?> concrete = classLoader.loadClass(source.toString());
-                return fromClass(base, concrete);
-            } catch (ClassNotFoundException e) {
-                throw new TinyPlugzException(e);
-            }
+            return fromClass(base, loadClass(source.toString(), classLoader));
         } else if (base.isInstance(source)) {
             return base.cast(source);
         } else {
@@ -56,20 +84,75 @@ public final class ReflectionUtil {
         }
     }
 
+    /**
+     * Returns a factory which creates new instances of the given type by
+     * calling its no-argument default constructor. The constructor is only
+     * looked up once per type, thus the factory can be used to repeatedly
+     * create instances at about the cost of calling the constructor directly.
+     * Exceptions which are thrown by the constructor will be wrapped into a
+     * {@link TinyPlugzException} by the returned factory.
+     *
+     * @param type The type to create instances of.
+     * @return The factory.
+     * @throws TinyPlugzException If the type has no accessible default
+     *             constructor.
+     * @since 0.4.0
+     */
+    public static <T> Supplier<T> getFactory(Class<T> type) {
+        Require.nonNull(type, "type");
+        @SuppressWarnings("unchecked")
+        final Supplier<T> factory = (Supplier<T>) FACTORIES.get(type);
+        return factory;
+    }
+
+    private static Class<?> loadClass(String name, ClassLoader classLoader) {
+        final Map<String, WeakReference<Class<?>>> classes = CLASSES.computeIfAbsent(
+                classLoader, cl -> new ConcurrentHashMap<>());
+        final WeakReference<Class<?>> ref = classes.get(name);
+        Class<?> result = ref == null ? null : ref.get();
+        if (result == null) {
+            try {
+                result = classLoader.loadClass(name);
+            } catch (ClassNotFoundException e) {
+                throw new TinyPlugzException(e);
+            }
+            classes.put(name, new WeakReference<>(result));
+        }
+        return result;
+    }
+
     private static <T> T fromClass(Class<T> base, Class<?> concrete) {
         if (!base.isAssignableFrom(concrete)) {
             throw new TinyPlugzException(String.format("'%s' is not an instance of '%s'",
                     concrete.getName(), base.getName()));
         }
-        try {
-            final Constructor<?> ctor = concrete.getConstructor();
-            ctor.setAccessible(true);
-            return base.cast(ctor.newInstance());
-        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException
-                | SecurityException | IllegalArgumentException
-                | InvocationTargetException e) {
-            throw new TinyPlugzException(e);
-        }
+        return base.cast(FACTORIES.get(concrete).get());
     }
 
+    private static final class Factory implements Supplier<Object> {
+
+        private final MethodHandle constructor;
+
+        private Factory(Class<?> type) {
+            try {
+                final Constructor<?> ctor = type.getConstructor();
+                ctor.setAccessible(true);
+                this.constructor = MethodHandles.lookup().unreflectConstructor(ctor)
+                        .asType(FACTORY_TYPE);
+            } catch (ReflectiveOperationException | SecurityException e) {
+                throw new TinyPlugzException(e);
+            }
+        }
+
+        @Override
+        public Object get() {
+            try {
+                return this.constructor.invokeExact();
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new TinyPlugzException(e);
+            }
+        }
+    }
 }
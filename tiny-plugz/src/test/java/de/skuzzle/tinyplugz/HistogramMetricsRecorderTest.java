@@ -0,0 +1,131 @@
+package de.skuzzle.tinyplugz;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.skuzzle.tinyplugz.HistogramMetricsRecorder.Histogram;
+import de.skuzzle.tinyplugz.MetricsRecorder.DeployPhase;
+
+public class HistogramMetricsRecorderTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final HistogramMetricsRecorder subject = new HistogramMetricsRecorder();
+
+    @After
+    public void tearDown() throws Exception {
+        if (TinyPlugz.isDeployed()) {
+            TinyPlugz.getInstance().undeploy();
+        }
+    }
+
+    private TinyPlugz deploy(Object recorder) throws Exception {
+        final File plugin = this.folder.newFolder("plugin");
+        Files.write(new File(plugin, "resource.txt").toPath(),
+                "".getBytes(StandardCharsets.UTF_8));
+        return TinyPlugzConfigurator.setup()
+                .withProperty(Options.FORCE_DEFAULT)
+                .withProperty(Options.METRICS_RECORDER, recorder)
+                .withPlugins(source -> source.addUnpackedPlugin(plugin.toPath()))
+                .deploy();
+    }
+
+    @Test
+    public void testEmptyHistogram() throws Exception {
+        final Histogram histogram = this.subject.getClassLookups();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0.0, histogram.getMeanNanos(), 0.0);
+        assertEquals(0, histogram.getPercentileNanos(99));
+    }
+
+    @Test
+    public void testHistogram() throws Exception {
+        for (int i = 1; i <= 100; ++i) {
+            this.subject.classLookup(null, "com.example.Foo", true, i * 1000L);
+        }
+        final Histogram histogram = this.subject.getClassLookups();
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050000L, histogram.getTotalNanos());
+        assertEquals(100000L, histogram.getMaxNanos());
+        assertEquals(50500.0, histogram.getMeanNanos(), 0.0);
+        assertEquals(0, this.subject.getClassLookupMisses().getCount());
+
+        // upper bounds of the buckets containing 50000 and 99000
+        assertEquals(65535L, histogram.getPercentileNanos(50));
+        assertEquals(100000L, histogram.getPercentileNanos(99));
+    }
+
+    @Test
+    public void testBucketCounts() throws Exception {
+        this.subject.resourceLookup(null, "foo", false, 0L);
+        this.subject.resourceLookup(null, "foo", false, 1L);
+        this.subject.resourceLookup(null, "foo", false, 3L);
+        this.subject.resourceLookup(null, "foo", false, -5L);
+        final long[] buckets = this.subject.getResourceLookupMisses().getBucketCounts();
+        assertEquals(2, buckets[0]);
+        assertEquals(1, buckets[1]);
+        assertEquals(1, buckets[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() throws Exception {
+        this.subject.getClassLookups().getPercentileNanos(101);
+    }
+
+    @Test
+    public void testRecordDeployment() throws Exception {
+        final TinyPlugz tinyPlugz = deploy(this.subject);
+
+        for (final DeployPhase phase : DeployPhase.values()) {
+            assertEquals(phase.toString(), 1,
+                    this.subject.getDeployPhase(phase).getCount());
+        }
+
+        assertTrue(tinyPlugz.getResource("resource.txt").isPresent());
+        assertFalse(tinyPlugz.getResource("missing.txt").isPresent());
+        assertEquals(1, this.subject.getResourceLookups().getCount());
+        assertEquals(1, this.subject.getResourceLookupMisses().getCount());
+
+        try {
+            tinyPlugz.getClassLoader().loadClass("com.example.Missing");
+        } catch (final ClassNotFoundException expected) {
+            // expected
+        }
+        assertEquals(1, this.subject.getClassLookupMisses().getCount());
+
+        final long services = this.subject.getServiceLookups().getCount();
+        tinyPlugz.getServices(HostSampleService.class);
+        assertEquals(services + 1, this.subject.getServiceLookups().getCount());
+    }
+
+    @Test
+    public void testReplaceClassProperty() throws Exception {
+        final TinyPlugz tinyPlugz = deploy(HistogramMetricsRecorder.class);
+        final Object recorder = tinyPlugz.getProperties().get(Options.METRICS_RECORDER);
+
+        assertTrue(recorder instanceof HistogramMetricsRecorder);
+        assertEquals(1, ((HistogramMetricsRecorder) recorder)
+                .getDeployPhase(DeployPhase.DEPLOY).getCount());
+    }
+
+    @Test
+    public void testNoop() throws Exception {
+        final MetricsRecorder noop = MetricsRecorder.noop();
+        assertSame(noop, MetricsRecorder.noop());
+        final TinyPlugz tinyPlugz = deploy(noop);
+        assertSame(noop, tinyPlugz.getProperties().get(Options.METRICS_RECORDER));
+    }
+}
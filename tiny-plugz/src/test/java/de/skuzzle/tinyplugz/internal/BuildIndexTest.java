@@ -0,0 +1,54 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class BuildIndexTest {
+
+    private static BuildIndex roundTrip(BuildIndex index) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeTo(out);
+        return BuildIndex.readFrom(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final Map<String, List<String>> services = new LinkedHashMap<>();
+        services.put("de.skuzzle.Service", Arrays.asList("de.skuzzle.B",
+                "de.skuzzle.A"));
+        services.put("de.skuzzle.Other", Collections.emptyList());
+        final BuildIndex index = new BuildIndex(
+                Arrays.asList("de.skuzzle", ""),
+                Arrays.asList("foo.txt", "META-INF/services/de.skuzzle.Service"),
+                services);
+
+        final BuildIndex read = roundTrip(index);
+        assertEquals(new HashSet<>(Arrays.asList("de.skuzzle", "")),
+                read.getPackages());
+        assertEquals(new HashSet<>(Arrays.asList("foo.txt",
+                "META-INF/services/de.skuzzle.Service")), read.getResources());
+        assertEquals(services, read.getServices());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadInvalid() throws Exception {
+        BuildIndex.readFrom(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5 }));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadUnsupportedVersion() throws Exception {
+        BuildIndex.readFrom(new ByteArrayInputStream(
+                new byte[] { 0x54, 0x50, 0x49, 0x58, 2 }));
+    }
+}
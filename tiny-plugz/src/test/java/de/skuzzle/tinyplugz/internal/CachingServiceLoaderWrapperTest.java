@@ -0,0 +1,254 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.skuzzle.tinyplugz.ServiceProvider;
+import de.skuzzle.tinyplugz.SingletonService;
+
+public class CachingServiceLoaderWrapperTest {
+
+    public interface SampleService {}
+
+    public static class SampleProvider1 implements SampleService {
+        static int instances;
+
+        public SampleProvider1() {
+            ++instances;
+        }
+    }
+
+    public static class SampleProvider2 implements SampleService {}
+
+    @SingletonService
+    public static class SingletonProvider implements SampleService, AutoCloseable {
+        boolean closed;
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File config;
+    private URLClassLoader classLoader;
+
+    @Before
+    public void setUp() throws Exception {
+        final File services = new File(this.folder.getRoot(), "META-INF/services");
+        services.mkdirs();
+        this.config = new File(services, SampleService.class.getName());
+        this.classLoader = new URLClassLoader(
+                new URL[] { this.folder.getRoot().toURI().toURL() },
+                getClass().getClassLoader());
+        SampleProvider1.instances = 0;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.classLoader.close();
+    }
+
+    private void writeConfig(String content) throws Exception {
+        Files.write(this.config.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testLoadProvidersInOrder() throws Exception {
+        writeConfig("# comment\n"
+            + SampleProvider2.class.getName() + "\n"
+            + "  " + SampleProvider1.class.getName() + " # comment\n"
+            + SampleProvider2.class.getName() + "\n");
+        final Iterator<SampleService> it = new CachingServiceLoaderWrapper()
+                .loadService(SampleService.class, this.classLoader);
+
+        assertTrue(it.next() instanceof SampleProvider2);
+        assertTrue(it.next() instanceof SampleProvider1);
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testInstantiateLazily() throws Exception {
+        writeConfig(SampleProvider1.class.getName());
+        final Iterator<SampleService> it = new CachingServiceLoaderWrapper()
+                .loadService(SampleService.class, this.classLoader);
+
+        assertTrue(it.hasNext());
+        assertEquals(0, SampleProvider1.instances);
+        it.next();
+        assertEquals(1, SampleProvider1.instances);
+    }
+
+    @Test
+    public void testRemaining() throws Exception {
+        writeConfig(SampleProvider1.class.getName() + "\n"
+            + SampleProvider2.class.getName());
+        final ProviderIterator<SampleService> it = new CachingServiceLoaderWrapper()
+                .loadService(SampleService.class, this.classLoader);
+
+        assertEquals(2, it.remaining());
+        assertEquals(0, SampleProvider1.instances);
+        it.next();
+        assertEquals(1, it.remaining());
+    }
+
+    @Test
+    public void testLoadProviders() throws Exception {
+        writeConfig(SampleProvider1.class.getName() + "\ncom.foo.Unknown");
+        final Iterator<ServiceProvider<SampleService>> it =
+                new CachingServiceLoaderWrapper().loadProviders(SampleService.class,
+                        this.classLoader);
+
+        final ServiceProvider<SampleService> first = it.next();
+        final ServiceProvider<SampleService> second = it.next();
+        assertFalse(it.hasNext());
+        assertEquals(SampleProvider1.class.getName(), first.getProviderClassName());
+        assertFalse(first.getPluginInformation().isPresent());
+        assertEquals("com.foo.Unknown", second.getProviderClassName());
+        assertEquals(0, SampleProvider1.instances);
+
+        assertTrue(first.get() instanceof SampleProvider1);
+        assertEquals(1, SampleProvider1.instances);
+    }
+
+    @Test(expected = ServiceConfigurationError.class)
+    public void testLoadProvidersUnknownClass() throws Exception {
+        writeConfig("com.foo.Unknown");
+        new CachingServiceLoaderWrapper()
+                .loadProviders(SampleService.class, this.classLoader)
+                .next()
+                .get();
+    }
+
+    @Test
+    public void testResolveOnlyOnce() throws Exception {
+        writeConfig(SampleProvider1.class.getName());
+        final CachingServiceLoaderWrapper subject = new CachingServiceLoaderWrapper();
+        subject.loadService(SampleService.class, this.classLoader);
+        writeConfig("");
+
+        assertTrue(subject.loadService(SampleService.class, this.classLoader)
+                .hasNext());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        writeConfig(SampleProvider1.class.getName());
+        final CachingServiceLoaderWrapper subject = new CachingServiceLoaderWrapper();
+        subject.loadService(SampleService.class, this.classLoader);
+        writeConfig("");
+        subject.invalidate(this.classLoader);
+
+        assertFalse(subject.loadService(SampleService.class, this.classLoader)
+                .hasNext());
+    }
+
+    @Test
+    public void testNewInstances() throws Exception {
+        writeConfig(SampleProvider1.class.getName());
+        final CachingServiceLoaderWrapper subject = new CachingServiceLoaderWrapper();
+
+        assertNotSame(subject.loadService(SampleService.class, this.classLoader).next(),
+                subject.loadService(SampleService.class, this.classLoader).next());
+    }
+
+    @Test
+    public void testReuseInstances() throws Exception {
+        writeConfig(SampleProvider1.class.getName());
+        final CachingServiceLoaderWrapper subject = new CachingServiceLoaderWrapper(
+                true);
+
+        assertSame(subject.loadService(SampleService.class, this.classLoader).next(),
+                subject.loadService(SampleService.class, this.classLoader).next());
+        assertEquals(1, SampleProvider1.instances);
+    }
+
+    @Test
+    public void testReuseAnnotatedInstances() throws Exception {
+        writeConfig(SingletonProvider.class.getName());
+        final CachingServiceLoaderWrapper subject = new CachingServiceLoaderWrapper();
+
+        assertSame(subject.loadService(SampleService.class, this.classLoader).next(),
+                subject.loadService(SampleService.class, this.classLoader).next());
+    }
+
+    @Test
+    public void testCloseReusedInstancesOnInvalidate() throws Exception {
+        writeConfig(SingletonProvider.class.getName());
+        final CachingServiceLoaderWrapper subject = new CachingServiceLoaderWrapper();
+        final SingletonProvider instance = (SingletonProvider) subject
+                .loadService(SampleService.class, this.classLoader).next();
+
+        subject.invalidate(this.classLoader);
+        assertTrue(instance.closed);
+        assertNotSame(instance,
+                subject.loadService(SampleService.class, this.classLoader).next());
+    }
+
+    @Test
+    public void testDoNotRecreateDisposedDeployment() throws Exception {
+        writeConfig(SingletonProvider.class.getName());
+        final CachingServiceLoaderWrapper subject = new CachingServiceLoaderWrapper();
+        final DelegateClassLoader delegate = DelegateClassLoader.forPlugins(
+                Stream.of(this.folder.getRoot().toURI().toURL()),
+                getClass().getClassLoader());
+        try {
+            final SingletonProvider instance = (SingletonProvider) subject
+                    .loadService(SampleService.class, delegate).next();
+            // a look up which is still running while the deployment is disposed
+            final Iterator<SampleService> running = subject.loadService(
+                    SampleService.class, delegate);
+
+            subject.invalidate(delegate);
+            assertTrue(instance.closed);
+            try {
+                running.next();
+                fail("Expected IllegalStateException");
+            } catch (final IllegalStateException e) {
+                // the disposed scope must not be recreated
+            }
+        } finally {
+            delegate.close();
+        }
+    }
+
+    @Test(expected = ServiceConfigurationError.class)
+    public void testUnknownProvider() throws Exception {
+        writeConfig("com.foo.Unknown");
+        final Iterator<SampleService> it = new CachingServiceLoaderWrapper()
+                .loadService(SampleService.class, this.classLoader);
+
+        assertTrue(it.hasNext());
+        it.next();
+    }
+
+    @Test(expected = ServiceConfigurationError.class)
+    public void testNoSubtype() throws Exception {
+        writeConfig(String.class.getName());
+        new CachingServiceLoaderWrapper()
+                .loadService(SampleService.class, this.classLoader)
+                .next();
+    }
+}
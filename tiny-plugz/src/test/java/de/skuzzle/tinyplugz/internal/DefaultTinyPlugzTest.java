@@ -1,14 +1,93 @@
 package de.skuzzle.tinyplugz.internal;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import de.skuzzle.tinyplugz.AbstractTinyPlugzTest;
+import de.skuzzle.tinyplugz.Options;
+import de.skuzzle.tinyplugz.PluginSource;
+import de.skuzzle.tinyplugz.PluginSourceBuilder;
+import de.skuzzle.tinyplugz.SingletonService;
 import de.skuzzle.tinyplugz.TinyPlugz;
+import de.skuzzle.tinyplugz.TinyPlugzException;
+import de.skuzzle.tinyplugz.util.ElementIterator;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DefaultTinyPlugzTest extends AbstractTinyPlugzTest {
 
+    /** Public because it is written by the plugin's copy of the provider. */
+    public static ClassLoader closeHelperLoader;
+
+    @SingletonService
+    public static class ClosingProvider implements SampleService, AutoCloseable {
+
+        @Override
+        public void close() {
+            closeHelperLoader = new CloseHelper().getClass().getClassLoader();
+        }
+    }
+
+    public static class CloseHelper {}
+
+    /** Public because it is written by the plugins' copies of the provider. */
+    public static int constructed;
+
+    public static class CountingProvider implements SampleService {
+
+        public CountingProvider() {
+            ++constructed;
+        }
+    }
+
+    public static class OtherCountingProvider implements SampleService {
+
+        public OtherCountingProvider() {
+            ++constructed;
+        }
+    }
+
+    public static class OwnProvider implements SampleService {}
+
+    public static class OtherProvider implements SampleService {}
+
+    /** A custom wrapper which is unaware of plugins. */
+    public static class PlainServiceLoaderWrapper extends ServiceLoaderWrapper {
+
+        @Override
+        public <T> ElementIterator<T> loadService(Class<T> providerClass,
+                ClassLoader classLoader) {
+            return ElementIterator.wrap(
+                    ServiceLoader.load(providerClass, classLoader).iterator());
+        }
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
     private final TinyPlugz subject;
 
     public DefaultTinyPlugzTest() {
@@ -25,4 +104,142 @@ public class DefaultTinyPlugzTest extends AbstractTinyPlugzTest {
     protected <T> void mockService(Class<T> service, T... impls) {
         defaultMockService(service, impls);
     }
+
+    @Test(expected = TinyPlugzException.class)
+    public void testInvalidServiceScope() throws Exception {
+        final Map<Object, Object> props = new HashMap<>();
+        props.put(Options.SERVICE_SCOPE, "foo");
+        new DefaultTinyPlugz().initialize(PluginSource.empty(),
+                getClass().getClassLoader(), props);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetServiceMultipleProvidersWithoutInstantiating() throws Exception {
+        final ProviderIterator<SampleService> providers = mock(ProviderIterator.class);
+        when(providers.remaining()).thenReturn(2);
+        when(this.mockServiceLoader.loadService(Mockito.eq(SampleService.class),
+                Mockito.any())).thenReturn(providers);
+
+        try {
+            getSubject().getService(SampleService.class);
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            verify(providers, never()).next();
+        }
+    }
+
+    private void copyClass(Class<?> cls, File root) throws Exception {
+        final String path = cls.getName().replace('.', '/') + ".class";
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(path)) {
+            Files.copy(in, file.toPath());
+        }
+    }
+
+    /**
+     * Creates a plugin which declares the given provider of the SampleService
+     * and contains the given classes.
+     */
+    private Path plugin(String name, Class<?> provider, Class<?>... classes)
+            throws Exception {
+        final File plugin = this.folder.newFolder(name);
+        copyClass(provider, plugin);
+        for (final Class<?> cls : classes) {
+            copyClass(cls, plugin);
+        }
+        final File config = new File(plugin,
+                "META-INF/services/" + SampleService.class.getName());
+        config.getParentFile().mkdirs();
+        Files.write(config.toPath(), provider.getName()
+                .getBytes(StandardCharsets.UTF_8));
+        return plugin.toPath();
+    }
+
+    private DefaultTinyPlugz deploy(Map<Object, Object> props, Path... plugins) {
+        final PluginSourceBuilder source = PluginSource.builder();
+        for (final Path plugin : plugins) {
+            source.addUnpackedPlugin(plugin);
+        }
+        // load the copied classes from the plugins instead of the test classpath
+        props.put(Options.PARENT_FIRST_PACKAGES, "");
+        final DefaultTinyPlugz tinyPlugz = new DefaultTinyPlugz();
+        tinyPlugz.initialize(source.createSource(), getClass().getClassLoader(),
+                props);
+        return tinyPlugz;
+    }
+
+    @Test
+    public void testGetPluginServicesWithCustomWrapper() throws Exception {
+        final Map<Object, Object> props = new HashMap<>();
+        props.put(Options.SERVICE_LOADER_WRAPPER, new PlainServiceLoaderWrapper());
+        final DefaultTinyPlugz tinyPlugz = deploy(props,
+                plugin("plugin1", OwnProvider.class),
+                plugin("plugin2", OtherProvider.class));
+        try {
+            final ClassLoader pluginCl = tinyPlugz.getPluginInformation("plugin1")
+                    .get().getClassLoader();
+            final Iterator<SampleService> it = tinyPlugz.getServices("plugin1",
+                    SampleService.class);
+
+            // the plain wrapper also sees the provider of plugin2, but the base
+            // loadPluginServices filters out providers of other plugins
+            final SampleService service = it.next();
+            assertEquals(OwnProvider.class.getName(), service.getClass().getName());
+            assertSame(pluginCl, service.getClass().getClassLoader());
+            assertFalse(it.hasNext());
+        } finally {
+            tinyPlugz.dispose();
+        }
+    }
+
+    @Test
+    public void testGetServiceMultipleProvidersDoesNotInstantiate() throws Exception {
+        final DefaultTinyPlugz tinyPlugz = deploy(new HashMap<>(),
+                plugin("plugin1", CountingProvider.class),
+                plugin("plugin2", OtherCountingProvider.class));
+        constructed = 0;
+        try {
+            tinyPlugz.getService(SampleService.class);
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertEquals(0, constructed);
+        } finally {
+            tinyPlugz.dispose();
+        }
+    }
+
+    @Test
+    public void testDoNotReuseSingletonsWithoutServiceScope() throws Exception {
+        final DefaultTinyPlugz tinyPlugz = deploy(new HashMap<>(),
+                plugin("plugin", ClosingProvider.class, CloseHelper.class));
+        try {
+            final SampleService first = tinyPlugz.getServices("plugin",
+                    SampleService.class).next();
+            final SampleService second = tinyPlugz.getServices("plugin",
+                    SampleService.class).next();
+            assertNotSame(first, second);
+        } finally {
+            tinyPlugz.dispose();
+        }
+    }
+
+    @Test
+    public void testDisposeSingletonsBeforeClosingPlugins() throws Exception {
+        final Map<Object, Object> props = new HashMap<>();
+        props.put(Options.SERVICE_SCOPE, "prototype");
+        final DefaultTinyPlugz tinyPlugz = deploy(props,
+                plugin("plugin", ClosingProvider.class, CloseHelper.class));
+        final ClassLoader pluginCl = tinyPlugz.getPluginInformation("plugin").get()
+                .getClassLoader();
+        assertSame(pluginCl, tinyPlugz.getServices("plugin", SampleService.class).next()
+                .getClass().getClassLoader());
+
+        closeHelperLoader = null;
+        tinyPlugz.dispose();
+
+        // the helper is first loaded while closing the singleton
+        assertSame(pluginCl, closeHelperLoader);
+    }
 }
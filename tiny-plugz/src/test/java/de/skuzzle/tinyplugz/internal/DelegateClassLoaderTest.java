@@ -0,0 +1,136 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.skuzzle.tinyplugz.internal.CachingServiceLoaderWrapperTest.SampleProvider1;
+import de.skuzzle.tinyplugz.internal.CachingServiceLoaderWrapperTest.SampleProvider2;
+import de.skuzzle.tinyplugz.internal.CachingServiceLoaderWrapperTest.SampleService;
+import de.skuzzle.tinyplugz.test.own.OwnDependency;
+import de.skuzzle.tinyplugz.test.shared.SharedDependency;
+
+public class DelegateClassLoaderTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private DelegateClassLoader subject;
+
+    @Before
+    public void setUp() throws Exception {
+        final File plugin1 = this.folder.newFolder("plugin1");
+        final File plugin2 = this.folder.newFolder("plugin2");
+        write(plugin1, "resource.txt", "");
+        write(plugin2, "resource2.txt", "");
+        write(plugin1, "META-INF/services/" + SampleService.class.getName(),
+                SampleProvider1.class.getName());
+        write(plugin2, "META-INF/services/" + SampleService.class.getName(),
+                SampleProvider2.class.getName());
+
+        this.subject = DelegateClassLoader.forPlugins(
+                Stream.of(plugin1.toURI().toURL(), plugin2.toURI().toURL()),
+                getClass().getClassLoader());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.subject.close();
+    }
+
+    private void write(File root, String path, String content) throws Exception {
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void copyClass(Class<?> cls, File root) throws Exception {
+        final String path = cls.getName().replace('.', '/') + ".class";
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(path)) {
+            Files.copy(in, file.toPath());
+        }
+    }
+
+    @Test
+    public void testGetResourceFromPlugin() throws Exception {
+        assertTrue(this.subject.getResource("plugin1", "resource.txt").isPresent());
+        assertFalse(this.subject.getResource("plugin2", "resource.txt").isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetResourceFromUnknownPlugin() throws Exception {
+        this.subject.getResource("unknown", "resource.txt");
+    }
+
+    @Test
+    public void testLoadServiceFromPlugin() throws Exception {
+        final ClassLoader plugin2 = this.subject.getInformation("plugin2").get()
+                .getClassLoader();
+        final Iterator<SampleService> it = new CachingServiceLoaderWrapper()
+                .loadPluginServices(SampleService.class, plugin2);
+
+        assertTrue(it.next() instanceof SampleProvider2);
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testLoadServiceFromAllPlugins() throws Exception {
+        final Iterator<SampleService> it = new CachingServiceLoaderWrapper()
+                .loadService(SampleService.class, this.subject);
+
+        assertEquals(SampleProvider1.class, it.next().getClass());
+        assertEquals(SampleProvider2.class, it.next().getClass());
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testLoadEntriesMissingFromBuildIndex() throws Exception {
+        // classes and service declarations which have been generated after
+        // the build index has been written are not listed
+        final File plugin = this.folder.newFolder("indexed");
+        final File index = new File(plugin, BuildIndex.LOCATION);
+        index.getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(index)) {
+            new BuildIndex(Collections.emptyList(), Collections.emptyList(),
+                    Collections.emptyMap()).writeTo(out);
+        }
+        copyClass(SharedDependency.class, plugin);
+        copyClass(OwnDependency.class, plugin);
+        write(plugin, "META-INF/services/" + SharedDependency.class.getName(),
+                OwnDependency.class.getName());
+
+        // the parent can not see the test classes
+        final DelegateClassLoader indexed = DelegateClassLoader.forPlugins(
+                Stream.of(plugin.toURI().toURL()),
+                ClassLoader.getSystemClassLoader().getParent());
+        try {
+            final Class<?> service = indexed.loadClass(SharedDependency.class.getName());
+            final Iterator<?> it = ServiceLoaderWrapper.getDefault()
+                    .loadService(service, indexed);
+
+            assertEquals(OwnDependency.class.getName(), it.next().getClass().getName());
+            assertFalse(it.hasNext());
+        } finally {
+            indexed.close();
+        }
+    }
+}
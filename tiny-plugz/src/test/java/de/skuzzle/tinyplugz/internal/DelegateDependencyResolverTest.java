@@ -3,26 +3,25 @@ package de.skuzzle.tinyplugz.internal;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
-import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
-import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
-import org.mockito.stubbing.Answer;
+
+import de.skuzzle.tinyplugz.util.ElementIterator;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DelegateDependencyResolverTest {
@@ -98,6 +97,196 @@ public class DelegateDependencyResolverTest {
         verify(this.requestor, times(1)).findClass(Mockito.any(), Mockito.anyString());
     }
 
+    @Test
+    public void testFindClassUsesPackageIndex() throws Exception {
+        final String name = "de.skuzzle.TestClass";
+        final Class result = getClass();
+
+        this.subject.indexPackages(this.delegate1, Arrays.asList("de.other"));
+        this.subject.indexPackages(this.delegate2, Arrays.asList("de.skuzzle"));
+        when(this.delegate2.findClass(this.requestor, name)).thenReturn(result);
+
+        final Class<?> find = this.subject.findClass(this.requestor, name);
+        assertSame(result, find);
+        verify(this.delegate1, never()).findClass(Mockito.any(), Mockito.anyString());
+        verify(this.requestor, never()).findClass(Mockito.any(), Mockito.anyString());
+    }
+
+    @Test
+    public void testFindClassUnknownPackageAllIndexed() throws Exception {
+        this.subject.indexPackages(this.requestor, Arrays.asList("de.requestor"));
+        this.subject.indexPackages(this.delegate1, Arrays.asList("de.other"));
+        this.subject.indexPackages(this.delegate2, Arrays.asList("de.skuzzle"));
+
+        final Class<?> find = this.subject.findClass(this.requestor, "com.foo.Bar");
+        assertNull(find);
+        verify(this.delegate1, never()).findClass(Mockito.any(), Mockito.anyString());
+        verify(this.delegate2, never()).findClass(Mockito.any(), Mockito.anyString());
+    }
+
+    @Test
+    public void testFindClassUnknownPackageHinted() throws Exception {
+        final String name = "com.foo.Bar";
+        final Class result = getClass();
+
+        this.subject.indexPackages(this.requestor, Arrays.asList("de.requestor"));
+        this.subject.indexPackages(this.delegate1, Arrays.asList("de.other"));
+        this.subject.hintPackages(this.delegate2, Arrays.asList("de.skuzzle"));
+        when(this.delegate2.findClass(this.requestor, name)).thenReturn(result);
+
+        final Class<?> find = this.subject.findClass(this.requestor, name);
+        assertSame(result, find);
+        verify(this.delegate1, never()).findClass(Mockito.any(), Mockito.anyString());
+    }
+
+    @Test
+    public void testFindClassHintedOwnerAskedOnce() throws Exception {
+        final String name = "de.skuzzle.TestClass";
+
+        this.subject.indexPackages(this.requestor, Arrays.asList("de.requestor"));
+        this.subject.indexPackages(this.delegate1, Arrays.asList("de.other"));
+        this.subject.hintPackages(this.delegate2, Arrays.asList("de.skuzzle"));
+
+        final Class<?> find = this.subject.findClass(this.requestor, name);
+        assertNull(find);
+        verify(this.delegate2, times(1)).findClass(this.requestor, name);
+    }
+
+    @Test
+    public void testFindClassSearchUnindexed() throws Exception {
+        final String name = "de.skuzzle.TestClass";
+        final Class result = getClass();
+
+        this.subject.indexPackages(this.delegate1, Arrays.asList("de.skuzzle"));
+        when(this.delegate2.findClass(this.requestor, name)).thenReturn(result);
+
+        final Class<?> find = this.subject.findClass(this.requestor, name);
+        assertSame(result, find);
+        verify(this.delegate1, times(1)).findClass(Mockito.any(), Mockito.anyString());
+    }
+
+    @Test
+    public void testFindClassCachesMiss() throws Exception {
+        final String name = "de.skuzzle.TestClass";
+
+        assertNull(this.subject.findClass(this.requestor, name));
+        assertNull(this.subject.findClass(this.requestor, name));
+
+        verify(this.delegate1, times(1)).findClass(this.requestor, name);
+        verify(this.delegate2, times(1)).findClass(this.requestor, name);
+    }
+
+    @Test
+    public void testFindClassInvalidateMisses() throws Exception {
+        final String name = "de.skuzzle.TestClass";
+        final Class result = getClass();
+
+        assertNull(this.subject.findClass(this.requestor, name));
+        when(this.delegate2.findClass(this.requestor, name)).thenReturn(result);
+        this.subject.invalidateCaches();
+
+        final Class<?> find = this.subject.findClass(this.requestor, name);
+        assertSame(result, find);
+    }
+
+    @Test
+    public void testFindClassCacheDisabled() throws Exception {
+        final String name = "de.skuzzle.TestClass";
+        this.subject = new DelegateDependencyResolver(Arrays.asList(
+                this.requestor, this.delegate1, this.delegate2), 0);
+
+        assertNull(this.subject.findClass(this.requestor, name));
+        assertNull(this.subject.findClass(this.requestor, name));
+
+        verify(this.delegate1, times(2)).findClass(this.requestor, name);
+    }
+
+    @Test
+    public void testFindClassOnlyInRequired() throws Exception {
+        final String name = "de.skuzzle.TestClass";
+        final Class result = getClass();
+
+        this.subject.declareRequirements(this.requestor, Arrays.asList(this.delegate2));
+        when(this.delegate1.findClass(this.requestor, name)).thenReturn(result);
+
+        assertNull(this.subject.findClass(this.requestor, name));
+        verify(this.delegate1, never()).findClass(Mockito.any(), Mockito.anyString());
+        verify(this.delegate2).findClass(this.requestor, name);
+    }
+
+    @Test
+    public void testFindClassRequiredUsesPackageIndex() throws Exception {
+        final String name = "de.skuzzle.TestClass";
+        final Class result = getClass();
+
+        this.subject.indexPackages(this.delegate1, Arrays.asList("de.other"));
+        this.subject.indexPackages(this.delegate2, Arrays.asList("de.skuzzle"));
+        this.subject.declareRequirements(this.requestor,
+                Arrays.asList(this.delegate1, this.delegate2));
+        when(this.delegate2.findClass(this.requestor, name)).thenReturn(result);
+
+        assertSame(result, this.subject.findClass(this.requestor, name));
+        verify(this.delegate1, never()).findClass(Mockito.any(), Mockito.anyString());
+    }
+
+    @Test
+    public void testFindClassNotExported() throws Exception {
+        final String name = "de.skuzzle.internal.TestClass";
+        final Class result = getClass();
+
+        this.subject.indexPackages(this.delegate1, Arrays.asList("de.skuzzle.internal"));
+        this.subject.declareExports(this.delegate1,
+                ExportedPackages.parse("de.skuzzle.api"));
+        when(this.delegate1.findClass(Mockito.any(), Mockito.eq(name)))
+                .thenReturn(result);
+
+        assertNull(this.subject.findClass(this.requestor, name));
+        verify(this.delegate1, never()).findClass(this.requestor, name);
+    }
+
+    @Test
+    public void testFindClassNotExportedVisibleToApplication() throws Exception {
+        final String name = "de.skuzzle.internal.TestClass";
+        final Class result = getClass();
+
+        this.subject.indexPackages(this.delegate1, Arrays.asList("de.skuzzle.internal"));
+        this.subject.declareExports(this.delegate1,
+                ExportedPackages.parse("de.skuzzle.api"));
+        when(this.delegate1.findClass(null, name)).thenReturn(result);
+
+        assertSame(result, this.subject.findClass(null, name));
+    }
+
+    @Test
+    public void testFindClassExported() throws Exception {
+        final String name = "de.skuzzle.api.TestClass";
+        final Class result = getClass();
+
+        this.subject.declareExports(this.delegate2,
+                ExportedPackages.parse("de.skuzzle.api"));
+        when(this.delegate2.findClass(this.requestor, name)).thenReturn(result);
+
+        assertSame(result, this.subject.findClass(this.requestor, name));
+    }
+
+    @Test
+    public void testFindResourceOnlyInRequired() throws Exception {
+        this.subject.declareRequirements(this.requestor, Arrays.asList(this.delegate2));
+        when(this.delegate1.findResource(this.requestor, "foo")).thenReturn(this.url);
+
+        assertNull(this.subject.findResource(this.requestor, "foo"));
+        verify(this.delegate1, never()).findResource(Mockito.any(), Mockito.anyString());
+    }
+
+    @Test
+    public void testFindResourceCachesMiss() throws Exception {
+        assertNull(this.subject.findResource(this.requestor, "foo"));
+        assertNull(this.subject.findResource(this.requestor, "foo"));
+
+        verify(this.delegate1, times(1)).findResource(this.requestor, "foo");
+        verify(this.delegate2, times(1)).findResource(this.requestor, "foo");
+    }
+
     @Test
     public void testFindResource() throws Exception {
         when(this.delegate2.findResource(this.requestor, "foo")).thenReturn(this.url);
@@ -110,25 +299,27 @@ public class DelegateDependencyResolverTest {
 
     @Test
     public void testFindResources() throws Exception {
-        final Collection<URL> target = new ArrayList<>();
+        when(this.delegate1.findResources(this.requestor, "foo")).thenReturn(
+                ElementIterator.wrap(Arrays.asList(this.url).iterator()));
+        when(this.delegate2.findResources(this.requestor, "foo")).thenReturn(
+                ElementIterator.wrap(Arrays.asList(this.url).iterator()));
 
-        stubFindResources(target, this.delegate1);
-        stubFindResources(target, this.delegate2);
-
-        this.subject.findResources(this.requestor, "foo", target);
+        final Iterator<URL> it = this.subject.findResources(this.requestor, "foo");
+        final Collection<URL> target = new ArrayList<>();
+        it.forEachRemaining(target::add);
 
         assertEquals(2, target.size());
+        verify(this.requestor, never()).findResources(Mockito.any(), Mockito.anyString());
     }
 
-    private void stubFindResources(Collection<URL> target, DependencyResolver resolver) throws IOException {
-        doAnswer(new Answer<Void>() {
+    @Test
+    public void testFindResourcesLazy() throws Exception {
+        when(this.delegate1.findResources(this.requestor, "foo")).thenReturn(
+                ElementIterator.wrap(Arrays.asList(this.url).iterator()));
 
-            @Override
-            public Void answer(InvocationOnMock invocation) throws Throwable {
-                final Collection<URL> c = invocation.getArgumentAt(2, Collection.class);
-                c.add(DelegateDependencyResolverTest.this.url);
-                return null;
-            }}).when(resolver).findResources(this.requestor, "foo", target);
+        final Iterator<URL> it = this.subject.findResources(this.requestor, "foo");
+        assertSame(this.url, it.next());
+        verify(this.delegate2, never()).findResources(Mockito.any(), Mockito.anyString());
     }
 
     @Test
@@ -0,0 +1,98 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.skuzzle.tinyplugz.test.own.OwnDependency;
+import de.skuzzle.tinyplugz.test.own.ReferredDependency;
+import de.skuzzle.tinyplugz.test.shared.ReferringDependency;
+import de.skuzzle.tinyplugz.test.shared.SharedDependency;
+
+public class DependencyContentsTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File copyClass(Class<?> cls, String folderName) throws Exception {
+        final File root = new File(this.folder.getRoot(), folderName);
+        final String path = cls.getName().replace('.', '/') + ".class";
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(path)) {
+            Files.copy(in, file.toPath());
+        }
+        return root;
+    }
+
+    @Test
+    public void testNoSuchFile() throws Exception {
+        final File file = new File(this.folder.getRoot(), "missing.jar");
+        assertNull(DependencyContents.of(file.toURI().toURL(), true));
+    }
+
+    @Test
+    public void testPackages() throws Exception {
+        final File root = copyClass(SharedDependency.class, "dep");
+        final File manifest = new File(root, "META-INF/MANIFEST.MF");
+        manifest.getParentFile().mkdirs();
+        Files.write(manifest.toPath(), "Manifest-Version: 1.0\n"
+                .getBytes(StandardCharsets.UTF_8));
+
+        final DependencyContents subject = DependencyContents.of(root.toURI().toURL(),
+                false);
+        assertEquals(Collections.singleton("de/skuzzle/tinyplugz/test/shared"),
+                subject.getPackages());
+    }
+
+    @Test
+    public void testRefersTo() throws Exception {
+        final DependencyContents referring = DependencyContents.of(
+                copyClass(ReferringDependency.class, "referring").toURI().toURL(), true);
+        final DependencyContents referred = DependencyContents.of(
+                copyClass(ReferredDependency.class, "referred").toURI().toURL(), true);
+        final DependencyContents samePackage = DependencyContents.of(
+                copyClass(OwnDependency.class, "samePackage").toURI().toURL(), false);
+
+        assertTrue(referring.refersTo(referred));
+        assertFalse(referred.refersTo(referring));
+        // split packages are conservatively treated as references
+        assertTrue(referred.refersTo(samePackage));
+    }
+
+    @Test
+    public void testRefersToServiceProvider() throws Exception {
+        final File root = this.folder.newFolder("services");
+        final File services = new File(root, "META-INF/services/java.lang.Runnable");
+        services.getParentFile().mkdirs();
+        Files.write(services.toPath(), (ReferredDependency.class.getName() + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+
+        final DependencyContents subject = DependencyContents.of(
+                root.toURI().toURL(), true);
+        final DependencyContents referred = DependencyContents.of(
+                copyClass(ReferredDependency.class, "referred").toURI().toURL(), false);
+        assertTrue(subject.refersTo(referred));
+    }
+
+    @Test
+    public void testReferencesNotCollected() throws Exception {
+        final DependencyContents referring = DependencyContents.of(
+                copyClass(ReferringDependency.class, "referring").toURI().toURL(),
+                false);
+        final DependencyContents referred = DependencyContents.of(
+                copyClass(ReferredDependency.class, "referred").toURI().toURL(), false);
+        assertFalse(referring.refersTo(referred));
+    }
+}
@@ -0,0 +1,314 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.skuzzle.tinyplugz.Options;
+import de.skuzzle.tinyplugz.internal.DependencyLoaders.SharedDependencyClassLoader;
+import de.skuzzle.tinyplugz.internal.PluginClassLoader.DependencyClassLoader;
+import de.skuzzle.tinyplugz.test.own.OwnDependency;
+import de.skuzzle.tinyplugz.test.own.ReferredDependency;
+import de.skuzzle.tinyplugz.test.shared.ReferringDependency;
+import de.skuzzle.tinyplugz.test.shared.SharedDependency;
+
+public class DependencyLoadersTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final ClassLoader parent = getClass().getClassLoader();
+
+    private void write(File root, String path, String content) throws Exception {
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void copyClass(Class<?> cls, File root) throws Exception {
+        final String path = cls.getName().replace('.', '/') + ".class";
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(path)) {
+            Files.copy(in, file.toPath());
+        }
+    }
+
+    private URL createJar(String name, String content) throws Exception {
+        final File file = this.folder.newFile(name);
+        try (OutputStream out = Files.newOutputStream(file.toPath());
+                ZipOutputStream zip = new ZipOutputStream(out)) {
+            final ZipEntry entry = new ZipEntry("resources/content.txt");
+            entry.setTime(0);
+            zip.putNextEntry(entry);
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return file.toURI().toURL();
+    }
+
+    private URL createFile(String name, String content) throws Exception {
+        final File file = this.folder.newFile(name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file.toURI().toURL();
+    }
+
+    private ClassLoader pluginLoader(DelegateClassLoader delegate, String name) {
+        return delegate.getInformation(name).get().getClassLoader();
+    }
+
+    @Test
+    public void testNotShared() throws Exception {
+        final DependencyLoaders subject = DependencyLoaders.fromProperty(null);
+        final URL dep = createJar("dep.jar", "foo");
+        subject.register(new URL[] { dep });
+        subject.register(new URL[] { dep });
+        assertFalse(subject.isShared(dep));
+        assertTrue(subject.obtain(new URL[] { dep }, this.parent).isEmpty());
+    }
+
+    @Test
+    public void testShareSameFile() throws Exception {
+        final DependencyLoaders subject = DependencyLoaders.fromProperty("path");
+        final URL dep = createJar("dep.jar", "foo");
+        final URL sameDep = new URL(dep, "../" + this.folder.getRoot().getName()
+            + "/dep.jar");
+        subject.register(new URL[] { dep });
+        subject.register(new URL[] { sameDep });
+
+        assertEquals(subject.obtain(new URL[] { dep }, this.parent),
+                subject.obtain(new URL[] { sameDep }, this.parent));
+        assertEquals(1, subject.size());
+    }
+
+    @Test
+    public void testDoNotShareCopyByPath() throws Exception {
+        final DependencyLoaders subject = DependencyLoaders.fromProperty("path");
+        final URL dep1 = createJar("dep1.jar", "foo");
+        final URL dep2 = createJar("dep2.jar", "foo");
+        subject.register(new URL[] { dep1 });
+        subject.register(new URL[] { dep2 });
+
+        assertTrue(subject.obtain(new URL[] { dep1 }, this.parent).isEmpty());
+        assertTrue(subject.obtain(new URL[] { dep2 }, this.parent).isEmpty());
+    }
+
+    @Test
+    public void testShareCopyByContent() throws Exception {
+        final DependencyLoaders subject = DependencyLoaders.fromProperty(
+                DependencyLoaders.CONTENT);
+        final URL dep1 = createJar("dep1.jar", "foo");
+        final URL dep2 = createJar("dep2.jar", "foo");
+        subject.register(new URL[] { dep1 });
+        subject.register(new URL[] { dep2 });
+
+        final List<SharedDependencyClassLoader> shared = subject.obtain(
+                new URL[] { dep1 }, this.parent);
+        assertEquals(1, shared.size());
+        assertEquals(shared, subject.obtain(new URL[] { dep2 }, this.parent));
+    }
+
+    @Test
+    public void testDoNotShareDifferentContent() throws Exception {
+        final DependencyLoaders subject = DependencyLoaders.fromProperty(
+                DependencyLoaders.CONTENT);
+        final URL dep1 = createJar("dep1.jar", "foo");
+        final URL dep2 = createJar("dep2.jar", "bar");
+        subject.register(new URL[] { dep1 });
+        subject.register(new URL[] { dep2 });
+
+        assertTrue(subject.obtain(new URL[] { dep1 }, this.parent).isEmpty());
+        assertTrue(subject.obtain(new URL[] { dep2 }, this.parent).isEmpty());
+    }
+
+    @Test
+    public void testDoNotShareUnreadableDependency() throws Exception {
+        final DependencyLoaders subject = DependencyLoaders.fromProperty("path");
+        final URL dep = createFile("dep.jar", "not a jar");
+        subject.register(new URL[] { dep });
+        subject.register(new URL[] { dep });
+
+        assertFalse(subject.isShared(dep));
+        assertTrue(subject.obtain(new URL[] { dep }, this.parent).isEmpty());
+    }
+
+    @Test
+    public void testShareDifferentOrder() throws Exception {
+        final DependencyLoaders subject = DependencyLoaders.fromProperty("path");
+        final URL dep1 = createJar("dep1.jar", "foo");
+        final URL dep2 = createJar("dep2.jar", "bar");
+        subject.register(new URL[] { dep1, dep2 });
+        subject.register(new URL[] { dep2, dep1 });
+
+        final List<SharedDependencyClassLoader> shared1 = subject.obtain(
+                new URL[] { dep1, dep2 }, this.parent);
+        final List<SharedDependencyClassLoader> shared2 = subject.obtain(
+                new URL[] { dep2, dep1 }, this.parent);
+        assertEquals(2, subject.size());
+        assertSame(shared1.get(0), shared2.get(1));
+        assertSame(shared1.get(1), shared2.get(0));
+    }
+
+    @Test
+    public void testShareOverlappingDependencies() throws Exception {
+        final DependencyLoaders subject = DependencyLoaders.fromProperty("path");
+        final URL depA = createJar("a.jar", "foo");
+        final URL depB = createJar("b.jar", "bar");
+        subject.register(new URL[] { depA });
+        subject.register(new URL[] { depA, depB });
+        subject.register(new URL[] { depB });
+
+        final List<SharedDependencyClassLoader> sharedA = subject.obtain(
+                new URL[] { depA }, this.parent);
+        final List<SharedDependencyClassLoader> sharedAB = subject.obtain(
+                new URL[] { depA, depB }, this.parent);
+        final List<SharedDependencyClassLoader> sharedB = subject.obtain(
+                new URL[] { depB }, this.parent);
+
+        // every file is only loaded by a single ClassLoader
+        assertEquals(2, subject.size());
+        assertEquals(Arrays.asList(sharedA.get(0), sharedB.get(0)), sharedAB);
+        assertArrayEquals(new URL[] { depA }, sharedA.get(0).getURLs());
+        assertArrayEquals(new URL[] { depB }, sharedB.get(0).getURLs());
+    }
+
+    @Test
+    public void testShareCommonDependencies() throws Exception {
+        final DependencyLoaders subject = DependencyLoaders.fromProperty("path");
+        final URL common = createJar("common.jar", "foo");
+        final URL own1 = createJar("own1.jar", "bar");
+        final URL own2 = createJar("own2.jar", "baz");
+        subject.register(new URL[] { common, own1 });
+        subject.register(new URL[] { own2, common });
+
+        assertTrue(subject.isShared(common));
+        assertFalse(subject.isShared(own1));
+        assertFalse(subject.isShared(own2));
+        final List<SharedDependencyClassLoader> shared = subject.obtain(
+                new URL[] { common, own1 }, this.parent);
+        assertEquals(shared, subject.obtain(new URL[] { own2, common }, this.parent));
+        assertEquals(1, shared.size());
+        assertArrayEquals(new URL[] { common }, shared.get(0).getURLs());
+    }
+
+    @Test
+    public void testLinkAgainstSharedDependencies() throws Exception {
+        final File shared = this.folder.newFolder("shared");
+        final File plugin1 = this.folder.newFolder("plugin1");
+        final File plugin2 = this.folder.newFolder("plugin2");
+        copyClass(SharedDependency.class, shared);
+        copyClass(OwnDependency.class, new File(plugin1, "own"));
+        write(plugin1, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n"
+            + "Class-Path: ../shared/ own/\n");
+        write(plugin2, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n"
+            + "Class-Path: ../shared/\n");
+
+        // the test classes must not be visible to the parent of the plugins
+        final ClassLoader parent = ClassLoader.getSystemClassLoader().getParent();
+        try (DelegateClassLoader delegate = DelegateClassLoader.forPlugins(
+                Stream.of(plugin1.toURI().toURL(), plugin2.toURI().toURL()), parent,
+                Collections.singletonMap(Options.SHARE_DEPENDENCIES, "path"))) {
+            final ClassLoader cl1 = pluginLoader(delegate, "plugin1");
+            final ClassLoader cl2 = pluginLoader(delegate, "plugin2");
+
+            final Class<?> own = Class.forName(OwnDependency.class.getName(), true,
+                    cl1);
+            final Class<?> api = Class.forName(SharedDependency.class.getName(),
+                    false, cl2);
+            assertSame(api, own.getInterfaces()[0]);
+            assertTrue(api.getClassLoader() instanceof SharedDependencyClassLoader);
+            assertNotSame(api.getClassLoader(), own.getClassLoader());
+            assertEquals(1, delegate.getContext().getDependencyLoaders().size());
+        }
+    }
+
+    @Test
+    public void testDoNotShareDependencyReferringToOwnDependency() throws Exception {
+        final File shared = this.folder.newFolder("shared");
+        final File plugin1 = this.folder.newFolder("plugin1");
+        final File plugin2 = this.folder.newFolder("plugin2");
+        copyClass(ReferringDependency.class, shared);
+        copyClass(ReferredDependency.class, new File(plugin1, "own"));
+        write(plugin1, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n"
+            + "Class-Path: ../shared/ own/\n");
+        write(plugin2, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n"
+            + "Class-Path: ../shared/\n");
+
+        final ClassLoader parent = ClassLoader.getSystemClassLoader().getParent();
+        try (DelegateClassLoader delegate = DelegateClassLoader.forPlugins(
+                Stream.of(plugin1.toURI().toURL(), plugin2.toURI().toURL()), parent,
+                Collections.singletonMap(Options.SHARE_DEPENDENCIES, "path"))) {
+            final ClassLoader cl1 = pluginLoader(delegate, "plugin1");
+
+            final Class<?> referring = Class.forName(
+                    ReferringDependency.class.getName(), true, cl1);
+            assertEquals(ReferredDependency.class.getName(),
+                    referring.getSuperclass().getName());
+            assertTrue(referring.getClassLoader() instanceof DependencyClassLoader);
+            assertEquals(0, delegate.getContext().getDependencyLoaders().size());
+        }
+    }
+
+    @Test
+    public void testLinkSharedDependenciesAgainstEachOther() throws Exception {
+        final File api = this.folder.newFolder("api");
+        final File impl = this.folder.newFolder("impl");
+        final File plugin1 = this.folder.newFolder("plugin1");
+        final File plugin2 = this.folder.newFolder("plugin2");
+        copyClass(SharedDependency.class, api);
+        copyClass(OwnDependency.class, impl);
+        write(plugin1, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n"
+            + "Class-Path: ../impl/ ../api/\n");
+        write(plugin2, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n"
+            + "Class-Path: ../api/ ../impl/\n");
+
+        final ClassLoader parent = ClassLoader.getSystemClassLoader().getParent();
+        try (DelegateClassLoader delegate = DelegateClassLoader.forPlugins(
+                Stream.of(plugin1.toURI().toURL(), plugin2.toURI().toURL()), parent,
+                Collections.singletonMap(Options.SHARE_DEPENDENCIES, "path"))) {
+            final Class<?> own1 = Class.forName(OwnDependency.class.getName(), true,
+                    pluginLoader(delegate, "plugin1"));
+            final Class<?> own2 = Class.forName(OwnDependency.class.getName(), true,
+                    pluginLoader(delegate, "plugin2"));
+
+            assertSame(own1, own2);
+            assertTrue(own1.getClassLoader() instanceof SharedDependencyClassLoader);
+            assertTrue(own1.getInterfaces()[0]
+                    .getClassLoader() instanceof SharedDependencyClassLoader);
+            assertNotSame(own1.getClassLoader(),
+                    own1.getInterfaces()[0].getClassLoader());
+            assertEquals(2, delegate.getContext().getDependencyLoaders().size());
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        final DependencyLoaders subject = DependencyLoaders.fromProperty("path");
+        final URL dep = createJar("dep.jar", "foo");
+        subject.register(new URL[] { dep });
+        subject.register(new URL[] { dep });
+        subject.obtain(new URL[] { dep }, this.parent);
+        subject.close();
+        assertEquals(0, subject.size());
+    }
+}
@@ -0,0 +1,208 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.skuzzle.tinyplugz.Options;
+
+public class DeploymentStatisticsTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private MBeanServer server;
+    private File plugin1;
+    private File plugin2;
+    private DelegateClassLoader subject;
+
+    @Before
+    public void setUp() throws Exception {
+        this.server = ManagementFactory.getPlatformMBeanServer();
+        this.plugin1 = this.folder.newFolder("plugin1");
+        this.plugin2 = this.folder.newFolder("plugin2");
+        write(this.plugin1, "resource.txt", "");
+        write(this.plugin2, "resource2.txt", "");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (this.subject != null) {
+            this.subject.close();
+        }
+    }
+
+    private void write(File root, String path, String content) throws Exception {
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private DelegateClassLoader deploy(Map<Object, Object> properties)
+            throws Exception {
+        return DelegateClassLoader.forPlugins(
+                Stream.of(this.plugin1.toURI().toURL(), this.plugin2.toURI().toURL()),
+                getClass().getClassLoader(), properties);
+    }
+
+    private static ObjectName deploymentName(String deployment) throws Exception {
+        return new ObjectName(DeploymentStatistics.DOMAIN + ":type=Deployment,"
+            + "deployment=" + deployment);
+    }
+
+    private static ObjectName pluginName(String deployment, String plugin)
+            throws Exception {
+        return new ObjectName(DeploymentStatistics.DOMAIN + ":type=Plugin,"
+            + "deployment=" + deployment + ",name=" + plugin);
+    }
+
+    private long getLong(ObjectName name, String attribute) throws Exception {
+        return ((Number) this.server.getAttribute(name, attribute)).longValue();
+    }
+
+    @Test
+    public void testFromPropertyAbsent() throws Exception {
+        assertNull(DeploymentStatistics.fromProperty(null));
+    }
+
+    @Test
+    public void testFromPropertyName() throws Exception {
+        assertEquals("name", DeploymentStatistics.fromProperty(" name ").getName());
+    }
+
+    @Test
+    public void testFromPropertyGeneratedName() throws Exception {
+        final DeploymentStatistics first = DeploymentStatistics.fromProperty(true);
+        final DeploymentStatistics second = DeploymentStatistics.fromProperty("");
+        assertNotNull(first);
+        assertNotNull(second);
+        assertFalse(first.getName().equals(second.getName()));
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        this.subject = deploy(Collections.emptyMap());
+        final PluginClassLoader pluginCl = (PluginClassLoader) this.subject
+                .getInformation("plugin1").get().getClassLoader();
+
+        assertNull(pluginCl.getStatistics());
+        assertTrue(this.server.queryNames(
+                new ObjectName(DeploymentStatistics.DOMAIN + ":*"), null).isEmpty());
+    }
+
+    @Test
+    public void testRegisterMBeans() throws Exception {
+        this.subject = deploy(Collections.singletonMap(Options.JMX_STATISTICS,
+                "testRegister"));
+
+        assertTrue(this.server.isRegistered(deploymentName("testRegister")));
+        assertTrue(this.server.isRegistered(pluginName("testRegister", "plugin1")));
+        assertTrue(this.server.isRegistered(pluginName("testRegister", "plugin2")));
+        assertEquals(2, this.server.getAttribute(deploymentName("testRegister"),
+                "PluginCount"));
+    }
+
+    @Test
+    public void testRegisterMBeansQuotedName() throws Exception {
+        this.subject = deploy(Collections.singletonMap(Options.JMX_STATISTICS,
+                "test:quoted"));
+
+        assertTrue(this.server.isRegistered(
+                deploymentName(ObjectName.quote("test:quoted"))));
+        assertTrue(this.server.isRegistered(
+                pluginName(ObjectName.quote("test:quoted"), "plugin1")));
+    }
+
+    @Test
+    public void testUnregisterOnClose() throws Exception {
+        this.subject = deploy(Collections.singletonMap(Options.JMX_STATISTICS,
+                "testUnregister"));
+        this.subject.close();
+        this.subject = null;
+
+        assertFalse(this.server.isRegistered(deploymentName("testUnregister")));
+        assertFalse(this.server.isRegistered(pluginName("testUnregister", "plugin1")));
+        assertFalse(this.server.isRegistered(pluginName("testUnregister", "plugin2")));
+    }
+
+    @Test
+    public void testDoNotRegisterOnDuplicatedPluginName() throws Exception {
+        final File duplicate = this.folder.newFolder("other", "plugin1");
+        try {
+            this.subject = DelegateClassLoader.forPlugins(
+                    Stream.of(this.plugin1.toURI().toURL(), duplicate.toURI().toURL()),
+                    getClass().getClassLoader(),
+                    Collections.singletonMap(Options.JMX_STATISTICS, "testDuplicate"));
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+
+        assertFalse(this.server.isRegistered(deploymentName("testDuplicate")));
+        assertFalse(this.server.isRegistered(pluginName("testDuplicate", "plugin1")));
+    }
+
+    @Test
+    public void testCountResourceLookups() throws Exception {
+        this.subject = deploy(Collections.singletonMap(Options.JMX_STATISTICS,
+                "testResources"));
+        final ClassLoader plugin1Cl = this.subject.getInformation("plugin1").get()
+                .getClassLoader();
+
+        assertNotNull(plugin1Cl.getResource("resource2.txt"));
+        assertNull(plugin1Cl.getResource("missing.txt"));
+        assertNull(plugin1Cl.getResource("missing.txt"));
+
+        final ObjectName deployment = deploymentName("testResources");
+        assertEquals(3, getLong(deployment, "ResourceLookups"));
+        assertEquals(1, getLong(deployment, "NegativeCacheHits"));
+        assertTrue(getLong(pluginName("testResources", "plugin2"),
+                "ResourceLookups") > 0);
+    }
+
+    @Test
+    public void testCountClassLookups() throws Exception {
+        this.subject = deploy(Collections.singletonMap(Options.JMX_STATISTICS,
+                "testClasses"));
+        final ClassLoader plugin1Cl = this.subject.getInformation("plugin1").get()
+                .getClassLoader();
+
+        for (int i = 0; i < 2; ++i) {
+            try {
+                plugin1Cl.loadClass("com.example.Missing");
+            } catch (final ClassNotFoundException expected) {
+                // expected
+            }
+        }
+
+        final ObjectName deployment = deploymentName("testClasses");
+        assertEquals(1, getLong(deployment, "ClassLookups"));
+        assertEquals(1, getLong(deployment, "ClassLookupMisses"));
+        assertEquals(1, getLong(deployment, "NegativeCacheHits"));
+        assertEquals(1, getLong(deployment, "PackageIndexMisses"));
+
+        final ObjectName plugin1 = pluginName("testClasses", "plugin1");
+        assertEquals(2, getLong(plugin1, "LoadClassCount"));
+        assertEquals(2, getLong(plugin1, "CrossPluginMisses"));
+    }
+}
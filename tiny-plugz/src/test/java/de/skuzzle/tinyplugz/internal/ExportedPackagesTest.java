@@ -0,0 +1,42 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ExportedPackagesTest {
+
+    @Test
+    public void testExactPackage() throws Exception {
+        final ExportedPackages subject = ExportedPackages.parse("de.skuzzle.api");
+        assertTrue(subject.isExported("de.skuzzle.api"));
+        assertFalse(subject.isExported("de.skuzzle.api.sub"));
+        assertFalse(subject.isExported("de.skuzzle"));
+    }
+
+    @Test
+    public void testWildcard() throws Exception {
+        final ExportedPackages subject = ExportedPackages.parse("de.skuzzle.api.*");
+        assertTrue(subject.isExported("de.skuzzle.api"));
+        assertTrue(subject.isExported("de.skuzzle.api.sub"));
+        assertFalse(subject.isExported("de.skuzzle.apiimpl"));
+    }
+
+    @Test
+    public void testMultiple() throws Exception {
+        final ExportedPackages subject = ExportedPackages.parse(
+                " de.skuzzle.api, de.skuzzle.spi\n com.foo.*");
+        assertTrue(subject.isExported("de.skuzzle.api"));
+        assertTrue(subject.isExported("de.skuzzle.spi"));
+        assertTrue(subject.isExported("com.foo.bar"));
+        assertFalse(subject.isExported("de.skuzzle.impl"));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        final ExportedPackages subject = ExportedPackages.parse(" ");
+        assertFalse(subject.isExported(""));
+        assertFalse(subject.isExported("de.skuzzle"));
+    }
+}
@@ -0,0 +1,142 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.skuzzle.tinyplugz.MetricsRecorder.DeployPhase;
+import de.skuzzle.tinyplugz.internal.CachingServiceLoaderWrapperTest.SampleProvider1;
+import de.skuzzle.tinyplugz.internal.CachingServiceLoaderWrapperTest.SampleService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class FlightRecordingTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private DelegateClassLoader subject;
+    private ClassLoader plugin1;
+    private Recording recording;
+
+    @Before
+    public void setUp() throws Exception {
+        final File plugin1 = this.folder.newFolder("plugin1");
+        final File plugin2 = this.folder.newFolder("plugin2");
+        write(plugin2, "resource2.txt", "");
+        write(plugin1, "META-INF/services/" + SampleService.class.getName(),
+                SampleProvider1.class.getName());
+
+        this.subject = DelegateClassLoader.forPlugins(
+                Stream.of(plugin1.toURI().toURL(), plugin2.toURI().toURL()),
+                getClass().getClassLoader());
+        this.plugin1 = this.subject.getInformation("plugin1").get().getClassLoader();
+        this.recording = new Recording();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.recording.close();
+        this.subject.close();
+    }
+
+    private void write(File root, String path, String content) throws Exception {
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void enable(String eventName) {
+        this.recording.enable(eventName).withoutThreshold();
+    }
+
+    private List<RecordedEvent> stop(String eventName) throws Exception {
+        this.recording.stop();
+        final Path file = this.folder.newFile("recording.jfr").toPath();
+        this.recording.dump(file);
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(eventName))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testAvailable() throws Exception {
+        assertTrue(FlightRecording.AVAILABLE);
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        this.recording.start();
+        assertNull(ClassLookupEvent.start(ClassLookupEvent.LOAD_CLASS));
+        assertNull(ResourceLookupEvent.start());
+        assertNull(ServiceLookupEvent.start());
+        assertNull(DeployPhaseEvent.start(DeployPhase.DEPLOY));
+        this.recording.stop();
+    }
+
+    @Test
+    public void testRecordClassLookup() throws Exception {
+        enable("de.skuzzle.tinyplugz.ClassLookup");
+        this.recording.start();
+        try {
+            this.plugin1.loadClass("com.example.Missing");
+        } catch (final ClassNotFoundException expected) {
+            // expected
+        }
+
+        final List<RecordedEvent> events = stop("de.skuzzle.tinyplugz.ClassLookup");
+        final RecordedEvent loadClass = events.stream()
+                .filter(event -> "loadClass".equals(event.getString("operation")))
+                .findFirst().get();
+        assertEquals("plugin1", loadClass.getString("requestor"));
+        assertEquals("com.example.Missing", loadClass.getString("name"));
+        assertEquals(FlightRecording.NOT_FOUND, loadClass.getString("outcome"));
+        assertNotNull(loadClass.getDuration());
+    }
+
+    @Test
+    public void testRecordResourceLookup() throws Exception {
+        enable("de.skuzzle.tinyplugz.ResourceLookup");
+        this.recording.start();
+        assertNotNull(this.plugin1.getResource("resource2.txt"));
+
+        final List<RecordedEvent> events = stop("de.skuzzle.tinyplugz.ResourceLookup");
+        assertEquals(1, events.size());
+        final RecordedEvent event = events.get(0);
+        assertEquals("plugin1", event.getString("requestor"));
+        assertEquals("plugin2", event.getString("plugin"));
+        assertEquals("resource2.txt", event.getString("name"));
+        assertEquals(FlightRecording.FOUND, event.getString("outcome"));
+    }
+
+    @Test
+    public void testRecordServiceLookup() throws Exception {
+        enable("de.skuzzle.tinyplugz.ServiceLookup");
+        this.recording.start();
+        new CachingServiceLoaderWrapper().loadService(SampleService.class, this.plugin1);
+
+        final List<RecordedEvent> events = stop("de.skuzzle.tinyplugz.ServiceLookup");
+        assertEquals(1, events.size());
+        final RecordedEvent event = events.get(0);
+        assertEquals("plugin1", event.getString("plugin"));
+        assertEquals(SampleService.class.getName(), event.getString("name"));
+        assertEquals(1, event.getInt("providers"));
+        assertEquals(FlightRecording.FOUND, event.getString("outcome"));
+    }
+}
@@ -0,0 +1,83 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import de.skuzzle.tinyplugz.internal.LazyConcatIterator.Source;
+
+public class LazyConcatIteratorTest {
+
+    @Test
+    public void testConcat() throws Exception {
+        final List<Source<String>> sources = Arrays.asList(
+                () -> Arrays.asList("a", "b").iterator(),
+                () -> Collections.emptyIterator(),
+                () -> Arrays.asList("c").iterator());
+        final Iterator<String> it = LazyConcatIterator.of(sources.iterator());
+
+        final List<String> result = new ArrayList<>();
+        it.forEachRemaining(result::add);
+        assertEquals(Arrays.asList("a", "b", "c"), result);
+    }
+
+    @Test
+    public void testOpenLazily() throws Exception {
+        final List<String> opened = new ArrayList<>();
+        final List<Source<String>> sources = Arrays.asList(
+                () -> {
+                    opened.add("first");
+                    return Arrays.asList("a").iterator();
+                },
+                () -> {
+                    opened.add("second");
+                    return Arrays.asList("b").iterator();
+                });
+        final Iterator<String> it = LazyConcatIterator.of(sources.iterator());
+
+        assertEquals(Arrays.asList("first"), opened);
+        assertEquals("a", it.next());
+        assertEquals(Arrays.asList("first"), opened);
+        assertEquals("b", it.next());
+        assertEquals(Arrays.asList("first", "second"), opened);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        final Iterator<Source<String>> sources = Collections.emptyIterator();
+        assertFalse(LazyConcatIterator.of(sources).hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNextExhausted() throws Exception {
+        LazyConcatIterator.<String> of(Collections.emptyIterator()).next();
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenFirstFails() throws Exception {
+        final Source<String> failing = () -> {
+            throw new IOException();
+        };
+        LazyConcatIterator.of(Collections.singletonList(failing).iterator());
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void testOpenFails() throws Exception {
+        final List<Source<String>> sources = Arrays.asList(
+                () -> Collections.emptyIterator(),
+                () -> {
+                    throw new IOException();
+                });
+        LazyConcatIterator.of(sources.iterator()).hasNext();
+    }
+}
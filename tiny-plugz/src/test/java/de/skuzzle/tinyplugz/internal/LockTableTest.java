@@ -0,0 +1,93 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import de.skuzzle.tinyplugz.TinyPlugzException;
+
+public class LockTableTest {
+
+    private void assertLockPerName(LockTable subject) {
+        final Object lock1 = subject.acquire("de.skuzzle.Foo");
+        final Object lock2 = subject.acquire("de.skuzzle.Foo");
+        final Object lock3 = subject.acquire("de.skuzzle.Bar");
+
+        assertSame(lock1, lock2);
+        assertNotSame(lock1, lock3);
+
+        subject.release("de.skuzzle.Foo", lock1);
+        subject.release("de.skuzzle.Foo", lock2);
+        subject.release("de.skuzzle.Bar", lock3);
+    }
+
+    @Test
+    public void testUnbounded() throws Exception {
+        final LockTable subject = LockTable.unbounded();
+        assertLockPerName(subject);
+        assertEquals(2, subject.size());
+    }
+
+    @Test
+    public void testWeak() throws Exception {
+        assertLockPerName(LockTable.weak());
+    }
+
+    @Test
+    public void testBounded() throws Exception {
+        assertLockPerName(LockTable.bounded(10));
+    }
+
+    @Test
+    public void testBoundedDiscardsUnusedLocks() throws Exception {
+        final LockTable subject = LockTable.bounded(1);
+        final Object inUse = subject.acquire("de.skuzzle.Foo");
+        final Object unused = subject.acquire("de.skuzzle.Bar");
+        subject.release("de.skuzzle.Bar", unused);
+
+        assertEquals(1, subject.size());
+        assertSame(inUse, subject.acquire("de.skuzzle.Foo"));
+    }
+
+    @Test
+    public void testBoundedKeepsLocksInUse() throws Exception {
+        final LockTable subject = LockTable.bounded(1);
+        final Object lock1 = subject.acquire("de.skuzzle.Foo");
+        final Object lock2 = subject.acquire("de.skuzzle.Foo");
+        final Object other = subject.acquire("de.skuzzle.Bar");
+        subject.release("de.skuzzle.Foo", lock1);
+        subject.release("de.skuzzle.Bar", other);
+
+        assertSame(lock2, subject.acquire("de.skuzzle.Foo"));
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        final LockTable subject = LockTable.unbounded();
+        subject.acquire("de.skuzzle.Foo");
+        subject.clear();
+        assertEquals(0, subject.size());
+    }
+
+    @Test
+    public void testFromProperty() throws Exception {
+        assertEquals("WeakLockTable[size=0]", LockTable.fromProperty(null).toString());
+        assertEquals("WeakLockTable[size=0]", LockTable.fromProperty("weak").toString());
+        assertEquals("UnboundedLockTable[size=0]",
+                LockTable.fromProperty("unbounded").toString());
+        assertEquals("BoundedLockTable[size=0, maxSize=5]",
+                LockTable.fromProperty(5).toString());
+    }
+
+    @Test(expected = TinyPlugzException.class)
+    public void testFromPropertyInvalid() throws Exception {
+        LockTable.fromProperty("foo");
+    }
+
+    @Test(expected = TinyPlugzException.class)
+    public void testFromPropertyNegative() throws Exception {
+        LockTable.fromProperty("-1");
+    }
+}
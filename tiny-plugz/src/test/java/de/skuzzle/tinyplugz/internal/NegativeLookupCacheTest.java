@@ -0,0 +1,74 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NegativeLookupCacheTest {
+
+    @Mock
+    private DependencyResolver requestor;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeSize() throws Exception {
+        new NegativeLookupCache(-1);
+    }
+
+    @Test
+    public void testRecordMiss() throws Exception {
+        final NegativeLookupCache subject = new NegativeLookupCache(10);
+        assertFalse(subject.isKnownMiss(this.requestor, "foo"));
+        subject.recordMiss(this.requestor, "foo");
+
+        assertTrue(subject.isKnownMiss(this.requestor, "foo"));
+        assertFalse(subject.isKnownMiss(null, "foo"));
+        assertEquals(1, subject.getHitCount());
+        assertEquals(2, subject.getMissCount());
+    }
+
+    @Test
+    public void testRecordMissApplication() throws Exception {
+        final NegativeLookupCache subject = new NegativeLookupCache(10);
+        subject.recordMiss(null, "foo");
+
+        assertTrue(subject.isKnownMiss(null, "foo"));
+        assertFalse(subject.isKnownMiss(this.requestor, "foo"));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        final NegativeLookupCache subject = new NegativeLookupCache(0);
+        subject.recordMiss(this.requestor, "foo");
+
+        assertFalse(subject.isKnownMiss(this.requestor, "foo"));
+        assertEquals(0, subject.size());
+    }
+
+    @Test
+    public void testBounded() throws Exception {
+        final NegativeLookupCache subject = new NegativeLookupCache(2);
+        subject.recordMiss(this.requestor, "foo");
+        subject.recordMiss(this.requestor, "bar");
+        subject.recordMiss(this.requestor, "baz");
+
+        assertEquals(1, subject.size());
+        assertFalse(subject.isKnownMiss(this.requestor, "foo"));
+        assertTrue(subject.isKnownMiss(this.requestor, "baz"));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        final NegativeLookupCache subject = new NegativeLookupCache(10);
+        subject.recordMiss(this.requestor, "foo");
+        subject.invalidate();
+
+        assertEquals(0, subject.size());
+        assertFalse(subject.isKnownMiss(this.requestor, "foo"));
+    }
+}
@@ -0,0 +1,55 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import de.skuzzle.tinyplugz.TinyPlugzException;
+
+public class ParentDelegationTest {
+
+    @Test
+    public void testDefaultAllParentFirst() throws Exception {
+        final ParentDelegation subject = ParentDelegation.fromProperty(null);
+        assertTrue(subject.isParentFirst("java.lang.String"));
+        assertTrue(subject.isParentFirst("de.skuzzle.Foo"));
+    }
+
+    @Test
+    public void testFromString() throws Exception {
+        final ParentDelegation subject = ParentDelegation.fromProperty(
+                "javax., de.skuzzle.api.\n org.slf4j.");
+        assertTrue(subject.isParentFirst("javax.inject.Inject"));
+        assertTrue(subject.isParentFirst("de.skuzzle.api.Service"));
+        assertTrue(subject.isParentFirst("org.slf4j.Logger"));
+        assertFalse(subject.isParentFirst("de.skuzzle.plugin.Impl"));
+    }
+
+    @Test
+    public void testFromCollection() throws Exception {
+        final ParentDelegation subject = ParentDelegation.fromProperty(
+                Arrays.asList("javax."));
+        assertTrue(subject.isParentFirst("javax.inject.Inject"));
+        assertFalse(subject.isParentFirst("de.skuzzle.plugin.Impl"));
+    }
+
+    @Test
+    public void testJavaAlwaysParentFirst() throws Exception {
+        final ParentDelegation subject = ParentDelegation.fromProperty("");
+        assertTrue(subject.isParentFirst("java.lang.String"));
+        assertFalse(subject.isParentFirst("javax.inject.Inject"));
+    }
+
+    @Test(expected = TinyPlugzException.class)
+    public void testInvalidType() throws Exception {
+        ParentDelegation.fromProperty(5);
+    }
+
+    @Test(expected = TinyPlugzException.class)
+    public void testInvalidCollectionElement() throws Exception {
+        ParentDelegation.fromProperty(Arrays.asList("javax.", 5));
+    }
+}
@@ -0,0 +1,163 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.skuzzle.tinyplugz.internal.CachingServiceLoaderWrapperTest.SampleProvider1;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordingFile;
+
+public class PluginClassLoaderTest {
+
+    private static final String MISSING = "com.example.Missing";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private DelegateClassLoader delegate;
+
+    @After
+    public void tearDown() throws Exception {
+        if (this.delegate != null) {
+            this.delegate.close();
+        }
+    }
+
+    private void write(File root, String path, String content) throws Exception {
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void copyClass(Class<?> cls, File root) throws Exception {
+        final String path = cls.getName().replace('.', '/') + ".class";
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(path)) {
+            Files.copy(in, file.toPath());
+        }
+    }
+
+    private PluginClassLoader deploy(URL... plugins) throws Exception {
+        this.delegate = DelegateClassLoader.forPlugins(Stream.of(plugins),
+                getClass().getClassLoader());
+        return this.delegate.getPluginClassLoaders().iterator().next();
+    }
+
+    private PluginClassLoader plugin(String name) {
+        return (PluginClassLoader) this.delegate.getInformation(name).get()
+                .getClassLoader();
+    }
+
+    /**
+     * Counts the ClassNotFoundExceptions for the given class which are created
+     * while running the given action.
+     */
+    private <T> long countNotFound(String className, Callable<T> action)
+            throws Exception {
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.JavaExceptionThrow");
+            recording.start();
+            try {
+                action.call();
+            } catch (final ClassNotFoundException ignore) {
+                // counted below
+            }
+            recording.stop();
+            final Path file = Files.createTempFile(this.folder.getRoot().toPath(),
+                    "recording", ".jfr");
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName()
+                            .equals("jdk.JavaExceptionThrow"))
+                    .filter(event -> className.equals(event.getString("message")))
+                    .filter(event -> ClassNotFoundException.class.getName().equals(
+                            event.<RecordedClass> getValue("thrownClass").getName()))
+                    .count();
+        }
+    }
+
+    @Test
+    public void testCountNotFound() throws Exception {
+        final PluginClassLoader subject = deploy(
+                this.folder.newFolder("plugin1").toURI().toURL());
+
+        // the public API still throws
+        assertTrue(countNotFound(MISSING, () -> subject.loadClass(MISSING)) > 0);
+    }
+
+    @Test
+    public void testProbeIndexedPlugin() throws Exception {
+        final File plugin2 = this.folder.newFolder("plugin2");
+        write(plugin2, "com/example/resource.txt", "");
+        deploy(this.folder.newFolder("plugin1").toURI().toURL(),
+                plugin2.toURI().toURL());
+        final PluginClassLoader requestor = plugin("plugin1");
+        final PluginClassLoader subject = plugin("plugin2");
+
+        assertNotNull(subject.getIndex());
+        assertEquals(0, countNotFound(MISSING, () -> {
+            assertNull(subject.findClass(requestor, MISSING));
+            return null;
+        }));
+    }
+
+    @Test
+    public void testProbeUnindexedPlugin() throws Exception {
+        final File jar = this.folder.newFile("plugin2.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("com/example/resource.txt"));
+            out.closeEntry();
+        }
+        // plugins with other protocols than file can not be indexed
+        final URL plugin2 = new URL("jar:" + jar.toURI().toURL() + "!/");
+        deploy(this.folder.newFolder("plugin1").toURI().toURL(), plugin2);
+        final PluginClassLoader requestor = plugin("plugin1");
+        final PluginClassLoader subject = this.delegate.getPluginClassLoaders()
+                .stream()
+                .filter(cl -> cl != requestor)
+                .findFirst().get();
+
+        assertNull(subject.getIndex());
+        assertEquals(0, countNotFound(MISSING, () -> {
+            assertNull(subject.findClass(requestor, MISSING));
+            return null;
+        }));
+    }
+
+    @Test
+    public void testProbeDependencies() throws Exception {
+        final File plugin1 = this.folder.newFolder("plugin1");
+        write(plugin1, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n"
+            + "Class-Path: lib/\n");
+        copyClass(SampleProvider1.class, new File(plugin1, "lib"));
+        final PluginClassLoader subject = deploy(plugin1.toURI().toURL(),
+                this.folder.newFolder("plugin2").toURI().toURL());
+
+        assertNotNull(subject.findClass(subject, SampleProvider1.class.getName()));
+        assertEquals(0, countNotFound(MISSING, () -> {
+            assertNull(subject.findClass(subject, MISSING));
+            return null;
+        }));
+    }
+}
@@ -0,0 +1,183 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PluginIndexTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private URL createJar(String... entries) throws Exception {
+        final File jar = this.folder.newFile("plugin.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (final String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.closeEntry();
+            }
+        }
+        return jar.toURI().toURL();
+    }
+
+    private URL createJarWithIndex(BuildIndex buildIndex, String... entries)
+            throws Exception {
+        final File jar = this.folder.newFile("indexed.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry(BuildIndex.LOCATION));
+            buildIndex.writeTo(out);
+            out.closeEntry();
+            for (final String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.closeEntry();
+            }
+        }
+        return jar.toURI().toURL();
+    }
+
+    @Test
+    public void testIndexJar() throws Exception {
+        final URL jar = createJar(
+                "de/skuzzle/Foo.class",
+                "de/skuzzle/sub/Bar.class",
+                "de/skuzzle/resource.txt",
+                "DefaultPackage.class",
+                "module-info.class",
+                "META-INF/versions/9/de/skuzzle/multi/Baz.class");
+
+        final PluginIndex index = PluginIndex.of(jar);
+        assertTrue(index.isComplete());
+        assertEquals(new HashSet<>(Arrays.asList("de.skuzzle", "de.skuzzle.sub", "")),
+                index.getPackages());
+    }
+
+    @Test
+    public void testContainsClass() throws Exception {
+        final URL jar = createJar(
+                "de/skuzzle/Foo.class",
+                "de/skuzzle/Foo$Inner.class",
+                "DefaultPackage.class",
+                "module-info.class");
+
+        final PluginIndex index = PluginIndex.of(jar);
+        assertTrue(index.containsClass("de.skuzzle.Foo"));
+        assertTrue(index.containsClass("de.skuzzle.Foo$Inner"));
+        assertTrue(index.containsClass("DefaultPackage"));
+        assertFalse(index.containsClass("module-info"));
+        assertFalse(index.containsClass("de.skuzzle.Bar"));
+    }
+
+    @Test
+    public void testMayContainResource() throws Exception {
+        final URL jar = createJar(
+                "de/skuzzle/Foo.class",
+                "de/skuzzle/messages.properties",
+                "META-INF/services/de.skuzzle.Service",
+                "module-info.class");
+
+        final PluginIndex index = PluginIndex.of(jar);
+        assertTrue(index.mayContainResource("de/skuzzle/messages.properties"));
+        assertTrue(index.mayContainResource("META-INF/services/de.skuzzle.Service"));
+        assertTrue(index.mayContainResource("de/skuzzle/Foo.class"));
+        assertTrue(index.mayContainResource("module-info.class"));
+        assertFalse(index.mayContainResource("de/skuzzle/messages_de.properties"));
+        assertFalse(index.mayContainResource("de/skuzzle/Bar.class"));
+    }
+
+    @Test
+    public void testMayContainResourceUndecidable() throws Exception {
+        final PluginIndex index = PluginIndex.of(createJar("de/skuzzle/Foo.class"));
+        assertTrue(index.mayContainResource("de/skuzzle/"));
+        assertTrue(index.mayContainResource("/de/skuzzle/Foo.txt"));
+        assertTrue(index.mayContainResource("de/skuzzle/../Foo.txt"));
+        assertTrue(index.mayContainResource(""));
+    }
+
+    @Test
+    public void testIndexDirectory() throws Exception {
+        final URL dir = getClass().getProtectionDomain().getCodeSource().getLocation();
+        final PluginIndex index = PluginIndex.of(dir);
+        assertTrue(index.getPackages().contains(getClass().getPackage().getName()));
+    }
+
+    @Test
+    public void testReadBuildIndex() throws Exception {
+        final BuildIndex buildIndex = new BuildIndex(
+                Arrays.asList("de.skuzzle"),
+                Arrays.asList("de/skuzzle/messages.properties",
+                        "META-INF/services/de.skuzzle.Service"),
+                Collections.singletonMap("de.skuzzle.Service",
+                        Arrays.asList("de.skuzzle.Foo")));
+        // entries which are not listed in the build index are ignored
+        final URL jar = createJarWithIndex(buildIndex,
+                "de/skuzzle/Foo.class",
+                "de/skuzzle/sub/Bar.class",
+                "de/skuzzle/other.properties");
+
+        final PluginIndex index = PluginIndex.of(jar);
+        assertFalse(index.isComplete());
+        assertEquals(Collections.singleton("de.skuzzle"), index.getPackages());
+        assertTrue(index.containsClass("de.skuzzle.Foo"));
+        assertTrue(index.containsClass("de.skuzzle.Foo$1"));
+        assertFalse(index.containsClass("de.skuzzle.sub.Bar"));
+        assertTrue(index.mayContainResource("de/skuzzle/messages.properties"));
+        assertTrue(index.mayContainResource("de/skuzzle/Foo$1.class"));
+        assertFalse(index.mayContainResource("de/skuzzle/other.properties"));
+        assertTrue(index.mayContainResource("META-INF/MANIFEST.MF"));
+        assertEquals(Arrays.asList("de.skuzzle.Foo"),
+                index.getProviders("de.skuzzle.Service"));
+    }
+
+    @Test
+    public void testBuildIndexDoesNotRuleOutGeneratedEntries() throws Exception {
+        // other annotation processors might generate classes and service
+        // declarations after the build index has been written
+        final BuildIndex buildIndex = new BuildIndex(
+                Arrays.asList("de.skuzzle"),
+                Collections.emptyList(),
+                Collections.emptyMap());
+        final URL jar = createJarWithIndex(buildIndex,
+                "de/skuzzle/Foo.class",
+                "de/skuzzle/generated/Bar.class",
+                "META-INF/services/de.skuzzle.Service");
+
+        final PluginIndex index = PluginIndex.of(jar);
+        assertTrue(index.mayContainResource("de/skuzzle/generated/Bar.class"));
+        assertTrue(index.mayContainResource("META-INF/services/de.skuzzle.Service"));
+        assertNull(index.getProviders("de.skuzzle.Service"));
+    }
+
+    @Test
+    public void testNoProvidersWithoutBuildIndex() throws Exception {
+        final PluginIndex index = PluginIndex.of(createJar(
+                "META-INF/services/de.skuzzle.Service"));
+        assertNull(index.getProviders("de.skuzzle.Service"));
+    }
+
+    @Test
+    public void testIndexUnsupportedProtocol() throws Exception {
+        final PluginIndex index = PluginIndex.of(new URL("http://www.google.de"));
+        assertNull(index);
+    }
+
+    @Test
+    public void testIndexMissingFile() throws Exception {
+        final URL missing = new File(this.folder.getRoot(), "missing.jar").toURI().toURL();
+        final PluginIndex index = PluginIndex.of(missing);
+        assertNull(index);
+    }
+}
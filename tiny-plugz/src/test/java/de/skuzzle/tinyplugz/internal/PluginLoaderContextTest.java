@@ -0,0 +1,174 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import javax.management.ObjectName;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.skuzzle.tinyplugz.HistogramMetricsRecorder;
+import de.skuzzle.tinyplugz.MetricsRecorder;
+import de.skuzzle.tinyplugz.Options;
+import de.skuzzle.tinyplugz.internal.PluginLoaderContext.LookupFrame;
+
+public class PluginLoaderContextTest {
+
+    /** Defined by plugin1 and implemented by a class of plugin2. */
+    public interface SharedApi {}
+
+    /** Defined by plugin2, loaded while defining {@link ForeignRoot}. */
+    public static class OwnBase implements SharedApi {}
+
+    /** Defined by plugin2, loaded while initializing {@link ForeignRoot}. */
+    public static class OwnHelper {}
+
+    /** Defined by plugin2 on behalf of plugin1. */
+    public static class ForeignRoot extends OwnBase {
+        public static final Object HELPER = new OwnHelper();
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private void copyClass(Class<?> cls, File root) throws Exception {
+        final String path = cls.getName().replace('.', '/') + ".class";
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(path)) {
+            Files.copy(in, file.toPath());
+        }
+    }
+
+    private static long getLong(String plugin, String attribute) throws Exception {
+        final ObjectName name = new ObjectName(DeploymentStatistics.DOMAIN
+            + ":type=Plugin,deployment=lookupFrames,name=" + plugin);
+        return ((Number) ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(name, attribute)).longValue();
+    }
+
+    @Test
+    public void testFramePerThread() throws Exception {
+        final PluginLoaderContext subject = PluginLoaderContext.fromProperties(
+                Collections.emptyMap(), getClass().getClassLoader());
+        final LookupFrame frame = subject.currentFrame();
+        assertSame(frame, subject.currentFrame());
+
+        final AtomicReference<LookupFrame> other = new AtomicReference<>();
+        final Thread thread = new Thread(() -> other.set(subject.currentFrame()));
+        thread.start();
+        thread.join();
+        assertNotSame(frame, other.get());
+    }
+
+    @Test
+    public void testLocksFromProperties() throws Exception {
+        final PluginLoaderContext subject = PluginLoaderContext.fromProperties(
+                Collections.singletonMap(Options.CLASS_LOADING_LOCKS, "unbounded"),
+                getClass().getClassLoader());
+        subject.getLocks().acquire("de.skuzzle.Foo");
+        assertEquals(1, subject.getLocks().size());
+    }
+
+    @Test
+    public void testCloseReleasesLocks() throws Exception {
+        final PluginLoaderContext subject = PluginLoaderContext.fromProperties(
+                Collections.singletonMap(Options.CLASS_LOADING_LOCKS, "unbounded"),
+                getClass().getClassLoader());
+        subject.getLocks().acquire("de.skuzzle.Foo");
+        subject.close();
+        assertEquals(0, subject.getLocks().size());
+    }
+
+    @Test
+    public void testParentDelegationFromProperties() throws Exception {
+        final PluginLoaderContext subject = PluginLoaderContext.fromProperties(
+                Collections.singletonMap(Options.PARENT_FIRST_PACKAGES, "javax."),
+                getClass().getClassLoader());
+        assertFalse(subject.getParentDelegation().isParentFirst("de.skuzzle.Foo"));
+    }
+
+    @Test
+    public void testNoMetricsByDefault() throws Exception {
+        final PluginLoaderContext subject = PluginLoaderContext.fromProperties(
+                Collections.emptyMap(), getClass().getClassLoader());
+        assertNull(subject.getMetrics());
+    }
+
+    @Test
+    public void testNoMetricsForNoop() throws Exception {
+        final PluginLoaderContext subject = PluginLoaderContext.fromProperties(
+                Collections.singletonMap(Options.METRICS_RECORDER,
+                        MetricsRecorder.noop()),
+                getClass().getClassLoader());
+        assertNull(subject.getMetrics());
+    }
+
+    @Test
+    public void testMetricsFromClassName() throws Exception {
+        final PluginLoaderContext subject = PluginLoaderContext.fromProperties(
+                Collections.singletonMap(Options.METRICS_RECORDER,
+                        HistogramMetricsRecorder.class.getName()),
+                getClass().getClassLoader());
+        assertTrue(subject.getMetrics() instanceof HistogramMetricsRecorder);
+    }
+
+    @Test
+    public void testForeignRequestWithNestedOwnRequests() throws Exception {
+        final File plugin1 = this.folder.newFolder("plugin1");
+        final File plugin2 = this.folder.newFolder("plugin2");
+        copyClass(SharedApi.class, plugin1);
+        copyClass(OwnBase.class, plugin2);
+        copyClass(OwnHelper.class, plugin2);
+        copyClass(ForeignRoot.class, plugin2);
+
+        final Map<Object, Object> properties = new HashMap<>();
+        properties.put(Options.PARENT_FIRST_PACKAGES, "");
+        properties.put(Options.JMX_STATISTICS, "lookupFrames");
+        try (DelegateClassLoader delegate = DelegateClassLoader.forPlugins(
+                Stream.of(plugin1.toURI().toURL(), plugin2.toURI().toURL()),
+                getClass().getClassLoader(), properties)) {
+            final ClassLoader cl1 = delegate.getInformation("plugin1").get()
+                    .getClassLoader();
+            final ClassLoader cl2 = delegate.getInformation("plugin2").get()
+                    .getClassLoader();
+
+            // plugin1 asks plugin2 for ForeignRoot (foreign). Defining it makes
+            // plugin2 load OwnBase (own), which makes plugin2 ask plugin1 for
+            // SharedApi (foreign). Initializing it loads OwnHelper (own).
+            final Class<?> root = Class.forName(ForeignRoot.class.getName(), true,
+                    cl1);
+            final Class<?> base = root.getSuperclass();
+            assertSame(cl2, root.getClassLoader());
+            assertSame(cl2, base.getClassLoader());
+            assertSame(cl1, base.getInterfaces()[0].getClassLoader());
+            assertSame(cl2, root.getField("HELPER").get(null).getClass()
+                    .getClassLoader());
+
+            assertEquals(1, getLong("plugin1", "ClassesDefined"));
+            assertEquals(1, getLong("plugin1", "ClassesServed"));
+            assertEquals(3, getLong("plugin2", "ClassesDefined"));
+            assertEquals(1, getLong("plugin2", "ClassesServed"));
+
+            final LookupFrame frame = delegate.getContext().currentFrame();
+            assertEquals(0, frame.depth);
+            assertNull(frame.foreignTarget);
+        }
+    }
+}
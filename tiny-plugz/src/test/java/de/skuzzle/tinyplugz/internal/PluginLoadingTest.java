@@ -0,0 +1,154 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import de.skuzzle.tinyplugz.TinyPlugzException;
+
+public class PluginLoadingTest {
+
+    private static final class Loader implements Closeable {
+        private final URL url;
+        private volatile boolean closed;
+
+        private Loader(URL url) {
+            this.url = url;
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+    }
+
+    private static List<URL> urls(int count) throws Exception {
+        final List<URL> result = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            result.add(new URL("file:/plugins/plugin" + i + ".jar"));
+        }
+        return result;
+    }
+
+    private static Loader slowLoader(URL url) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(10));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new Loader(url);
+    }
+
+    private static void assertOrdered(List<URL> urls, List<Loader> loaders) {
+        assertEquals(urls.size(), loaders.size());
+        for (int i = 0; i < urls.size(); ++i) {
+            assertSame(urls.get(i), loaders.get(i).url);
+        }
+    }
+
+    @Test
+    public void testSerial() throws Exception {
+        final List<URL> urls = urls(10);
+        assertOrdered(urls, PluginLoading.serial().createAll(urls,
+                PluginLoadingTest::slowLoader));
+    }
+
+    @Test
+    public void testParallelKeepsOrder() throws Exception {
+        final List<URL> urls = urls(50);
+        assertOrdered(urls, PluginLoading.parallel(8).createAll(urls,
+                PluginLoadingTest::slowLoader));
+    }
+
+    @Test
+    public void testExecutorKeepsOrder() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<URL> urls = urls(50);
+            assertOrdered(urls, PluginLoading.fromProperty(executor).createAll(urls,
+                    PluginLoadingTest::slowLoader));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelFailureClosesCreated() throws Exception {
+        final List<URL> urls = urls(10);
+        final List<Loader> created = new ArrayList<>();
+        final Function<URL, Loader> factory = url -> {
+            if (url.getPath().endsWith("plugin5.jar")) {
+                throw new IllegalStateException("plugin5");
+            }
+            final Loader loader = new Loader(url);
+            synchronized (created) {
+                created.add(loader);
+            }
+            return loader;
+        };
+        try {
+            PluginLoading.parallel(4).createAll(urls, factory);
+            fail("Expected exception");
+        } catch (final IllegalStateException e) {
+            assertEquals("plugin5", e.getMessage());
+        }
+        assertEquals(9, created.size());
+        for (final Loader loader : created) {
+            assertTrue(loader.closed);
+        }
+    }
+
+    @Test
+    public void testParallelErrorClosesCreated() throws Exception {
+        final List<URL> urls = urls(10);
+        final List<Loader> created = new ArrayList<>();
+        final Function<URL, Loader> factory = url -> {
+            if (url.getPath().endsWith("plugin0.jar")) {
+                throw new LinkageError("plugin0");
+            }
+            final Loader loader = slowLoader(url);
+            synchronized (created) {
+                created.add(loader);
+            }
+            return loader;
+        };
+        try {
+            PluginLoading.parallel(4).createAll(urls, factory);
+            fail("Expected error");
+        } catch (final LinkageError e) {
+            assertEquals("plugin0", e.getMessage());
+        }
+        assertEquals(9, created.size());
+        for (final Loader loader : created) {
+            assertTrue(loader.closed);
+        }
+    }
+
+    @Test
+    public void testFromPropertyString() throws Exception {
+        assertEquals("ParallelPluginLoading[parallelism=4]",
+                PluginLoading.fromProperty("4").toString());
+    }
+
+    @Test
+    public void testFromPropertyNull() throws Exception {
+        assertSame(PluginLoading.serial(), PluginLoading.fromProperty(null));
+    }
+
+    @Test(expected = TinyPlugzException.class)
+    public void testFromPropertyInvalid() throws Exception {
+        PluginLoading.fromProperty(0);
+    }
+}
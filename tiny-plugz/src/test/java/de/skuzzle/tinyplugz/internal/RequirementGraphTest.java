@@ -0,0 +1,82 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.skuzzle.tinyplugz.TinyPlugzException;
+
+public class RequirementGraphTest {
+
+    private RequirementGraph subject;
+
+    @Before
+    public void setUp() throws Exception {
+        this.subject = new RequirementGraph();
+    }
+
+    @Test
+    public void testIsDeclared() throws Exception {
+        this.subject.declare("a", Collections.emptyList());
+        assertTrue(this.subject.isDeclared("a"));
+        assertFalse(this.subject.isDeclared("b"));
+    }
+
+    @Test
+    public void testSearchOrderDeclarationOrder() throws Exception {
+        this.subject.declare("a", Arrays.asList("b", "c"));
+        this.subject.validate(Arrays.asList("a", "b", "c"));
+
+        assertEquals(Arrays.asList("b", "c"), this.subject.searchOrder("a"));
+    }
+
+    @Test
+    public void testSearchOrderTransitive() throws Exception {
+        this.subject.declare("a", Arrays.asList("b"));
+        this.subject.declare("b", Arrays.asList("c"));
+        this.subject.validate(Arrays.asList("a", "b", "c", "d"));
+
+        assertEquals(Arrays.asList("b", "c"), this.subject.searchOrder("a"));
+    }
+
+    @Test
+    public void testSearchOrderTopological() throws Exception {
+        this.subject.declare("a", Arrays.asList("b", "c"));
+        this.subject.declare("c", Arrays.asList("b"));
+        this.subject.validate(Arrays.asList("a", "b", "c"));
+
+        assertEquals(Arrays.asList("c", "b"), this.subject.searchOrder("a"));
+    }
+
+    @Test(expected = TinyPlugzException.class)
+    public void testUnknownPlugin() throws Exception {
+        this.subject.declare("a", Arrays.asList("b"));
+        this.subject.validate(Arrays.asList("a"));
+    }
+
+    @Test
+    public void testCycle() throws Exception {
+        this.subject.declare("a", Arrays.asList("b"));
+        this.subject.declare("b", Arrays.asList("c"));
+        this.subject.declare("c", Arrays.asList("b"));
+        try {
+            this.subject.validate(Arrays.asList("a", "b", "c"));
+            fail("Expected exception");
+        } catch (final TinyPlugzException e) {
+            assertEquals("Cyclic plugin requirements: b -> c -> b", e.getMessage());
+        }
+    }
+
+    @Test(expected = TinyPlugzException.class)
+    public void testSelfCycle() throws Exception {
+        this.subject.declare("a", Arrays.asList("a"));
+        this.subject.validate(Arrays.asList("a"));
+    }
+}
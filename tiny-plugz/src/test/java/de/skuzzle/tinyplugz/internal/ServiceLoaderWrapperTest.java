@@ -0,0 +1,106 @@
+package de.skuzzle.tinyplugz.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.skuzzle.tinyplugz.ServiceProvider;
+import de.skuzzle.tinyplugz.internal.CachingServiceLoaderWrapperTest.SampleProvider1;
+import de.skuzzle.tinyplugz.internal.CachingServiceLoaderWrapperTest.SampleService;
+
+public class ServiceLoaderWrapperTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private DelegateClassLoader delegate;
+    private ClassLoader plugin1;
+
+    @Before
+    public void setUp() throws Exception {
+        final File plugin1 = this.folder.newFolder("plugin1");
+        final File plugin2 = this.folder.newFolder("plugin2");
+        write(plugin1, "META-INF/services/" + SampleService.class.getName(),
+                SampleProvider1.class.getName());
+        write(plugin2, "META-INF/services/" + SampleService.class.getName(),
+                "com.foo.Unknown");
+
+        this.delegate = DelegateClassLoader.forPlugins(
+                Stream.of(plugin1.toURI().toURL(), plugin2.toURI().toURL()),
+                getClass().getClassLoader());
+        this.plugin1 = this.delegate.getInformation("plugin1").get().getClassLoader();
+        SampleProvider1.instances = 0;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.delegate.close();
+    }
+
+    private void write(File root, String path, String content) throws Exception {
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testLoadOwnServicesOnly() throws Exception {
+        final Iterator<SampleService> it = ServiceLoaderWrapper.getDefault()
+                .loadPluginServices(SampleService.class, this.plugin1);
+
+        // the unknown provider of plugin2 is not touched
+        assertTrue(it.next() instanceof SampleProvider1);
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testLoadOwnServicesLazily() throws Exception {
+        final Iterator<SampleService> it = ServiceLoaderWrapper.getDefault()
+                .loadPluginServices(SampleService.class, this.plugin1);
+
+        assertTrue(it instanceof ProviderIterator<?>);
+        assertEquals(1, ((ProviderIterator<SampleService>) it).remaining());
+        assertEquals(0, SampleProvider1.instances);
+        it.next();
+        assertEquals(1, SampleProvider1.instances);
+    }
+
+    @Test
+    public void testLoadProvidersWithoutInstantiating() throws Exception {
+        final Iterator<ServiceProvider<SampleService>> it = ServiceLoaderWrapper
+                .getDefault().loadProviders(SampleService.class, this.delegate);
+
+        final ServiceProvider<SampleService> first = it.next();
+        final ServiceProvider<SampleService> second = it.next();
+        assertFalse(it.hasNext());
+        assertEquals(SampleProvider1.class.getName(), first.getProviderClassName());
+        assertEquals("plugin1", first.getPluginInformation().get().getName());
+        assertEquals("com.foo.Unknown", second.getProviderClassName());
+        assertEquals("plugin2", second.getPluginInformation().get().getName());
+        assertEquals(0, SampleProvider1.instances);
+
+        assertTrue(first.get() instanceof SampleProvider1);
+        assertEquals(1, SampleProvider1.instances);
+    }
+
+    @Test(expected = ServiceConfigurationError.class)
+    public void testLoadProvidersUnknownClass() throws Exception {
+        final Iterator<ServiceProvider<SampleService>> it = ServiceLoaderWrapper
+                .getDefault().loadProviders(SampleService.class, this.delegate);
+        it.next();
+        it.next().get();
+    }
+}
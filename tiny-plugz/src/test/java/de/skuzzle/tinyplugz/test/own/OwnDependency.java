@@ -0,0 +1,5 @@
+package de.skuzzle.tinyplugz.test.own;
+
+import de.skuzzle.tinyplugz.test.shared.SharedDependency;
+
+public class OwnDependency implements SharedDependency {}
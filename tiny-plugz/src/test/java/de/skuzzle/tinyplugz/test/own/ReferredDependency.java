@@ -0,0 +1,3 @@
+package de.skuzzle.tinyplugz.test.own;
+
+public class ReferredDependency {}
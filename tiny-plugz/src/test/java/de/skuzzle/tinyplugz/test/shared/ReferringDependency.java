@@ -0,0 +1,5 @@
+package de.skuzzle.tinyplugz.test.shared;
+
+import de.skuzzle.tinyplugz.test.own.ReferredDependency;
+
+public class ReferringDependency extends ReferredDependency {}
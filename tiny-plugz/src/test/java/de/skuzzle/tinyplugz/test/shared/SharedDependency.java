@@ -0,0 +1,3 @@
+package de.skuzzle.tinyplugz.test.shared;
+
+public interface SharedDependency {}
@@ -0,0 +1,80 @@
+package de.skuzzle.tinyplugz.util;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import de.skuzzle.tinyplugz.TinyPlugzException;
+
+public class ReflectionUtilTest {
+
+    public static class FailingClass {
+        public FailingClass() {
+            throw new IllegalStateException();
+        }
+    }
+
+    public static class NoDefaultConstructor {
+        public NoDefaultConstructor(String s) {}
+    }
+
+    private final ClassLoader classLoader = getClass().getClassLoader();
+
+    @Test
+    public void testCreateFromClass() throws Exception {
+        final Object instance = ReflectionUtil.createInstance(CustomTestClass.class,
+                Object.class, this.classLoader);
+        assertTrue(instance instanceof CustomTestClass);
+    }
+
+    @Test
+    public void testCreateFromName() throws Exception {
+        final Object first = ReflectionUtil.createInstance(
+                CustomTestClass.class.getName(), Object.class, this.classLoader);
+        final Object second = ReflectionUtil.createInstance(
+                CustomTestClass.class.getName(), Object.class, this.classLoader);
+        assertTrue(first instanceof CustomTestClass);
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void testReturnInstance() throws Exception {
+        final CustomTestClass instance = new CustomTestClass();
+        assertSame(instance, ReflectionUtil.createInstance(instance,
+                CustomTestClass.class, this.classLoader));
+    }
+
+    @Test(expected = TinyPlugzException.class)
+    public void testUnknownClass() throws Exception {
+        ReflectionUtil.createInstance("com.foo.Unknown", Object.class,
+                this.classLoader);
+    }
+
+    @Test(expected = TinyPlugzException.class)
+    public void testNoSubtype() throws Exception {
+        ReflectionUtil.createInstance(CustomTestClass.class, String.class,
+                this.classLoader);
+    }
+
+    @Test(expected = TinyPlugzException.class)
+    public void testNoDefaultConstructor() throws Exception {
+        ReflectionUtil.getFactory(NoDefaultConstructor.class);
+    }
+
+    @Test(expected = TinyPlugzException.class)
+    public void testConstructorThrows() throws Exception {
+        ReflectionUtil.getFactory(FailingClass.class).get();
+    }
+
+    @Test
+    public void testFactoryIsCached() throws Exception {
+        final Supplier<CustomTestClass> factory = ReflectionUtil.getFactory(
+                CustomTestClass.class);
+        assertSame(factory, ReflectionUtil.getFactory(CustomTestClass.class));
+        assertNotSame(factory.get(), factory.get());
+    }
+}